@@ -0,0 +1,218 @@
+import java.util.Arrays;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * The shortest path costs between every pair of nodes in a small graph, and
+ * the last edge taken on each of those paths, so that any shortest path
+ * query can be answered by following table entries instead of searching.
+ * The table takes one search from every node to build, which the build
+ * spreads over a ForkJoinPool, and about 16 bytes per pair of nodes to
+ * store, so it only suits graphs the size of campus.dot.
+ *
+ * The entries from one source are copied out of the same search that
+ * DijkstraGraph.shortestPathTree runs, so they pick the same path as a
+ * search would when several paths tie for the lowest cost.  Instances are
+ * immutable, so they can be shared between threads.
+ *
+ * @param NodeType is the data type stored at each graph node
+ */
+public class AllPairsTable<NodeType> {
+
+    /**
+     * The most nodes a table can be built for, the largest n for which the
+     * n * n entries still fit in one array.
+     */
+    public static final int MAX_NODES = 46340;
+
+    // the snapshot the table was built from
+    private final CompactGraph<NodeType> graph;
+    private final int nodeCount;
+
+    // stored source by source, so the entries for the path from node s to
+    // node t sit at s * nodeCount + t: the cost of the shortest path
+    // (infinity if there is none), and the node before t on it and the
+    // position in graph's edge arrays of the edge from there into t (both -1
+    // if s is t or there is no path)
+    private final double[] cost;
+    private final int[] predecessor;
+    private final int[] predecessorEdge;
+
+    // per source node: the target with the most edges on its shortest path
+    private final int[] farthest;
+
+    /**
+     * Creates a table from entries that have already been computed.  The
+     * arrays are kept rather than copied, so the caller must not modify them
+     * afterwards.
+     *
+     * @param graph           the snapshot the entries belong to
+     * @param cost            cost from s to t at s * n + t, or infinity
+     * @param predecessor     node before t on the path from s at s * n + t, or -1
+     * @param predecessorEdge edge into t on the path from s at s * n + t, or -1
+     * @param farthest        for each s, the t whose path from s has the most edges
+     */
+    public AllPairsTable(CompactGraph<NodeType> graph, double[] cost, int[] predecessor,
+                         int[] predecessorEdge, int[] farthest) {
+        int n = graph.getNodeCount();
+        long pairs = (long) n * n;
+        if (cost.length != pairs || predecessor.length != pairs
+                || predecessorEdge.length != pairs || farthest.length != n)
+            throw new IllegalArgumentException("entry arrays should hold one entry per pair of nodes");
+        this.graph = graph;
+        this.nodeCount = n;
+        this.cost = cost;
+        this.predecessor = predecessor;
+        this.predecessorEdge = predecessorEdge;
+        this.farthest = farthest;
+    }
+
+    /**
+     * Builds the table for the current state of a graph by running one
+     * search from every node, split between the threads of pool.
+     *
+     * @param graph the graph to build the table for
+     * @param pool  the pool to run the searches in
+     * @return the all-pairs table for graph
+     * @throws IllegalArgumentException if graph has more than MAX_NODES nodes
+     */
+    public static <NodeType> AllPairsTable<NodeType> build(DijkstraGraph<NodeType, ?> graph,
+                                                           ForkJoinPool pool) {
+        CompactGraph<NodeType> compact = graph.freeze();
+        int n = compact.getNodeCount();
+        if (n > MAX_NODES)
+            throw new IllegalArgumentException("an all-pairs table holds at most " + MAX_NODES
+                                               + " nodes, this graph has " + n);
+        double[] cost = new double[n * n];
+        int[] predecessor = new int[n * n];
+        int[] predecessorEdge = new int[n * n];
+        int[] farthest = new int[n];
+        int[] sources = new int[n];
+        for (int s = 0; s < n; s++)
+            sources[s] = s;
+        graph.searchEach(compact, sources, pool, pool.getParallelism(), (workspace, s) -> {
+            int row = s * n;
+            Arrays.fill(cost, row, row + n, Double.POSITIVE_INFINITY);
+            Arrays.fill(predecessor, row, row + n, -1);
+            Arrays.fill(predecessorEdge, row, row + n, -1);
+            // nodes are visited in the order they were settled, so each
+            // node's predecessor already has its hop count
+            int[] hops = new int[n];
+            int settled = workspace.getSettledCount();
+            int best = s;
+            for (int i = 0; i < settled; i++) {
+                int node = workspace.settledAt(i);
+                int pred = workspace.predecessor(node);
+                cost[row + node] = workspace.cost(node);
+                predecessor[row + node] = pred;
+                predecessorEdge[row + node] = workspace.predecessorEdge(node);
+                if (pred >= 0) {
+                    hops[node] = hops[pred] + 1;
+                    // keeps the first node in index order when hop counts
+                    // tie, which is the order getAllNodes() lists them in
+                    if (hops[node] > hops[best] || (hops[node] == hops[best] && node < best))
+                        best = node;
+                }
+            }
+            farthest[s] = best;
+        });
+        return new AllPairsTable<>(compact, cost, predecessor, predecessorEdge, farthest);
+    }
+
+    /**
+     * @return the snapshot this table was built from, which is the one the
+     *         graph's freeze() returns for as long as the table is current
+     */
+    public CompactGraph<NodeType> getGraph() {
+        return graph;
+    }
+
+    /**
+     * @return the approximate number of bytes taken by the table's entries
+     */
+    public long getMemoryBytes() {
+        long pairs = (long) nodeCount * nodeCount;
+        return pairs * (Double.BYTES + 2 * Integer.BYTES) + (long) nodeCount * Integer.BYTES;
+    }
+
+    /**
+     * @param start the data of the node a path starts at
+     * @param end   the data of the node a path ends at
+     * @return true if both nodes are in the graph and there is a path from
+     *         start to end
+     */
+    public boolean isReachable(NodeType start, NodeType end) {
+        int s = graph.indexOf(start);
+        int t = graph.indexOf(end);
+        return s >= 0 && t >= 0 && cost[s * nodeCount + t] < Double.POSITIVE_INFINITY;
+    }
+
+    /**
+     * @param start the data of the node the path starts at
+     * @param end   the data of the node the path ends at
+     * @return the cost of the shortest path from start to end
+     * @throws NoSuchElementException if either node is missing or there is no
+     *         path between them
+     */
+    public double getCost(NodeType start, NodeType end) {
+        return cost[entry(start, end)];
+    }
+
+    /**
+     * Reads the shortest path from start to end out of the table by
+     * following predecessors back from end.
+     *
+     * @param start the data of the node the path starts at
+     * @param end   the data of the node the path ends at
+     * @return the nodes, edge weights and cost of the shortest path
+     * @throws NoSuchElementException if either node is missing or there is no
+     *         path between them
+     */
+    public PathResult<NodeType> getPath(NodeType start, NodeType end) {
+        int entry = entry(start, end);
+        int t = graph.indexOf(end);
+        int row = entry - t;
+        int length = 1;
+        for (int index = t; predecessor[row + index] >= 0; index = predecessor[row + index])
+            length++;
+        // fill both arrays from the back, since predecessors lead from end to start
+        Object[] pathNodes = new Object[length];
+        Double[] weights = new Double[length - 1];
+        for (int index = t, i = length - 1; i >= 0; index = predecessor[row + index], i--) {
+            pathNodes[i] = graph.dataAt(index);
+            if (i > 0)
+                weights[i - 1] = graph.weights[predecessorEdge[row + index]];
+        }
+        @SuppressWarnings("unchecked")
+        List<NodeType> nodeData = (List<NodeType>) Arrays.asList(pathNodes);
+        return new PathResult<>(nodeData, Arrays.asList(weights), cost[entry]);
+    }
+
+    /**
+     * Returns the shortest path from start that has the most edges among the
+     * shortest paths to every reachable node, keeping the first such node in
+     * getAllNodes() order when there's a tie.  This is just start itself when
+     * no other node can be reached.
+     *
+     * @param start the data of the node the paths start at
+     * @return the shortest path from start with the most edges
+     * @throws NoSuchElementException if start is not in the graph
+     */
+    public PathResult<NodeType> getLongestPathFrom(NodeType start) {
+        int s = graph.indexOf(start);
+        if (s < 0)
+            throw new NoSuchElementException(start + " is not in the graph");
+        return getPath(start, graph.dataAt(farthest[s]));
+    }
+
+    // position of the entries for the path from start to end, checking that
+    // there is one
+    private int entry(NodeType start, NodeType end) {
+        int s = graph.indexOf(start);
+        int t = graph.indexOf(end);
+        if (s < 0 || t < 0 || cost[s * nodeCount + t] == Double.POSITIVE_INFINITY)
+            throw new NoSuchElementException("there is no path from " + start + " to " + end);
+        return s * nodeCount + t;
+    }
+}
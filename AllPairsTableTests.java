@@ -0,0 +1,83 @@
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for AllPairsTable, checked against DijkstraGraph's searches.
+ */
+public class AllPairsTableTests {
+
+    @Test
+    public void testMatchesDijkstra() {
+        DijkstraGraph<Integer, Double> graph = TestGraphs.randomGraph(11, 60, 180);
+        AllPairsTable<Integer> table = AllPairsTable.build(graph, ForkJoinPool.commonPool());
+        assertEquals(60L * 60 * 16 + 60 * 4, table.getMemoryBytes());
+        for (int s = 0; s < 60; s++) {
+            ShortestPathTree<Integer> tree = graph.shortestPathTree(s);
+            for (int t = 0; t < 60; t++) {
+                assertEquals(tree.isReachable(t), table.isReachable(s, t));
+                if (!tree.isReachable(t)) {
+                    final int start = s, end = t;
+                    assertThrows(NoSuchElementException.class, () -> table.getPath(start, end));
+                    continue;
+                }
+                PathResult<Integer> path = table.getPath(s, t);
+                assertEquals(tree.getPath(t).getNodes(), path.getNodes(), "same path as a search");
+                assertEquals(tree.getCost(t), table.getCost(s, t), 1e-9);
+                assertEquals(path.getCost(), table.getCost(s, t));
+                assertEquals(Integer.valueOf(s), path.getNodes().get(0));
+                assertEquals(Integer.valueOf(t), path.getNodes().get(path.getNodes().size() - 1));
+                // the weights along the path add up to the stored cost
+                double sum = 0;
+                for (int i = 0; i < path.getEdgeWeights().size(); i++) {
+                    List<Integer> nodes = path.getNodes();
+                    assertEquals(graph.getEdge(nodes.get(i), nodes.get(i + 1)), path.getEdgeWeights().get(i));
+                    sum += path.getEdgeWeights().get(i);
+                }
+                assertEquals(path.getCost(), sum, 1e-9);
+            }
+        }
+    }
+
+    @Test
+    public void testLongestPath() {
+        DijkstraGraph<String, Double> graph = new DijkstraGraph<>();
+        for (String node : new String[] { "A", "B", "C", "D", "E" })
+            graph.insertNode(node);
+        graph.insertEdge("A", "B", 1.0);
+        graph.insertEdge("B", "C", 1.0);
+        graph.insertEdge("A", "C", 3.0);
+        graph.insertEdge("A", "D", 5.0);
+        AllPairsTable<String> table = AllPairsTable.build(graph, ForkJoinPool.commonPool());
+        assertEquals(List.of("A", "B", "C"), table.getLongestPathFrom("A").getNodes());
+        assertEquals(2.0, table.getCost("A", "C"));
+        assertEquals(List.of("E"), table.getLongestPathFrom("E").getNodes());
+        assertFalse(table.isReachable("E", "A"));
+        assertThrows(NoSuchElementException.class, () -> table.getCost("E", "A"));
+        assertThrows(NoSuchElementException.class, () -> table.getLongestPathFrom("F"));
+        assertEquals(0, AllPairsTable.build(new DijkstraGraph<String, Double>(), ForkJoinPool.commonPool())
+                                     .getMemoryBytes());
+    }
+
+    @Test
+    public void testTooManyNodes() {
+        // n * n entries no longer fit in an int once n is above MAX_NODES
+        DijkstraGraph<Integer, Double> graph = new DijkstraGraph<>();
+        for (int i = 0; i <= AllPairsTable.MAX_NODES; i++)
+            graph.insertNode(i);
+        assertThrows(IllegalArgumentException.class,
+                     () -> AllPairsTable.build(graph, ForkJoinPool.commonPool()));
+        // 65536 * 65536 wraps around to 0 in int arithmetic, so empty arrays
+        // used to pass the constructor's check
+        for (int i = AllPairsTable.MAX_NODES + 1; i < 65536; i++)
+            graph.insertNode(i);
+        CompactGraph<Integer> compact = graph.freeze();
+        assertThrows(IllegalArgumentException.class,
+                     () -> new AllPairsTable<>(compact, new double[0], new int[0], new int[0],
+                                               new int[65536]));
+    }
+}
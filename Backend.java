@@ -1,70 +1,204 @@
 import java.io.IOException;
 import java.util.ArrayList;
-import java.util.Collections;
 import java.util.List;
-import java.io.BufferedReader;
 import java.io.FileReader;
+import java.io.Reader;
+import java.nio.file.Path;
 import java.util.NoSuchElementException;
+import java.util.concurrent.ForkJoinPool;
 
 public class Backend implements BackendInterface {
 
-    // private graph field
+    // private graph field: the graph queries are answered from, which is
+    // either the one passed to the constructor or a mapped snapshot
     private GraphADT<String, Double> graph;
+    // the graph passed to the constructor, which loadGraphData loads into
+    private final GraphADT<String, Double> editableGraph;
+
+    // graphs with at most this many nodes get an all-pairs table when they
+    // are loaded, which then answers queries without searching (0 is off)
+    private int allPairsThreshold = 0;
+    // the table for the loaded graph, or null when there isn't one
+    private AllPairsTable<String> allPairs = null;
+
+    // recently found routes, so popular ones aren't searched for every time,
+    // or null when routes are not cached
+    private RouteCache<String> routeCache =
+        new RouteCache<>(RouteCache.Policy.TINY_LFU, DEFAULT_CACHED_ROUTES, DEFAULT_CACHE_BYTES);
+    private static final int DEFAULT_CACHED_ROUTES = 4096;
+    private static final long DEFAULT_CACHE_BYTES = 4L << 20;
+
     public Backend(GraphADT<String,Double> graph) {
         this.graph = graph;
+        this.editableGraph = graph;
+    }
+
+    /**
+     * Replaces the cache that shortest path results are kept in.  Routes are
+     * cached in a 4096 route W-TinyLFU cache unless this is called.  The cache
+     * is kept up to date by loadGraphData, insertEdge and removeEdge, so the
+     * graph should not be changed other than through those methods.
+     * @param cache the cache to use, or null to search for every route
+     */
+    public void setRouteCache(RouteCache<String> cache) {
+        this.routeCache = cache;
+    }
+
+    /**
+     * @return the cache that shortest path results are kept in, whose hit and
+     *         miss counts show how well it's working, or null if there is none
+     */
+    public RouteCache<String> getRouteCache() {
+        return routeCache;
     }
+
+    /**
+     * Turns on all-pairs tables for small graphs: each later call to
+     * loadGraphData that leaves a DijkstraGraph with at most maxNodes nodes
+     * precomputes the shortest paths between every pair of its locations,
+     * using about 16 * maxNodes^2 bytes.  Larger graphs are searched as usual.
+     * @param maxNodes the largest graph to build a table for, or 0 for none
+     * @throws IllegalArgumentException if maxNodes is negative or more than
+     *         AllPairsTable.MAX_NODES
+     */
+    public void setAllPairsThreshold(int maxNodes) {
+        if (maxNodes < 0 || maxNodes > AllPairsTable.MAX_NODES) {
+            throw new IllegalArgumentException("node count threshold should be between 0 and "
+                                               + AllPairsTable.MAX_NODES);
+        }
+        this.allPairsThreshold = maxNodes;
+    }
+
+    /**
+     * @return the all-pairs table for the loaded graph, or null if none was
+     *         built or the graph has changed since
+     */
+    public AllPairsTable<String> getAllPairsTable() {
+        AllPairsTable<String> table = allPairs;
+        if (table == null || table.getGraph() != ((DijkstraGraph<String, Double>) graph).freeze()) {
+            return null;
+        }
+        return table;
+    }
+
     /**
      * Loads graph data from a dot file.  If a graph was previously loaded, this
      * method should first delete the contents (nodes and edges) of the existing
      * graph before loading a new one.
+     * The graph is loaded into the graph passed to the constructor, which
+     * answers queries again from then on if a snapshot was loaded before.
      * @param filename the path to a dot file to read graph data from
-     * @throws IOException if there was any problem reading from this file
+     * @throws IOException if there was any problem reading from this file, or
+     *         it does not hold a DOT graph with a seconds attribute on each edge
      */
     @java.lang.Override
     public void loadGraphData(String filename) throws IOException {
+        graph = editableGraph;
         // path of all nodes in the graph to clear the graph first
         List<String> allNodes = new ArrayList<>(graph.getAllNodes());
         // remove all nodes in the graph to clear before trying to read.
         for (String node : allNodes) {
             graph.removeNode(node);
         }
-       try (BufferedReader br = new BufferedReader(new FileReader(filename)))  {
-           // current line being read from the file
-           String currentLine;
-           // keep reading until there are no more lines
-           while ((currentLine = br.readLine()) != null) {
-               // skip the line if it is not one of the nodes / weight
-               if (currentLine.isEmpty() || currentLine.startsWith("digraph") || currentLine.startsWith("}") || currentLine.startsWith("{")) {
-                   continue;
-               }
-               // call helper method to split the line into relevant parts
-               String[] parts = parseLine(currentLine);
-               // this regex gets rid of the quotes around the predecessor
-               String pred = parts[0].trim().replace("\"", "");
-               //Same thing for the successor
-               String succ = parts[1].trim().replace("\"", "");
-               // Parse for the double value in the weight entry
-               Double weight = Double.parseDouble(parts[2].trim());
-               // insert nodes, and edges.
-               graph.insertNode(pred);
-               graph.insertNode(succ);
-               graph.insertEdge(pred, succ, weight);
-
-           }
-       }
+        allPairs = null;
+        clearRouteCache();
+        // the parser streams each edge into the graph as soon as it's read
+        try (Reader reader = new FileReader(filename)) {
+            new DotParser().parse(reader, graph);
+        }
+        // small enough graphs are searched once from every location up front
+        int nodes = graph.getAllNodes().size();
+        if (graph instanceof DijkstraGraph && nodes > 0 && nodes <= allPairsThreshold) {
+            allPairs = AllPairsTable.build((DijkstraGraph<String, Double>) graph,
+                                           ForkJoinPool.commonPool());
+        }
     }
 
     /**
-     * Private helper method to split lines from loaded file into relevant parts
-     * @param line
-     * @return the split line
+     * Loads graph data from a snapshot file written by writeGraphSnapshot.
+     * The file is memory-mapped and queries are answered straight from it,
+     * so this takes about as long as opening the file, however large the
+     * graph is.  The snapshot replaces the graph passed to the constructor
+     * until loadGraphData is called again; it is read-only, so insertEdge and
+     * removeEdge throw an UnsupportedOperationException in the meantime, and
+     * no all-pairs table is built for it.
+     * @param filename the path to a snapshot file to map
+     * @throws IOException if there was any problem reading from this file, or
+     *         it is not a snapshot or does not match its checksum
      */
-    private String[] parseLine(String line) {
-        line = line.trim();
-        //regex to split into , and weight.
-        return line.split("->|\\[seconds=|];");
+    public void loadGraphSnapshot(String filename) throws IOException {
+        MappedGraph snapshot = MappedGraph.open(Path.of(filename));
+        graph = snapshot;
+        allPairs = null;
+        clearRouteCache();
+    }
 
+    /**
+     * Writes the graph loaded by loadGraphData to a snapshot file, which
+     * loadGraphSnapshot can later map instead of parsing the DOT file again.
+     * @param filename the path of the snapshot file to create or replace
+     * @throws IOException if there was any problem writing the file
+     * @throws UnsupportedOperationException if the graph passed to the
+     *         constructor is not a BaseGraph
+     */
+    public void writeGraphSnapshot(String filename) throws IOException {
+        if (!(editableGraph instanceof BaseGraph<?, ?> baseGraph)) {
+            throw new UnsupportedOperationException("only a BaseGraph can be written to a snapshot");
+        }
+        MappedGraph.write(baseGraph, Path.of(filename));
+    }
 
+    /**
+     * Inserts a directed edge between two locations, adding either location
+     * if it is not in the graph yet, or updates the walking time of the edge
+     * if there already is one.  Cached routes that may no longer be shortest
+     * are dropped: all of them when the edge is new or faster than before,
+     * and only those that take the edge when it became slower.
+     * @param pred the location the edge leaves
+     * @param succ the location the edge enters
+     * @param seconds the walking time along the edge, which is non-negative
+     */
+    public void insertEdge(String pred, String succ, double seconds) {
+        Double previous = graph.containsEdge(pred, succ) ? graph.getEdge(pred, succ) : null;
+        graph.insertNode(pred);
+        graph.insertNode(succ);
+        graph.insertEdge(pred, succ, seconds);
+        RouteCache<String> cache = routeCache;
+        if (cache == null || (previous != null && previous == seconds)) {
+            return;
+        }
+        if (previous != null && previous < seconds) {
+            cache.invalidateEdge(pred, succ);
+        } else {
+            // a new or faster edge could shorten a route anywhere in the graph
+            cache.clear();
+        }
+    }
+
+    /**
+     * Removes the directed edge between two locations, dropping every cached
+     * route that took it.
+     * @param pred the location the edge leaves
+     * @param succ the location the edge enters
+     * @return true if the edge was removed, or false if there was no such edge
+     */
+    public boolean removeEdge(String pred, String succ) {
+        if (!graph.removeEdge(pred, succ)) {
+            return false;
+        }
+        RouteCache<String> cache = routeCache;
+        if (cache != null) {
+            cache.invalidateEdge(pred, succ);
+        }
+        return true;
+    }
+
+    // forgets every cached route, if routes are being cached
+    private void clearRouteCache() {
+        RouteCache<String> cache = routeCache;
+        if (cache != null) {
+            cache.clear();
+        }
     }
 
     /**
@@ -78,35 +212,53 @@ public class Backend implements BackendInterface {
     }
 
     /**
-     * Returns the sequence of locations along the shortest path between startLocation and endLocation.
+     * Returns the locations along the shortest path from startLocation to
+     * endLocation, the walking time between each two of them, and the total
+     * walking time, all from a single search of the graph, or from the route
+     * cache when the same route was asked for recently.
      * @param startLocation the start location of the path
      * @param endLocation the end location of the path
-     * @return a list of nodes along the shortest path, or an empty list if no path exists
+     * @return the shortest path, or an empty path result if no path exists
      */
-	@Override
-public List<String> findLocationsOnShortestPath(String startLocation, String endLocation) {
-    // List for the shortest locations
-    List<String> shortestLocations = null;
-    try {
-        shortestLocations = graph.shortestPathData(startLocation, endLocation);
-    } catch (NoSuchElementException e) {
-        // Return an empty list if shortestPathData throws NoSuchElementException
-        return Collections.emptyList();
+    @Override
+    public PathResult<String> findShortestPath(String startLocation, String endLocation) {
+        RouteCache<String> cache = routeCache;
+        PathResult<String> path = cache == null ? null : cache.get(startLocation, endLocation);
+        if (path == null) {
+            path = searchShortestPath(startLocation, endLocation);
+            if (cache != null) {
+                cache.put(startLocation, endLocation, path);
+            }
+        }
+        return path;
     }
 
-    // If the path is null or empty, return an empty list
-    if (shortestLocations == null || shortestLocations.isEmpty()) {
-        return Collections.emptyList();
+    // finds the shortest path without looking in the route cache
+    private PathResult<String> searchShortestPath(String startLocation, String endLocation) {
+        AllPairsTable<String> table = getAllPairsTable();
+        try {
+            if (table != null) {
+                return table.getPath(startLocation, endLocation);
+            }
+            return graph.shortestPath(startLocation, endLocation);
+        } catch (NoSuchElementException e) {
+            // either location is missing, or there is no path between them
+            return PathResult.empty();
+        }
     }
 
-    // Remove the startLocation if it's at the beginning of the list
-    if (shortestLocations.get(0).equals(startLocation)) {
-        shortestLocations.remove(0); // Remove the first element if it's the startLocation
+    /**
+     * Returns the sequence of locations along the shortest path between startLocation and endLocation.
+     * @param startLocation the start location of the path
+     * @param endLocation the end location of the path
+     * @return a list of nodes along the shortest path, or an empty list if no path exists
+     */
+    @Override
+    public List<String> findLocationsOnShortestPath(String startLocation, String endLocation) {
+        // the path starts with startLocation and ends with endLocation
+        return findShortestPath(startLocation, endLocation).getNodes();
     }
 
-    return shortestLocations;
-}
-
     /**
      * Return the walking times in seconds between each two nodes on the
      * shortest path from startLocation to endLocation, or an empty list of no
@@ -117,47 +269,22 @@ public List<String> findLocationsOnShortestPath(String startLocation, String end
      *         the shortest path from startLocation to endLocation, or an empty
      *         list if no such path exists
      */
-	@Override
-public List<Double> findTimesOnShortestPath(String startLocation, String endLocation) {
-    // Get all locations on the shortest path
-    List<String> shortestPath = findLocationsOnShortestPath(startLocation, endLocation);
-
-    // If the path is empty, no edges exist
-    if (shortestPath.isEmpty()) {
-        return Collections.emptyList();
-    }
-
-    // If the path contains only one location (start == end), no travel time is required
-    if (shortestPath.size() == 1 && startLocation.equals(endLocation)) {
-        return Collections.singletonList(0.0); // No travel time for self-to-self
+    @Override
+    public List<Double> findTimesOnShortestPath(String startLocation, String endLocation) {
+        // these are the weights of the edges that the search itself followed,
+        // so no further edge lookups are needed
+        return findShortestPath(startLocation, endLocation).getEdgeWeights();
     }
 
-    // Otherwise, calculate the edge weights for the shortest path
-    List<Double> shortestPathTimes = new ArrayList<>();
-    for (int i = 1; i < shortestPath.size(); i++) {
-        String from = shortestPath.get(i - 1);
-        String to = shortestPath.get(i);
-
-        // Check if from and to are the same (self-loop), handle appropriately
-        if (from.equals(to)) {
-            shortestPathTimes.add(0.0);  // If it's a self-loop, the travel time is 0
-        } else {
-            shortestPathTimes.add(graph.getEdge(from, to));  // Regular edge
-        }
-    }
-
-    return shortestPathTimes;
-}
-
     /**
      * Returns the longest list of locations along any shortest path that starts
      * from startLocation and ends at any of the reachable destinations in the
      * graph.
      * @param startLocation the location to search through paths leaving from
      * @return the longest list of locations found on any shortest path that
-     *         starts at the specified startLocation.
-     * @throws NoSuchElementException if startLocation does not exist, or if
-     *         there are no other locations that can be reached from there
+     *         starts at the specified startLocation, which is just
+     *         startLocation itself when no other location can be reached
+     * @throws NoSuchElementException if startLocation does not exist
      */
     @java.lang.Override
     public List<String> getLongestLocationListFrom(String startLocation) throws NoSuchElementException {
@@ -165,24 +292,24 @@ public List<Double> findTimesOnShortestPath(String startLocation, String endLoca
         if (!graph.containsNode(startLocation)) {
             throw new NoSuchElementException("Given starting location does not exist");
         }
-        // list of all locations to iterate over
-        List<String> locations = getListOfAllLocations();
-        // int used to keep track of the current longest path
-        int maxLength = 0;
-        // list used to store the current longest path
-        List<String> longestList = null;
-        // iterate over all the locations to see what the end location is with the longest path from the starting location
-        for (String location : locations) {
-            if ((findLocationsOnShortestPath(startLocation, location).size()) > maxLength) {
-                longestList = findLocationsOnShortestPath(startLocation, location);
-                maxLength = longestList.size();
-            }
+        AllPairsTable<String> table = getAllPairsTable();
+        if (table != null) {
+            return table.getLongestPathFrom(startLocation).getNodes();
         }
-        // if there are no paths (no other node is reachable), we throw an exception
-        if (maxLength == 0) {
-            throw new NoSuchElementException("There are no reachable destinations from this starting node.");
+        // one search finds the shortest paths to every reachable location
+        ShortestPathTree<String> tree = graph.shortestPathTree(startLocation);
+        // the location whose shortest path has the most hops, keeping the
+        // first one in getListOfAllLocations() order when there's a tie;
+        // startLocation itself is always reachable with 0 hops
+        String farthest = startLocation;
+        int maxHops = 0;
+        for (String location : getListOfAllLocations()) {
+            if (tree.isReachable(location) && tree.getHops(location) > maxHops) {
+                farthest = location;
+                maxHops = tree.getHops(location);
+            }
         }
-        return longestList;
+        return tree.getPath(farthest).getNodes();
     }
 
 }
@@ -52,6 +52,17 @@ public interface BackendInterface {
    */
   public List<Double> findTimesOnShortestPath(String startLocation, String endLocation);
 
+  /**
+   * Returns the locations along the shortest path from startLocation to
+   * endLocation, together with the walking time in seconds between each two
+   * of them and the total walking time, all found with a single search.
+   * @param startLocation the start location of the path
+   * @param endLocation the end location of the path
+   * @return the locations, walking times and total time along the shortest
+   *         path, or an empty path result if no such path exists
+   */
+  public PathResult<String> findShortestPath(String startLocation, String endLocation);
+
   /**
    * Returns the longest list of locations along any shortest path that starts
    * from startLocation and ends at any of the reachable destinations in the 
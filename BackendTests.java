@@ -2,6 +2,8 @@ import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 
 import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.List;
 import java.util.NoSuchElementException;
 
@@ -97,6 +99,125 @@ public class BackendTests {
 
     }
 
+    /**
+     * Tests that a Backend answering from an all-pairs table gives the same
+     * answers as one that searches the graph
+     */
+    @Test
+    public void roleTest4() throws IOException {
+        Backend searching = new Backend(new DijkstraGraph<>());
+        searching.loadGraphData("campus.dot");
+        Backend table = new Backend(new DijkstraGraph<>());
+        table.setAllPairsThreshold(1000);
+        table.loadGraphData("campus.dot");
+        Assertions.assertNull(searching.getAllPairsTable());
+        Assertions.assertNotNull(table.getAllPairsTable());
+
+        List<String> locations = table.getListOfAllLocations();
+        for (int i = 0; i < locations.size(); i += 7) {
+            String start = locations.get(i);
+            Assertions.assertEquals(searching.getLongestLocationListFrom(start),
+                                    table.getLongestLocationListFrom(start));
+            for (int j = 0; j < locations.size(); j += 5) {
+                String end = locations.get(j);
+                Assertions.assertEquals(searching.findShortestPath(start, end).getCost(),
+                                        table.findShortestPath(start, end).getCost(), 1e-9);
+                Assertions.assertEquals(searching.findLocationsOnShortestPath(start, end),
+                                        table.findLocationsOnShortestPath(start, end));
+            }
+        }
+        Assertions.assertTrue(table.findShortestPath("Union South", "nowhere").isEmpty());
+
+        // graphs above the threshold are searched instead
+        Backend small = new Backend(new DijkstraGraph<>());
+        small.setAllPairsThreshold(10);
+        small.loadGraphData("campus.dot");
+        Assertions.assertNull(small.getAllPairsTable());
+        // a table for more nodes would need more entries than fit in an array
+        Assertions.assertThrows(IllegalArgumentException.class,
+                                () -> small.setAllPairsThreshold(AllPairsTable.MAX_NODES + 1));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> small.setAllPairsThreshold(-1));
+    }
+
+    /**
+     * Tests that repeated routes come from the route cache, and that
+     * insertEdge() and removeEdge() drop cached routes that have changed
+     */
+    @Test
+    public void roleTest5() {
+        DijkstraGraph<String, Double> graph = new DijkstraGraph<>();
+        Backend backend = new Backend(graph);
+        backend.insertEdge("A", "B", 1.0);
+        backend.insertEdge("B", "C", 1.0);
+        backend.insertEdge("A", "C", 5.0);
+        RouteCache<String> cache = backend.getRouteCache();
+        Assertions.assertEquals(List.of("A", "B", "C"), backend.findLocationsOnShortestPath("A", "C"));
+        Assertions.assertEquals(List.of(1.0, 1.0), backend.findTimesOnShortestPath("A", "C"));
+        Assertions.assertEquals(1, cache.getMissCount());
+        Assertions.assertEquals(1, cache.getHitCount());
+        Assertions.assertEquals(0.5, cache.getHitRatio());
+
+        // a slower edge only drops the routes that use it
+        backend.findLocationsOnShortestPath("A", "B");
+        backend.findLocationsOnShortestPath("B", "C");
+        backend.insertEdge("A", "B", 5.0);
+        Assertions.assertEquals(1, cache.size());
+        Assertions.assertEquals(List.of("A", "C"), backend.findLocationsOnShortestPath("A", "C"));
+
+        // a faster edge could change any route, as could removing one
+        backend.insertEdge("A", "B", 1.0);
+        Assertions.assertEquals(0, cache.size());
+        Assertions.assertEquals(List.of("A", "B", "C"), backend.findLocationsOnShortestPath("A", "C"));
+        Assertions.assertTrue(backend.removeEdge("B", "C"));
+        Assertions.assertFalse(backend.removeEdge("B", "C"));
+        Assertions.assertEquals(List.of("A", "C"), backend.findLocationsOnShortestPath("A", "C"));
+
+        // without a cache every route is searched for
+        backend.setRouteCache(null);
+        Assertions.assertEquals(List.of("A", "C"), backend.findLocationsOnShortestPath("A", "C"));
+    }
+
+    /**
+     * Tests that a Backend answering from a mapped snapshot of campus.dot
+     * gives the same answers as one that loaded the DOT file itself
+     */
+    @Test
+    public void roleTest6() throws IOException {
+        Backend parsed = new Backend(new DijkstraGraph<>());
+        parsed.loadGraphData("campus.dot");
+        Path file = Files.createTempFile("campus", ".snapshot");
+        try {
+            parsed.writeGraphSnapshot(file.toString());
+            Backend mapped = new Backend(new DijkstraGraph<>());
+            mapped.loadGraphSnapshot(file.toString());
+            Assertions.assertEquals(parsed.getListOfAllLocations(), mapped.getListOfAllLocations());
+            List<String> locations = mapped.getListOfAllLocations();
+            for (int i = 0; i < locations.size(); i += 7) {
+                String start = locations.get(i);
+                Assertions.assertEquals(parsed.getLongestLocationListFrom(start),
+                                        mapped.getLongestLocationListFrom(start));
+                for (int j = 0; j < locations.size(); j += 5) {
+                    String end = locations.get(j);
+                    Assertions.assertEquals(parsed.findLocationsOnShortestPath(start, end),
+                                            mapped.findLocationsOnShortestPath(start, end));
+                    Assertions.assertEquals(parsed.findTimesOnShortestPath(start, end),
+                                            mapped.findTimesOnShortestPath(start, end));
+                }
+            }
+            Assertions.assertTrue(mapped.findShortestPath("Union South", "nowhere").isEmpty());
+            Assertions.assertThrows(UnsupportedOperationException.class,
+                                    () -> mapped.insertEdge("Union South", "Memorial Union", 1.0));
+
+            // loading the DOT file again goes back to the editable graph
+            mapped.loadGraphData("campus.dot");
+            mapped.insertEdge("Union South", "Memorial Union", 1.0);
+            Assertions.assertEquals(List.of("Union South", "Memorial Union"),
+                                    mapped.findLocationsOnShortestPath("Union South", "Memorial Union"));
+        } finally {
+            Files.delete(file);
+        }
+    }
+
 
 
 
@@ -40,6 +40,14 @@ public class Backend_Placeholder implements BackendInterface {
     return times;
   }
 
+  // combines the two placeholder methods above
+  public PathResult<String> findShortestPath(String startLocation, String endLocation) {
+    List<Double> times = findTimesOnShortestPath(startLocation,endLocation);
+    double total = 0;
+    for(double time : times) total += time;
+    return new PathResult<>(findLocationsOnShortestPath(startLocation,endLocation),times,total);
+  }
+
   // always returns the locations leading to the last node
   public List<String> getLongestLocationListFrom(String startLocation) throws NoSuchElementException {
     List<String> all = graph.getAllNodes();
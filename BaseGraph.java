@@ -1,10 +1,21 @@
+import java.util.AbstractList;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.LinkedList;
 import java.util.NoSuchElementException;
+import java.util.RandomAccess;
 
 /**
  * This BaseGraph class contains stores a set of nodes, along with a set of
  * directed and weighted edges connecting those nodes.
+ *
+ * A BaseGraph is not synchronized.  The only change that may run alongside
+ * queries from other threads is updating the weight of an existing edge,
+ * which leaves every node and edge list as it was.  Inserting or removing
+ * nodes or edges must not overlap with any other call, even when the map
+ * passed to the constructor is thread-safe (such as ConcurrentHashtableMap):
+ * the node list and edge lists are plain lists, and removeNode renumbers the
+ * last node.
  */
 public class BaseGraph<NodeType, EdgeType extends Number> {
 
@@ -13,6 +24,7 @@ public class BaseGraph<NodeType, EdgeType extends Number> {
         public NodeType data;
         public List<Edge> edgesLeaving = new LinkedList<>();
         public List<Edge> edgesEntering = new LinkedList<>();
+        public int index; // position of this node within nodeList
 
         public Node(NodeType data) {
             this.data = data;
@@ -22,6 +34,13 @@ public class BaseGraph<NodeType, EdgeType extends Number> {
     // Nodes can be retrieved from this map by their unique data
     protected MapADT<NodeType, Node> nodes = null;
 
+    // Every node is also kept in this list, so that they can be visited or
+    // numbered 0..n-1 without going through the map
+    protected ArrayList<Node> nodeList = new ArrayList<>();
+
+    // Read-only view of the data in nodeList, handed out by getAllNodes
+    private final List<NodeType> allNodesView = new AllNodesView();
+
     // Each edge contains data/weight, and two nodes that it connects
     protected class Edge {
         public EdgeType data; // the weight or cost of this edge
@@ -38,6 +57,13 @@ public class BaseGraph<NodeType, EdgeType extends Number> {
     protected int edgeCount = 0;
     // Edges can be retrieved through the edge lists in either connected node
 
+    // Incremented by every change to the nodes, edges or weights of this graph,
+    // volatile so that queries running alongside weight updates see them
+    protected volatile long version = 0;
+
+    // Most recent snapshot returned by freeze, reused until the graph changes
+    private volatile CompactGraph<NodeType> frozen = null;
+
     /**
      * Constructor for BaseGraph that provides the map the graph uses.
      * 
@@ -59,7 +85,11 @@ public class BaseGraph<NodeType, EdgeType extends Number> {
     public boolean insertNode(NodeType data) {
         if (nodes.containsKey(data))
             return false; // throws NPE when data's null
-        nodes.put(data, new Node(data));
+        Node newNode = new Node(data);
+        nodes.put(data, newNode);
+        newNode.index = nodeList.size();
+        nodeList.add(newNode);
+        version++;
         return true;
     }
 
@@ -77,12 +107,19 @@ public class BaseGraph<NodeType, EdgeType extends Number> {
         if (!nodes.containsKey(data))
             return false; // throws NPE when data==null
         Node oldNode = nodes.remove(data);
+        // fill the removed node's spot in nodeList with the last node
+        Node lastNode = nodeList.remove(nodeList.size() - 1);
+        if (lastNode != oldNode) {
+            lastNode.index = oldNode.index;
+            nodeList.set(lastNode.index, lastNode);
+        }
         // remove all edges entering neighboring nodes from this one
         for (Edge edge : oldNode.edgesLeaving)
             edge.successor.edgesEntering.remove(edge);
         // remove all edges leaving neighboring nodes toward this one
         for (Edge edge : oldNode.edgesEntering)
             edge.predecessor.edgesLeaving.remove(edge);
+        version++;
         return true;
     }
 
@@ -98,12 +135,27 @@ public class BaseGraph<NodeType, EdgeType extends Number> {
     }
 
     /**
-     * Retrieves a list of all node data from this graph.
+     * Retrieves a list of all node data from this graph.  The list is a
+     * read-only view rather than a copy: get(i) runs in constant time, and the
+     * list reflects nodes that are inserted or removed later on.
      *
      * @return list of all node data
      */
     public List<NodeType> getAllNodes(){
-        return nodes.getKeys();
+        return allNodesView;
+    }
+
+    // Presents the data stored in nodeList without copying it
+    private class AllNodesView extends AbstractList<NodeType> implements RandomAccess {
+        @Override
+        public NodeType get(int index) {
+            return nodeList.get(index).data;
+        }
+
+        @Override
+        public int size() {
+            return nodeList.size();
+        }
     }
 
     /**
@@ -115,6 +167,16 @@ public class BaseGraph<NodeType, EdgeType extends Number> {
         return nodes.getSize();
     }
 
+    /**
+     * Prepares the graph to hold at least expectedNodes nodes, so that bulk
+     * loading a known number of nodes does not repeatedly resize the node map.
+     *
+     * @param expectedNodes the number of nodes the graph should be ready for
+     */
+    public void ensureNodeCapacity(int expectedNodes) {
+        nodes.ensureCapacity(expectedNodes);
+    }
+
     /**
      * Insert a new directed edge with positive edges weight into the graph.
      * Or if an edge between pred and succ already exists, update the data
@@ -136,6 +198,13 @@ public class BaseGraph<NodeType, EdgeType extends Number> {
             // when an edge already exists within the graph, update its weight
             Edge existingEdge = getEdgeHelper(pred, succ);
             existingEdge.data = weight;
+            // the edges stay where they were, so a current snapshot only
+            // needs the new weight patched in instead of being built again
+            CompactGraph<NodeType> snapshot = frozen;
+            if (snapshot != null && snapshot.getVersion() == version) {
+                int edge = snapshot.offsets[predNode.index] + predNode.edgesLeaving.indexOf(existingEdge);
+                frozen = snapshot.withEdgeWeight(edge, weight.doubleValue(), version + 1);
+            }
         } catch (NoSuchElementException e) {
             // otherwise create a new edges
             Edge newEdge = new Edge(weight, predNode, succNode);
@@ -144,6 +213,7 @@ public class BaseGraph<NodeType, EdgeType extends Number> {
             predNode.edgesLeaving.add(newEdge);
             succNode.edgesEntering.add(newEdge);
         }
+        version++;
         return true;
     }
 
@@ -164,6 +234,7 @@ public class BaseGraph<NodeType, EdgeType extends Number> {
             oldEdge.successor.edgesEntering.remove(oldEdge);
             // and decrement the edge count before removing
             this.edgeCount--;
+            version++;
             return true;
         } catch (NoSuchElementException e) {
             // when no such edge exists, return false instead
@@ -212,6 +283,43 @@ public class BaseGraph<NodeType, EdgeType extends Number> {
                 succ.toString());
     }
 
+    /**
+     * Compiles this graph into an immutable CompactGraph, which numbers each
+     * node by its position in getAllNodes() and stores edges in flat arrays.
+     * The snapshot is cached, so repeated calls are free until the graph is
+     * next changed, after which the following call builds a fresh one.  This
+     * graph itself stays fully editable.
+     *
+     * @return a snapshot of the current nodes, edges and weights
+     */
+    public CompactGraph<NodeType> freeze() {
+        CompactGraph<NodeType> snapshot = frozen;
+        if (snapshot != null && snapshot.getVersion() == version)
+            return snapshot;
+
+        int nodeCount = nodeList.size();
+        Object[] data = new Object[nodeCount];
+        int[] offsets = new int[nodeCount + 1];
+        for (int i = 0; i < nodeCount; i++) {
+            Node node = nodeList.get(i);
+            data[i] = node.data;
+            offsets[i + 1] = offsets[i] + node.edgesLeaving.size();
+        }
+        int[] targets = new int[offsets[nodeCount]];
+        double[] weights = new double[offsets[nodeCount]];
+        for (int i = 0; i < nodeCount; i++) {
+            int position = offsets[i];
+            for (Edge edge : nodeList.get(i).edgesLeaving) {
+                targets[position] = edge.successor.index;
+                weights[position] = edge.data.doubleValue();
+                position++;
+            }
+        }
+        snapshot = new CompactGraph<>(data, offsets, targets, weights, version);
+        frozen = snapshot;
+        return snapshot;
+    }
+
     /**
      * Return the number of edges in the graph.
      * 
@@ -0,0 +1,223 @@
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+
+/**
+ * An immutable, array-based copy of a BaseGraph in compressed sparse row
+ * (CSR) form, produced by BaseGraph.freeze().  Nodes are numbered 0..n-1, and
+ * the edges leaving node u are stored at positions offsets[u] through
+ * offsets[u+1]-1 of the targets and weights arrays.  Weights are kept as
+ * primitive doubles, so searches over a CompactGraph scan flat arrays instead
+ * of following Node, Edge and boxed weight references.
+ *
+ * @param NodeType is the data type stored at each graph node
+ */
+public class CompactGraph<NodeType> implements IndexedGraph<NodeType> {
+
+    // data stored at each node, by node index
+    private final Object[] data;
+
+    // node data -> node index, for translating query arguments
+    private final MapADT<NodeType, Integer> indexes;
+
+    // edges leaving node u are targets[offsets[u]..offsets[u+1]-1], weighted
+    // by the matching entries of weights
+    protected final int[] offsets;
+    protected final int[] targets;
+    protected final double[] weights;
+
+    // BaseGraph version this snapshot was built from
+    private final long version;
+
+    // hash of the node data, edges and weights, computed on first use (0
+    // means not computed yet)
+    private volatile long fingerprint = 0;
+
+    // the same edges grouped by the node they enter, built on first use
+    private volatile ReverseEdges reverse = null;
+
+    /**
+     * The edges of a CompactGraph in reverse CSR form, for searches that walk
+     * edges backwards from their successor.  The edges entering node v are at
+     * positions offsets[v] through offsets[v+1]-1 of sources and edges, where
+     * sources holds the predecessor of each edge and edges holds its position
+     * in the forward targets and weights arrays.
+     */
+    protected static class ReverseEdges {
+        protected final int[] offsets;
+        protected final int[] sources;
+        protected final int[] edges;
+
+        private ReverseEdges(int[] offsets, int[] sources, int[] edges) {
+            this.offsets = offsets;
+            this.sources = sources;
+            this.edges = edges;
+        }
+    }
+
+    /**
+     * Creates a snapshot from arrays that have already been laid out in CSR
+     * form.  The arrays are kept rather than copied, so the caller must not
+     * modify them afterwards.
+     *
+     * @param data    the data stored at each node, by node index
+     * @param offsets offsets[u] is where the edges leaving u begin, with one
+     *                extra entry at the end holding the number of edges
+     * @param targets the successor node index of each edge
+     * @param weights the weight of each edge
+     * @param version the version of the graph these arrays were built from
+     */
+    @SuppressWarnings("unchecked")
+    public CompactGraph(Object[] data, int[] offsets, int[] targets, double[] weights,
+                        long version) {
+        this.data = data;
+        this.offsets = offsets;
+        this.targets = targets;
+        this.weights = weights;
+        this.version = version;
+        this.indexes = new OpenAddressingMap<>(Math.max(1, data.length * 2));
+        for (int i = 0; i < data.length; i++)
+            indexes.put((NodeType) data[i], i);
+    }
+
+    // a copy of layout with other weights, sharing everything else with it
+    private CompactGraph(CompactGraph<NodeType> layout, double[] weights, long version) {
+        this.data = layout.data;
+        this.indexes = layout.indexes;
+        this.offsets = layout.offsets;
+        this.targets = layout.targets;
+        this.weights = weights;
+        this.version = version;
+        this.reverse = layout.reverse;
+    }
+
+    /**
+     * Returns a copy of this snapshot in which one edge has a new weight, for
+     * when a graph changes the weight of an existing edge.  Only the weights
+     * are copied: the copy shares this snapshot's nodes, edge layout and
+     * reverse edges, if they have been built, so this is much cheaper than
+     * building a new snapshot with freeze().
+     *
+     * @param edge    the position of the edge in the targets and weights arrays
+     * @param weight  the new weight of that edge
+     * @param version the version of the graph with the new weight
+     * @return the snapshot with the new weight; this one is unchanged
+     */
+    public CompactGraph<NodeType> withEdgeWeight(int edge, double weight, long version) {
+        double[] patched = weights.clone();
+        patched[edge] = weight;
+        return new CompactGraph<>(this, patched, version);
+    }
+
+    /**
+     * @return the number of nodes in this snapshot
+     */
+    public int getNodeCount() {
+        return data.length;
+    }
+
+    /**
+     * @return the number of edges in this snapshot
+     */
+    public int getEdgeCount() {
+        return targets.length;
+    }
+
+    /**
+     * @param edge the position of an edge in the targets and weights arrays
+     * @return the weight of that edge
+     */
+    public double weightAt(int edge) {
+        return weights[edge];
+    }
+
+    /**
+     * @return the version of the graph that this snapshot was built from
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * Returns the edges of this snapshot grouped by the node they enter,
+     * building them the first time they are asked for.  Two threads that
+     * ask at once may both build them, but they build identical arrays.
+     *
+     * @return the reverse edges of this snapshot
+     */
+    protected ReverseEdges reverse() {
+        ReverseEdges result = reverse;
+        if (result != null)
+            return result;
+        int nodeCount = data.length;
+        // count the edges entering each node, then turn the counts into offsets
+        int[] reverseOffsets = new int[nodeCount + 1];
+        for (int target : targets)
+            reverseOffsets[target + 1]++;
+        for (int v = 0; v < nodeCount; v++)
+            reverseOffsets[v + 1] += reverseOffsets[v];
+        int[] next = Arrays.copyOf(reverseOffsets, nodeCount);
+        int[] sources = new int[targets.length];
+        int[] edges = new int[targets.length];
+        for (int u = 0; u < nodeCount; u++) {
+            for (int e = offsets[u]; e < offsets[u + 1]; e++) {
+                int position = next[targets[e]]++;
+                sources[position] = u;
+                edges[position] = e;
+            }
+        }
+        result = new ReverseEdges(reverseOffsets, sources, edges);
+        reverse = result;
+        return result;
+    }
+
+    /**
+     * Returns a hash of this snapshot's node data in index order, its edges
+     * and its weights.  Unlike the version, the fingerprint is the same in
+     * every process that builds the same graph in the same order, so it can
+     * tell whether data saved alongside a graph still matches it.
+     *
+     * @return the fingerprint of this snapshot, which is never 0
+     */
+    public long fingerprint() {
+        long hash = fingerprint;
+        if (hash != 0)
+            return hash;
+        hash = 0xcbf29ce484222325L;
+        for (Object nodeData : data)
+            hash = (hash ^ nodeData.hashCode()) * 0x100000001b3L;
+        for (int offset : offsets)
+            hash = (hash ^ offset) * 0x100000001b3L;
+        for (int target : targets)
+            hash = (hash ^ target) * 0x100000001b3L;
+        for (double weight : weights)
+            hash = (hash ^ Double.doubleToLongBits(weight)) * 0x100000001b3L;
+        if (hash == 0)
+            hash = 1;
+        fingerprint = hash;
+        return hash;
+    }
+
+    /**
+     * Finds the index of the node holding some data.
+     *
+     * @param nodeData the data to look for
+     * @return the index of that node, or -1 if no node holds nodeData
+     */
+    public int indexOf(NodeType nodeData) {
+        return indexes.containsKey(nodeData) ? indexes.get(nodeData) : -1;
+    }
+
+    /**
+     * Retrieves the data stored at a node.
+     *
+     * @param index the index of the node
+     * @return the data stored at that node
+     * @throws NoSuchElementException if there is no node with that index
+     */
+    @SuppressWarnings("unchecked")
+    public NodeType dataAt(int index) {
+        if (index < 0 || index >= data.length)
+            throw new NoSuchElementException("No node with index " + index);
+        return (NodeType) data[index];
+    }
+}
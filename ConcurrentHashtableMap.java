@@ -0,0 +1,301 @@
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+/**
+ * Implements MapADT so that it can be shared by many threads, for instance
+ * when edge weights are updated while route queries keep running.
+ *
+ * Reads never lock.  Each bucket holds a chain of immutable entries, and
+ * writers never modify an entry that is already reachable.  Instead they
+ * publish a new chain head through an AtomicReferenceArray, so a reader
+ * always sees a complete chain, either from before or after a write.
+ *
+ * Writes are striped: bucket i is guarded by lock i % STRIPES, so writers
+ * only contend when they touch buckets that share a stripe.  Resizing takes
+ * every stripe, copies the chains into a larger table, and then publishes
+ * that table through a volatile field.  Writers wait during a resize, but
+ * readers keep using the old table, which stays valid, until the new one is
+ * published.
+ */
+public class ConcurrentHashtableMap<KeyType, ValueType> implements MapADT<KeyType, ValueType> {
+
+    // number of write locks; table lengths are powers of two of at least this
+    private static final int STRIPES = 16;
+
+    // immutable link in a bucket's chain
+    private static final class Entry {
+        final Object key;
+        final Object value;
+        final Entry next;
+
+        Entry(Object key, Object value, Entry next) {
+            this.key = key;
+            this.value = value;
+            this.next = next;
+        }
+    }
+
+    private volatile AtomicReferenceArray<Entry> table;
+    private final ReentrantLock[] locks = new ReentrantLock[STRIPES];
+    private final AtomicInteger size = new AtomicInteger();
+
+    // the table doubles once size exceeds its length * loadFactor
+    private final double loadFactor;
+
+    public ConcurrentHashtableMap(int capacity, double loadFactor) {
+        if (capacity <= 0)
+            throw new IllegalArgumentException("capacity should be greater than 0");
+        if (!(loadFactor > 0))
+            throw new IllegalArgumentException("load factor should be greater than 0");
+        this.loadFactor = loadFactor;
+        for (int i = 0; i < STRIPES; i++)
+            locks[i] = new ReentrantLock();
+        table = new AtomicReferenceArray<>(tableLengthFor(capacity));
+    }
+
+    public ConcurrentHashtableMap(int capacity) {
+        this(capacity, 0.75);
+    }
+
+    public ConcurrentHashtableMap() {
+        this(64);
+    }
+
+    // smallest power of two that is at least capacity and at least STRIPES
+    private static int tableLengthFor(long capacity) {
+        if (capacity >= 1 << 30) return 1 << 30;
+        int length = STRIPES;
+        while (length < capacity)
+            length <<= 1;
+        return length;
+    }
+
+    // spreads the bits of a key's hashCode and masks it to a bucket index
+    private static int indexFor(Object key, int length) {
+        int h = key.hashCode();
+        return (h ^ (h >>> 16)) & (length - 1);
+    }
+
+    // returns the entry for key in the current table, or null; never locks
+    private Entry find(Object key) {
+        AtomicReferenceArray<Entry> current = table;
+        for (Entry e = current.get(indexFor(key, current.length())); e != null; e = e.next)
+            if (key.equals(e.key))
+                return e;
+        return null;
+    }
+
+    // locks the stripe guarding key's bucket in the current table, retrying
+    // when a resize replaces the table between reading it and locking
+    private AtomicReferenceArray<Entry> lockBucketOf(Object key) {
+        while (true) {
+            AtomicReferenceArray<Entry> current = table;
+            ReentrantLock lock = locks[indexFor(key, current.length()) % STRIPES];
+            lock.lock();
+            if (current == table)
+                return current;
+            lock.unlock();
+        }
+    }
+
+    private void unlockBucketOf(Object key, AtomicReferenceArray<Entry> current) {
+        locks[indexFor(key, current.length()) % STRIPES].unlock();
+    }
+
+    @Override
+    public void put(KeyType key, ValueType value) throws IllegalArgumentException {
+        if (key == null)
+            throw new NullPointerException("key cannot be null");
+        AtomicReferenceArray<Entry> current = lockBucketOf(key);
+        int newSize;
+        try {
+            int index = indexFor(key, current.length());
+            Entry head = current.get(index);
+            for (Entry e = head; e != null; e = e.next)
+                if (key.equals(e.key))
+                    throw new IllegalArgumentException("key already maps to a value!");
+            current.set(index, new Entry(key, value, head));
+            newSize = size.incrementAndGet();
+        } finally {
+            unlockBucketOf(key, current);
+        }
+        if (newSize > current.length() * loadFactor)
+            resize(current.length() * 2L);
+    }
+
+    @Override
+    public boolean containsKey(KeyType key) {
+        return find(key) != null;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public ValueType get(KeyType key) throws NoSuchElementException {
+        Entry e = find(key);
+        if (e == null)
+            throw new NoSuchElementException("key does not exist in collection");
+        return (ValueType) e.value;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public ValueType remove(KeyType key) throws NoSuchElementException {
+        AtomicReferenceArray<Entry> current = lockBucketOf(key);
+        try {
+            int index = indexFor(key, current.length());
+            Entry head = current.get(index);
+            Entry target = head;
+            while (target != null && !key.equals(target.key))
+                target = target.next;
+            if (target == null)
+                throw new NoSuchElementException("key is not in collection!");
+            // copy the entries in front of target, so the new chain skips it
+            // without changing any entry that readers may be walking through
+            Entry rebuilt = target.next;
+            for (Entry e = head; e != target; e = e.next)
+                rebuilt = new Entry(e.key, e.value, rebuilt);
+            current.set(index, rebuilt);
+            size.decrementAndGet();
+            return (ValueType) target.value;
+        } finally {
+            unlockBucketOf(key, current);
+        }
+    }
+
+    @Override
+    public void clear() {
+        lockAll();
+        try {
+            table = new AtomicReferenceArray<>(table.length());
+            size.set(0);
+        } finally {
+            unlockAll();
+        }
+    }
+
+    @Override
+    public int getSize() {
+        return size.get();
+    }
+
+    @Override
+    public int getCapacity() {
+        return table.length();
+    }
+
+    @Override
+    public void ensureCapacity(int expectedSize) {
+        resize((long) Math.ceil(expectedSize / loadFactor) + 1);
+    }
+
+    /**
+     * Returns the keys present at some point during this call.  Keys added or
+     * removed concurrently may or may not be included.
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public List<KeyType> getKeys() {
+        List<KeyType> keys = new LinkedList<>();
+        AtomicReferenceArray<Entry> current = table;
+        for (int i = 0; i < current.length(); i++)
+            for (Entry e = current.get(i); e != null; e = e.next)
+                keys.add((KeyType) e.key);
+        return keys;
+    }
+
+    /**
+     * Returns a weakly consistent view of the keys: iterating never locks or
+     * throws, and reflects the table as it was when iteration started.
+     */
+    @Override
+    public Iterable<KeyType> keys() {
+        return () -> new EntryIterator<>(entry -> entry.key);
+    }
+
+    /**
+     * Returns a weakly consistent view of the values, like keys().
+     */
+    @Override
+    public Iterable<ValueType> values() {
+        return () -> new EntryIterator<>(entry -> entry.value);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public void forEach(BiConsumer<? super KeyType, ? super ValueType> action) {
+        AtomicReferenceArray<Entry> current = table;
+        for (int i = 0; i < current.length(); i++)
+            for (Entry e = current.get(i); e != null; e = e.next)
+                action.accept((KeyType) e.key, (ValueType) e.value);
+    }
+
+    // walks the chains of the table that was current when it was created
+    private class EntryIterator<T> implements Iterator<T> {
+        private final AtomicReferenceArray<Entry> snapshot = table;
+        private final Function<Entry, Object> part;
+        private int bucket = 0; // next bucket to look in once next runs out
+        private Entry next = null;
+
+        EntryIterator(Function<Entry, Object> part) {
+            this.part = part;
+        }
+
+        @Override
+        public boolean hasNext() {
+            while (next == null && bucket < snapshot.length())
+                next = snapshot.get(bucket++);
+            return next != null;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public T next() {
+            if (!hasNext())
+                throw new NoSuchElementException("no more entries in this collection");
+            Entry entry = next;
+            next = entry.next;
+            return (T) part.apply(entry);
+        }
+    }
+
+    // grows the table to hold at least capacity buckets, unless another
+    // thread already did so while this one was waiting for the locks
+    private void resize(long capacity) {
+        int length = tableLengthFor(capacity);
+        if (length <= table.length())
+            return;
+        lockAll();
+        try {
+            AtomicReferenceArray<Entry> old = table;
+            if (length <= old.length())
+                return;
+            AtomicReferenceArray<Entry> resized = new AtomicReferenceArray<>(length);
+            for (int i = 0; i < old.length(); i++)
+                for (Entry e = old.get(i); e != null; e = e.next) {
+                    int index = indexFor(e.key, length);
+                    resized.set(index, new Entry(e.key, e.value, resized.get(index)));
+                }
+            table = resized; // readers move to the new table from here on
+        } finally {
+            unlockAll();
+        }
+    }
+
+    // stripes are always locked in index order, so resizes can't deadlock
+    private void lockAll() {
+        for (ReentrantLock lock : locks)
+            lock.lock();
+    }
+
+    private void unlockAll() {
+        for (int i = STRIPES - 1; i >= 0; i--)
+            locks[i].unlock();
+    }
+}
@@ -0,0 +1,74 @@
+import org.junit.jupiter.api.Test;
+
+import java.util.LinkedList;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for ConcurrentHashtableMap, which declares several constructors and
+ * so cannot hold its own JUnit tests.
+ */
+public class ConcurrentHashtableMapTests {
+
+    @Test
+    public void testPutGetRemove() {
+        ConcurrentHashtableMap<String, Integer> map = new ConcurrentHashtableMap<>(2);
+        for (int i = 0; i < 1000; i++)
+            map.put("key" + i, i);
+        assertEquals(1000, map.getSize());
+        assertTrue(map.getCapacity() * 0.75 >= 1000);
+        assertEquals(500, map.get("key500"));
+        assertThrows(IllegalArgumentException.class, () -> map.put("key1", 0));
+        assertEquals(1, map.remove("key1"));
+        assertThrows(NoSuchElementException.class, () -> map.remove("key1"));
+        assertFalse(map.containsKey("key1"));
+        assertEquals(999, map.getKeys().size());
+        int count = 0;
+        for (String key : map.keys()) count++;
+        assertEquals(999, count);
+        map.clear();
+        assertEquals(0, map.getSize());
+        assertFalse(map.containsKey("key2"));
+    }
+
+    @Test
+    public void testConcurrentReadersAndWriters() throws InterruptedException {
+        ConcurrentHashtableMap<Integer, Integer> map = new ConcurrentHashtableMap<>(16);
+        // keys 0..999 stay in the map for the whole test, so readers must never miss them
+        for (int i = 0; i < 1000; i++)
+            map.put(i, i);
+
+        AtomicBoolean failed = new AtomicBoolean(false);
+        AtomicBoolean done = new AtomicBoolean(false);
+        List<Thread> threads = new LinkedList<>();
+        for (int w = 0; w < 4; w++) {
+            final int writer = w;
+            // each writer churns its own range of keys, forcing several resizes
+            threads.add(new Thread(() -> {
+                int base = 10_000 * (writer + 1);
+                for (int round = 0; round < 5; round++) {
+                    for (int i = 0; i < 5000; i++) map.put(base + i, i);
+                    for (int i = 0; i < 5000; i++)
+                        if (map.remove(base + i) != i) failed.set(true);
+                }
+            }));
+        }
+        for (int r = 0; r < 4; r++) {
+            threads.add(new Thread(() -> {
+                while (!done.get())
+                    for (int i = 0; i < 1000; i++)
+                        if (!map.containsKey(i) || map.get(i) != i) failed.set(true);
+            }));
+        }
+        for (Thread thread : threads) thread.start();
+        for (int i = 0; i < 4; i++) threads.get(i).join();
+        done.set(true);
+        for (Thread thread : threads) thread.join();
+
+        assertFalse(failed.get(), "a reader or writer saw an inconsistent map");
+        assertEquals(1000, map.getSize());
+    }
+}
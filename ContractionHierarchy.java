@@ -0,0 +1,562 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * A contraction hierarchy over a snapshot of a graph, for answering many
+ * point to point shortest path queries on a graph that rarely changes.
+ *
+ * Preprocessing contracts the nodes one at a time, least important first.
+ * Contracting a node removes it from the remaining graph, and adds a
+ * shortcut edge between two of its neighbours whenever the path through it
+ * was their only shortest connection.  A node's importance is its edge
+ * difference (shortcuts added, counted twice, minus edges removed) plus the
+ * number of its neighbours that were already contracted, which keeps
+ * contraction spread evenly over the graph.  Every edge and shortcut then leads either up to a
+ * node contracted later or down to one contracted earlier.
+ *
+ * A query runs a bidirectional Dijkstra search that only ever follows edges
+ * upwards: forwards from the start and backwards from the end.  Both meet at
+ * the most important node of the shortest path, after settling only a few
+ * hundred nodes even on large road-like graphs.  Shortcuts on the resulting
+ * path are then unpacked back into the original edges, so queries return the
+ * same paths and costs as DijkstraGraph.
+ *
+ * A hierarchy answers queries about the graph as it was when the hierarchy
+ * was built.  Later changes to that graph need a new hierarchy.
+ *
+ * @param NodeType is the data type stored at each graph node
+ */
+public class ContractionHierarchy<NodeType> {
+
+    // witness searches give up after settling this many nodes, adding a
+    // shortcut that may not be needed rather than spending more time looking;
+    // searches that only estimate a node's importance give up sooner
+    private static final int WITNESS_SETTLE_LIMIT = 100;
+    private static final int SIMULATED_WITNESS_LIMIT = 20;
+
+    // each thread reuses one workspace for each direction of its queries
+    private static final ThreadLocal<SearchWorkspace> FORWARD =
+        ThreadLocal.withInitial(SearchWorkspace::new);
+    private static final ThreadLocal<SearchWorkspace> BACKWARD =
+        ThreadLocal.withInitial(SearchWorkspace::new);
+
+    // the snapshot the hierarchy was built from, for its node indexes
+    private final CompactGraph<NodeType> graph;
+
+    // Inside the hierarchy, nodes are numbered by the order they were
+    // contracted in, so that the few important nodes that queries spend most
+    // of their time on sit next to each other in memory.  rank[v] is the
+    // number of the graph's node v, and nodeAt[r] is the graph's index of
+    // the node numbered r.
+    private final int[] rank;
+    private final int[] nodeAt;
+
+    // edges u->v with v > u, grouped by u: upTargets[e] is v, and
+    // upMiddles[e] is the node a shortcut was added for, or -1 for an edge
+    // of the original graph
+    private final int[] upOffsets;
+    private final int[] upTargets;
+    private final double[] upWeights;
+    private final int[] upMiddles;
+
+    // edges u->v with u > v, grouped by v, so that backward searches also
+    // only ever go upwards: downSources[e] is u
+    private final int[] downOffsets;
+    private final int[] downSources;
+    private final double[] downWeights;
+    private final int[] downMiddles;
+
+    private final int shortcutCount;
+
+    /**
+     * Contracts the current state of a graph into a hierarchy.
+     *
+     * @param source the graph to build the hierarchy for
+     */
+    public ContractionHierarchy(BaseGraph<NodeType, ?> source) {
+        graph = source.freeze();
+        Contraction contraction = new Contraction(graph);
+        contraction.run();
+        rank = contraction.rank;
+        shortcutCount = contraction.shortcuts;
+        int n = graph.getNodeCount();
+        nodeAt = new int[n];
+        for (int v = 0; v < n; v++)
+            nodeAt[rank[v]] = v;
+
+        // each node's lists were frozen when it was contracted, with its
+        // upward edges in out and the downward edges into it in in
+        upOffsets = new int[n + 1];
+        downOffsets = new int[n + 1];
+        for (int r = 0; r < n; r++) {
+            upOffsets[r + 1] = upOffsets[r] + contraction.out[nodeAt[r]].size;
+            downOffsets[r + 1] = downOffsets[r] + contraction.in[nodeAt[r]].size;
+        }
+        upTargets = new int[upOffsets[n]];
+        upWeights = new double[upOffsets[n]];
+        upMiddles = new int[upOffsets[n]];
+        downSources = new int[downOffsets[n]];
+        downWeights = new double[downOffsets[n]];
+        downMiddles = new int[downOffsets[n]];
+        for (int r = 0; r < n; r++) {
+            EdgeList out = contraction.out[nodeAt[r]];
+            for (int i = 0, e = upOffsets[r]; i < out.size; i++, e++) {
+                upTargets[e] = rank[out.nodes[i]];
+                upWeights[e] = out.weights[i];
+                upMiddles[e] = out.middles[i] < 0 ? -1 : rank[out.middles[i]];
+            }
+            EdgeList in = contraction.in[nodeAt[r]];
+            for (int i = 0, e = downOffsets[r]; i < in.size; i++, e++) {
+                downSources[e] = rank[in.nodes[i]];
+                downWeights[e] = in.weights[i];
+                downMiddles[e] = in.middles[i] < 0 ? -1 : rank[in.middles[i]];
+            }
+        }
+    }
+
+    /**
+     * @return the number of shortcut edges added during preprocessing
+     */
+    public int getShortcutCount() {
+        return shortcutCount;
+    }
+
+    /**
+     * @return the snapshot of the graph that this hierarchy answers queries about
+     */
+    public CompactGraph<NodeType> getGraph() {
+        return graph;
+    }
+
+    /**
+     * Returns the nodes along the shortest path from start to end, together
+     * with the weight of each original edge along that path and its total
+     * cost.
+     *
+     * @param start the data item in the starting node for the path
+     * @param end   the data item in the destination node for the path
+     * @return the nodes, edge weights and cost of the shortest path
+     * @throws NoSuchElementException if either the start or end node cannot
+     *                                be found in the graph, or if there is no
+     *                                directed path from start to end
+     */
+    public PathResult<NodeType> shortestPath(NodeType start, NodeType end) {
+        int source = numberOf(start);
+        int target = numberOf(end);
+        int meeting = query(source, target, start, end);
+        SearchWorkspace forward = FORWARD.get();
+        SearchWorkspace backward = BACKWARD.get();
+
+        // the path through the hierarchy, as a list of nodes that may be
+        // joined by shortcuts: start up to meeting, then meeting down to end
+        int hierarchyLength = 0;
+        for (int v = meeting; v >= 0; v = forward.predecessor(v))
+            hierarchyLength++;
+        for (int v = backward.predecessor(meeting); v >= 0; v = backward.predecessor(v))
+            hierarchyLength++;
+        int[] hierarchyPath = new int[hierarchyLength];
+        int i = 0;
+        for (int v = meeting; v >= 0; v = forward.predecessor(v))
+            hierarchyPath[i++] = v;
+        reverse(hierarchyPath, i);
+        for (int v = backward.predecessor(meeting); v >= 0; v = backward.predecessor(v))
+            hierarchyPath[i++] = v;
+
+        // unpack each shortcut into the two edges it stands for, until only
+        // original edges remain; pending holds the hops still to unpack, with
+        // the next one on top
+        IntStack pending = new IntStack();
+        for (int j = hierarchyLength - 1; j > 0; j--)
+            pending.push(hierarchyPath[j - 1], hierarchyPath[j]);
+        IntStack pathNodes = new IntStack();
+        ArrayList<Double> weights = new ArrayList<>();
+        pathNodes.push(source);
+        while (pending.size > 0) {
+            int to = pending.pop();
+            int from = pending.pop();
+            boolean up = to > from;
+            int e = up ? findUp(from, to) : findDown(from, to);
+            int middle = up ? upMiddles[e] : downMiddles[e];
+            if (middle < 0) {
+                pathNodes.push(to);
+                weights.add(up ? upWeights[e] : downWeights[e]);
+            } else {
+                pending.push(middle, to);
+                pending.push(from, middle);
+            }
+        }
+        Object[] data = new Object[pathNodes.size];
+        for (int j = 0; j < pathNodes.size; j++)
+            data[j] = graph.dataAt(nodeAt[pathNodes.values[j]]);
+        @SuppressWarnings("unchecked")
+        List<NodeType> nodeData = (List<NodeType>) Arrays.asList(data);
+        return new PathResult<>(nodeData, weights, forward.cost(meeting) + backward.cost(meeting));
+    }
+
+    /**
+     * Returns the list of data values from nodes along the shortest path
+     * from start to end, as DijkstraGraph.shortestPathData does.
+     *
+     * @param start the data item in the starting node for the path
+     * @param end   the data item in the destination node for the path
+     * @return list of data item from node along this shortest path
+     * @throws NoSuchElementException if either the start or end node cannot
+     *                                be found in the graph, or if there is no
+     *                                directed path from start to end
+     */
+    public List<NodeType> shortestPathData(NodeType start, NodeType end) {
+        return new ArrayList<>(shortestPath(start, end).getNodes());
+    }
+
+    /**
+     * Returns the cost of the shortest path from start to end, without
+     * unpacking the path itself.
+     *
+     * @param start the data item in the starting node for the path
+     * @param end   the data item in the destination node for the path
+     * @return the cost of the shortest path between these nodes
+     * @throws NoSuchElementException if either the start or end node cannot
+     *                                be found in the graph, or if there is no
+     *                                directed path from start to end
+     */
+    public double shortestPathCost(NodeType start, NodeType end) {
+        int meeting = query(numberOf(start), numberOf(end), start, end);
+        return FORWARD.get().cost(meeting) + BACKWARD.get().cost(meeting);
+    }
+
+    /**
+     * Runs the upward bidirectional search from source to target, leaving
+     * its results in this thread's FORWARD and BACKWARD workspaces.
+     *
+     * A node is stalled, and its edges are not relaxed, when some node above
+     * it already offers a cheaper path to it than the one it was settled
+     * with; the search can't have reached it optimally, so nothing it leads
+     * to can be part of the shortest path.
+     *
+     * @return the node where the cheapest forward and backward paths meet
+     * @throws NoSuchElementException if either node is missing or there is
+     *                                no path between them
+     */
+    private int query(int source, int target, NodeType start, NodeType end) {
+        if (source < 0 || target < 0)
+            throw new NoSuchElementException("start or end node not in graph!");
+        int n = graph.getNodeCount();
+        SearchWorkspace forward = FORWARD.get();
+        SearchWorkspace backward = BACKWARD.get();
+        forward.reset(n, 4);
+        backward.reset(n, 4);
+        IndexedDAryHeap forwardQueue = forward.queue();
+        IndexedDAryHeap backwardQueue = backward.queue();
+        forward.reach(source, 0, -1, -1);
+        forwardQueue.insert(source, 0);
+        backward.reach(target, 0, -1, -1);
+        backwardQueue.insert(target, 0);
+
+        int meeting = -1;
+        double best = Double.POSITIVE_INFINITY;
+        while (true) {
+            double forwardMin = forwardQueue.isEmpty() ? Double.POSITIVE_INFINITY
+                    : forwardQueue.getPriority(forwardQueue.peekMin());
+            double backwardMin = backwardQueue.isEmpty() ? Double.POSITIVE_INFINITY
+                    : backwardQueue.getPriority(backwardQueue.peekMin());
+            // each side can only find paths at least as costly as its minimum
+            if (Math.min(forwardMin, backwardMin) >= best)
+                break;
+            if (forwardMin <= backwardMin) {
+                int u = forwardQueue.pollMin();
+                forward.settle(u);
+                double cost = forward.cost(u);
+                if (cost + backward.cost(u) < best) {
+                    best = cost + backward.cost(u);
+                    meeting = u;
+                }
+                if (stalled(forward, u, cost, downOffsets, downSources, downWeights))
+                    continue;
+                for (int e = upOffsets[u]; e < upOffsets[u + 1]; e++) {
+                    int v = upTargets[e];
+                    double newCost = cost + upWeights[e];
+                    if (newCost < forward.cost(v)) {
+                        forward.reach(v, newCost, u, e);
+                        forwardQueue.insertOrDecrease(v, newCost);
+                    }
+                }
+            } else {
+                int u = backwardQueue.pollMin();
+                backward.settle(u);
+                double cost = backward.cost(u);
+                if (cost + forward.cost(u) < best) {
+                    best = cost + forward.cost(u);
+                    meeting = u;
+                }
+                if (stalled(backward, u, cost, upOffsets, upTargets, upWeights))
+                    continue;
+                for (int e = downOffsets[u]; e < downOffsets[u + 1]; e++) {
+                    int v = downSources[e];
+                    double newCost = cost + downWeights[e];
+                    if (newCost < backward.cost(v)) {
+                        backward.reach(v, newCost, u, e);
+                        backwardQueue.insertOrDecrease(v, newCost);
+                    }
+                }
+            }
+        }
+        if (meeting < 0)
+            throw new NoSuchElementException("No path exists between " + start + " and " + end);
+        return meeting;
+    }
+
+    // the number of the node holding nodeData inside the hierarchy, or -1
+    private int numberOf(NodeType nodeData) {
+        int index = graph.indexOf(nodeData);
+        return index < 0 ? -1 : rank[index];
+    }
+
+    // true if one of the higher nodes joined to u by the given edges (which
+    // lead into u for the side being searched) offers a cheaper path to u
+    private static boolean stalled(SearchWorkspace workspace, int u, double cost,
+                                   int[] offsets, int[] others, double[] weights) {
+        for (int e = offsets[u]; e < offsets[u + 1]; e++)
+            if (workspace.cost(others[e]) + weights[e] < cost)
+                return true;
+        return false;
+    }
+
+    // position of the upward edge from -> to, where to is above from
+    private int findUp(int from, int to) {
+        for (int e = upOffsets[from]; e < upOffsets[from + 1]; e++)
+            if (upTargets[e] == to)
+                return e;
+        throw new IllegalStateException("missing edge " + from + " -> " + to);
+    }
+
+    // position of the downward edge from -> to, where from is above to
+    private int findDown(int from, int to) {
+        for (int e = downOffsets[to]; e < downOffsets[to + 1]; e++)
+            if (downSources[e] == from)
+                return e;
+        throw new IllegalStateException("missing edge " + from + " -> " + to);
+    }
+
+    // reverses the first length values of array
+    private static void reverse(int[] array, int length) {
+        for (int i = 0, j = length - 1; i < j; i++, j--) {
+            int swap = array[i];
+            array[i] = array[j];
+            array[j] = swap;
+        }
+    }
+
+    /**
+     * A growable stack of ints.
+     */
+    private static class IntStack {
+        int[] values = new int[16];
+        int size = 0;
+
+        void push(int value) {
+            if (size == values.length)
+                values = Arrays.copyOf(values, size * 2);
+            values[size++] = value;
+        }
+
+        void push(int first, int second) {
+            push(first);
+            push(second);
+        }
+
+        int pop() {
+            return values[--size];
+        }
+    }
+
+    /**
+     * The edges leaving or entering one node while the graph is contracted,
+     * in parallel arrays.  There is at most one edge to each other node: a
+     * cheaper edge replaces a costlier one.
+     */
+    private static class EdgeList {
+        int[] nodes = new int[4];
+        double[] weights = new double[4];
+        int[] middles = new int[4];
+        int size = 0;
+
+        // adds an edge to node, or lowers the weight of the existing one;
+        // returns false if there already was an edge at least as cheap
+        boolean put(int node, double weight, int middle) {
+            for (int i = 0; i < size; i++) {
+                if (nodes[i] == node) {
+                    if (weights[i] <= weight)
+                        return false;
+                    weights[i] = weight;
+                    middles[i] = middle;
+                    return true;
+                }
+            }
+            if (size == nodes.length) {
+                nodes = Arrays.copyOf(nodes, size * 2);
+                weights = Arrays.copyOf(weights, size * 2);
+                middles = Arrays.copyOf(middles, size * 2);
+            }
+            nodes[size] = node;
+            weights[size] = weight;
+            middles[size] = middle;
+            size++;
+            return true;
+        }
+
+        // removes the edge to node, if there is one, by moving the last edge
+        // into its place
+        void remove(int node) {
+            for (int i = 0; i < size; i++) {
+                if (nodes[i] == node) {
+                    size--;
+                    nodes[i] = nodes[size];
+                    weights[i] = weights[size];
+                    middles[i] = middles[size];
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * The state of a graph while it is being contracted.  When a node is
+     * contracted it is removed from its neighbours' edge lists, so that the
+     * searches only ever see the remaining graph, and its own lists are
+     * frozen: they then hold exactly its edges up to later nodes and its
+     * edges down from them.
+     */
+    private static class Contraction {
+        final int n;
+        final EdgeList[] out;
+        final EdgeList[] in;
+        final boolean[] contracted;
+        // number of each node's neighbours that are already contracted
+        final int[] contractedNeighbours;
+        final int[] rank;
+        final SearchWorkspace witness = new SearchWorkspace();
+        int shortcuts = 0;
+
+        Contraction(CompactGraph<?> graph) {
+            n = graph.getNodeCount();
+            out = new EdgeList[n];
+            in = new EdgeList[n];
+            for (int v = 0; v < n; v++) {
+                out[v] = new EdgeList();
+                in[v] = new EdgeList();
+            }
+            for (int u = 0; u < n; u++) {
+                for (int e = graph.offsets[u]; e < graph.offsets[u + 1]; e++) {
+                    int v = graph.targets[e];
+                    if (v != u) { // self loops are never on a shortest path
+                        out[u].put(v, graph.weights[e], -1);
+                        in[v].put(u, graph.weights[e], -1);
+                    }
+                }
+            }
+            contracted = new boolean[n];
+            contractedNeighbours = new int[n];
+            rank = new int[n];
+        }
+
+        // contracts every node, least important first, updating the
+        // importance of a node's neighbours after contracting it; since that
+        // misses other nodes whose witness searches ran through it, a node's
+        // importance is checked again when it reaches the front of the queue
+        void run() {
+            IndexedDAryHeap queue = new IndexedDAryHeap(n, 4);
+            for (int v = 0; v < n; v++)
+                queue.insert(v, importance(v));
+            int next = 0;
+            while (!queue.isEmpty()) {
+                int v = queue.pollMin();
+                double importance = importance(v);
+                if (!queue.isEmpty() && importance > queue.getPriority(queue.peekMin())) {
+                    queue.insert(v, importance);
+                    continue;
+                }
+                contract(v, false);
+                contracted[v] = true;
+                rank[v] = next++;
+                for (int i = 0; i < out[v].size; i++)
+                    in[out[v].nodes[i]].remove(v);
+                for (int i = 0; i < in[v].size; i++)
+                    out[in[v].nodes[i]].remove(v);
+                // the neighbours lost an edge and may have gained shortcuts
+                for (EdgeList edges : new EdgeList[] { out[v], in[v] }) {
+                    for (int i = 0; i < edges.size; i++) {
+                        int u = edges.nodes[i];
+                        if (queue.contains(u)) {
+                            contractedNeighbours[u]++;
+                            queue.changeKey(u, importance(u));
+                        }
+                    }
+                }
+            }
+        }
+
+        // edge difference plus contracted neighbours, where shortcuts count
+        // double so that nodes which only shift edges around go first
+        double importance(int v) {
+            return 2 * contract(v, true) - out[v].size - in[v].size + contractedNeighbours[v];
+        }
+
+        // finds the shortcuts that contracting v needs, adding them unless
+        // simulate is true, and returns how many there are
+        int contract(int v, boolean simulate) {
+            EdgeList into = in[v];
+            EdgeList outOf = out[v];
+            double maxOut = 0;
+            for (int j = 0; j < outOf.size; j++)
+                maxOut = Math.max(maxOut, outOf.weights[j]);
+            int count = 0;
+            for (int i = 0; i < into.size; i++) {
+                int u = into.nodes[i];
+                double toV = into.weights[i];
+                witnessSearch(u, v, toV + maxOut,
+                              simulate ? SIMULATED_WITNESS_LIMIT : WITNESS_SETTLE_LIMIT);
+                for (int j = 0; j < outOf.size; j++) {
+                    int w = outOf.nodes[j];
+                    if (w == u)
+                        continue;
+                    double through = toV + outOf.weights[j];
+                    if (witness.cost(w) <= through)
+                        continue; // a path that avoids v is just as short
+                    count++;
+                    if (!simulate && out[u].put(w, through, v)) {
+                        in[w].put(u, through, v);
+                        shortcuts++;
+                    }
+                }
+            }
+            return count;
+        }
+
+        // Dijkstra from u through the remaining graph without avoid, until
+        // its costs pass limit or it has settled settleLimit nodes
+        void witnessSearch(int u, int avoid, double limit, int settleLimit) {
+            witness.reset(n, 4);
+            IndexedDAryHeap queue = witness.queue();
+            witness.reach(u, 0, -1, -1);
+            queue.insert(u, 0);
+            while (!queue.isEmpty() && witness.getSettledCount() < settleLimit) {
+                int x = queue.pollMin();
+                double cost = witness.cost(x);
+                witness.settle(x);
+                for (int i = 0; i < out[x].size; i++) {
+                    int y = out[x].nodes[i];
+                    if (y == avoid)
+                        continue;
+                    double newCost = cost + out[x].weights[i];
+                    // paths above limit can't be witnesses, so aren't queued
+                    if (newCost <= limit && newCost < witness.cost(y)) {
+                        witness.reach(y, newCost, x, -1);
+                        queue.insertOrDecrease(y, newCost);
+                    }
+                }
+            }
+        }
+    }
+}
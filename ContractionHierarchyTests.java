@@ -0,0 +1,73 @@
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for ContractionHierarchy, checked against DijkstraGraph's searches.
+ */
+public class ContractionHierarchyTests {
+
+    @Test
+    public void testMatchesDijkstra() {
+        Random random = new Random(21);
+        for (int round = 0; round < 10; round++) {
+            DijkstraGraph<Integer, Double> graph = TestGraphs.randomGraph(random, 120, 360, 0, 19);
+            ContractionHierarchy<Integer> hierarchy = new ContractionHierarchy<>(graph);
+            for (int start = 0; start < 120; start += 11) {
+                for (int end = 0; end < 120; end++) {
+                    double expected;
+                    try {
+                        expected = graph.shortestPathCost(start, end);
+                    } catch (NoSuchElementException e) {
+                        final int from = start, to = end;
+                        assertThrows(NoSuchElementException.class, () -> hierarchy.shortestPath(from, to));
+                        continue;
+                    }
+                    assertEquals(expected, hierarchy.shortestPathCost(start, end), 1e-9);
+                    // ties may pick a different path, but it has to be made of
+                    // the graph's own edges and cost the same
+                    PathResult<Integer> path = hierarchy.shortestPath(start, end);
+                    List<Integer> nodes = path.getNodes();
+                    assertEquals(start, nodes.get(0));
+                    assertEquals(end, nodes.get(nodes.size() - 1));
+                    assertEquals(nodes.size() - 1, path.getEdgeWeights().size());
+                    double sum = 0;
+                    for (int i = 1; i < nodes.size(); i++) {
+                        assertEquals(graph.getEdge(nodes.get(i - 1), nodes.get(i)), path.getEdgeWeights().get(i - 1));
+                        sum += path.getEdgeWeights().get(i - 1);
+                    }
+                    assertEquals(expected, sum, 1e-9);
+                    assertEquals(expected, path.getCost(), 1e-9);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testSmallGraph() {
+        DijkstraGraph<String, Double> graph = new DijkstraGraph<>();
+        for (String node : List.of("A", "B", "C", "D", "E", "F", "G", "H"))
+            graph.insertNode(node);
+        graph.insertEdge("A", "C", 2.0);
+        graph.insertEdge("A", "B", 4.0);
+        graph.insertEdge("A", "E", 15.0);
+        graph.insertEdge("B", "E", 10.0);
+        graph.insertEdge("B", "D", 1.0);
+        graph.insertEdge("C", "D", 5.0);
+        graph.insertEdge("D", "E", 3.0);
+        graph.insertEdge("D", "F", 0.0);
+        graph.insertEdge("F", "D", 2.0);
+        graph.insertEdge("F", "H", 4.0);
+        graph.insertEdge("G", "H", 4.0);
+        ContractionHierarchy<String> hierarchy = new ContractionHierarchy<>(graph);
+        assertEquals(List.of("A", "B", "D", "E"), hierarchy.shortestPathData("A", "E"));
+        assertEquals(8.0, hierarchy.shortestPathCost("A", "E"));
+        assertEquals(List.of("A"), hierarchy.shortestPathData("A", "A"));
+        assertThrows(NoSuchElementException.class, () -> hierarchy.shortestPathData("A", "G"));
+        assertThrows(NoSuchElementException.class, () -> hierarchy.shortestPathCost("A", "Z"));
+    }
+}
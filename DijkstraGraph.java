@@ -9,6 +9,16 @@ import static org.junit.jupiter.api.Assertions.*;
 import org.junit.jupiter.api.Test;
 
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.ObjIntConsumer;
 
 
 /**
@@ -54,6 +64,30 @@ public class DijkstraGraph<NodeType, EdgeType extends Number>
     }
 
 
+    // number of children per node in the heap used by searches
+    private int heapArity = 4;
+
+    // how point to point queries search unless a query asks otherwise
+    private SearchMode searchMode = SearchMode.UNIDIRECTIONAL;
+
+    // lower bounds for LANDMARKS searches, and the graph version they match
+    private volatile LandmarkTable<NodeType> landmarks = null;
+    private volatile long landmarksVersion = -1;
+
+    // trees of recently queried sources, which answer further queries from
+    // them without searching, or null when trees are not cached
+    private volatile ShortestPathTreeCache<NodeType> treeCache =
+        new ShortestPathTreeCache<>(DEFAULT_CACHED_TREES, DEFAULT_TREE_CACHE_BYTES);
+    private static final int DEFAULT_CACHED_TREES = 8;
+    private static final long DEFAULT_TREE_CACHE_BYTES = 64L << 20;
+
+    // each thread reuses one workspace for all of its searches, on any graph,
+    // and a second one for the backward half of bidirectional searches
+    protected static final ThreadLocal<SearchWorkspace> WORKSPACE =
+        ThreadLocal.withInitial(SearchWorkspace::new);
+    protected static final ThreadLocal<SearchWorkspace> BACKWARD_WORKSPACE =
+        ThreadLocal.withInitial(SearchWorkspace::new);
+
     /**
      * Constructor that sets the map that the graph uses.
      */
@@ -61,6 +95,143 @@ public class DijkstraGraph<NodeType, EdgeType extends Number>
         super(new HashtableMap<>());
     }
 
+    /**
+     * Creates a graph that uses the given map to find nodes by their data,
+     * such as an OpenAddressingMap.  This is a factory method rather than a
+     * second constructor because JUnit only runs the tests in a class that
+     * declares a single constructor.
+     *
+     * @param map an empty map the graph uses to map a data object to its node
+     * @return an empty graph that finds its nodes through map
+     */
+    public static <NodeType, EdgeType extends Number> DijkstraGraph<NodeType, EdgeType> withMap(
+            MapADT<NodeType, BaseGraph<NodeType, EdgeType>.Node> map) {
+        DijkstraGraph<NodeType, EdgeType> graph = new DijkstraGraph<>();
+        graph.nodes = map;
+        return graph;
+    }
+
+    /**
+     * Sets how many children each node has in the d-ary heap that shortest
+     * path searches use as their priority queue.  Wider heaps trade cheaper
+     * decrease-key operations for more comparisons per poll.
+     *
+     * @param arity the number of children per heap node, at least 2
+     */
+    public void setHeapArity(int arity) {
+        if (arity < 2) {
+            throw new IllegalArgumentException("heap arity should be at least 2");
+        }
+        this.heapArity = arity;
+    }
+
+    /**
+     * Sets how shortestPath, shortestPathData and shortestPathCost search
+     * when they are not given a SearchMode of their own.
+     *
+     * @param mode the search mode to use by default
+     */
+    public void setSearchMode(SearchMode mode) {
+        if (mode == null) {
+            throw new NullPointerException("search mode should not be null");
+        }
+        this.searchMode = mode;
+    }
+
+    /**
+     * @return the search mode used by queries that do not choose their own
+     */
+    public SearchMode getSearchMode() {
+        return searchMode;
+    }
+
+    /**
+     * Replaces the cache of shortest path trees that answers queries from
+     * recently queried sources.  Trees are cached in an 8 tree, 64 MB cache
+     * unless this is called.  Only shortestPathTree and the queries that
+     * search in the default mode use the cache; queries given their own
+     * SearchMode always search in that mode.
+     *
+     * @param cache the cache to use, or null to search for every query
+     */
+    public void setTreeCache(ShortestPathTreeCache<NodeType> cache) {
+        this.treeCache = cache;
+    }
+
+    /**
+     * @return the cache of shortest path trees, whose hit and miss counts
+     *         show how well it's working, or null if there is none
+     */
+    public ShortestPathTreeCache<NodeType> getTreeCache() {
+        return treeCache;
+    }
+
+    /**
+     * Inserts a new directed edge into the graph, or updates the weight of
+     * the edge from pred to succ if there already is one.  Updating a weight
+     * leaves the graph's layout as it was, so the new weight is patched into
+     * the current snapshot, and instead of dropping the cached shortest path
+     * trees, each of them is repaired for the new weight by searching again
+     * only where its shortest paths change.
+     *
+     * @param pred   is the data item contained in the new edge's predecesor node
+     * @param succ   is the data item contained in the new edge's successor node
+     * @param weight is the non-negative data item stored in the new edge
+     * @return true if the edge could be inserted or updated, or
+     *         false if the pred or succ data are not found in any graph nodes
+     */
+    @Override
+    public boolean insertEdge(NodeType pred, NodeType succ, EdgeType weight) {
+        ShortestPathTreeCache<NodeType> cache = treeCache;
+        // trees can only be repaired if they belong to the current snapshot
+        CompactGraph<NodeType> cached = cache == null ? null : cache.getGraph();
+        if (cached == null || cached.getVersion() != version || cache.size() == 0
+                || !containsEdge(pred, succ)) {
+            return super.insertEdge(pred, succ, weight);
+        }
+        CompactGraph<NodeType> before = freeze();
+        double oldWeight = getEdge(pred, succ).doubleValue();
+        super.insertEdge(pred, succ, weight);
+        CompactGraph<NodeType> after = freeze();
+        int from = after.indexOf(pred);
+        int to = after.indexOf(succ);
+        int edge = after.offsets[from];
+        while (after.targets[edge] != to) {
+            edge++;
+        }
+        int changed = edge;
+        SearchWorkspace workspace = WORKSPACE.get();
+        cache.update(before, after,
+                     tree -> tree.withEdgeWeight(after, from, changed, oldWeight, workspace));
+        return true;
+    }
+
+    /**
+     * Sets the landmark table that LANDMARKS searches take their lower bounds
+     * from.  The table only stays in use until the graph is next modified.
+     *
+     * @param table a table built for or loaded against this graph
+     * @throws IllegalArgumentException if table was built for another graph,
+     *                                  or for an earlier state of this one
+     */
+    public void setLandmarks(LandmarkTable<NodeType> table) {
+        CompactGraph<NodeType> graph = freeze();
+        if (table.getFingerprint() != graph.fingerprint()) {
+            throw new IllegalArgumentException("landmark table does not match this graph");
+        }
+        landmarks = table;
+        landmarksVersion = graph.getVersion();
+    }
+
+    // the landmark table, checking that the graph hasn't changed since it was set
+    private LandmarkTable<NodeType> currentLandmarks(CompactGraph<NodeType> graph) {
+        LandmarkTable<NodeType> table = landmarks;
+        if (table == null || landmarksVersion != graph.getVersion()) {
+            throw new IllegalStateException("no landmark table for the current graph");
+        }
+        return table;
+    }
+
     /**
      * This helper method creates a network of SearchNodes while computing the
      * shortest path between the provided start and end locations. The
@@ -69,6 +240,9 @@ public class DijkstraGraph<NodeType, EdgeType extends Number>
      * and the nodes linked together through predecessor references to represent
      * all the nodes along that shortest path (ordered from end to start).
      *
+     * The search itself runs over the CompactGraph returned by freeze(), and
+     * SearchNodes are only created for the nodes along the path it finds.
+     *
      * @param start the data item in the starting node for the path
      * @param end   the data item in the destination node for the path
      * @return SearchNode for the final end node within the shortest path
@@ -81,47 +255,240 @@ public class DijkstraGraph<NodeType, EdgeType extends Number>
             throw new NoSuchElementException("start or end node not in graph!"); //exception
             // checker, check if nodes exist in path
         }
+        CompactGraph<NodeType> graph = freeze();
+        int target = graph.indexOf(end);
+        SearchWorkspace workspace = search(graph, graph.indexOf(start), target);
+        if (!workspace.isSettled(target)) {
+            throw new NoSuchElementException("No path exists between " + start + " and " + end);
+        }
+        return toSearchNodes(target, workspace);
+    }
 
-        HashtableMap<NodeType, SearchNode> shortestPaths = new HashtableMap<>();
-        PriorityQueue<SearchNode> pq = new PriorityQueue<>(); //instantiate a priority queue
-
-        SearchNode startNode = new SearchNode(nodes.get(start), 0, null); // make a SearchNode
-        // object out of start
-        shortestPaths.put(start, startNode); // add the start to the map
-        pq.add(startNode); // add the starting node to the pq
-        while (!pq.isEmpty()) { // loop while pq has nodes
-            SearchNode currentNode = pq.poll(); // first node
-            if (currentNode.node.data.equals(end)) { // if start equals end, terminate
-                return currentNode;
+    /**
+     * Runs Dijkstra's algorithm over a CompactGraph from source until target
+     * is settled or every reachable node has been settled.  The search uses
+     * this thread's SearchWorkspace, which holds its results until the next
+     * search on the same thread, and does not allocate anything itself.
+     *
+     * @param graph  the snapshot to search
+     * @param source index of the node to start from
+     * @param target index of the node to stop at, or -1 to settle every node
+     *               that can be reached from source
+     * @return this thread's workspace, holding the costs and predecessors found
+     */
+    protected SearchWorkspace search(CompactGraph<NodeType> graph, int source, int target) {
+        SearchWorkspace workspace = WORKSPACE.get();
+        workspace.reset(graph.getNodeCount(), heapArity);
+        // each node is queued at most once, and lowered in place when a
+        // cheaper path to it is found
+        IndexedDAryHeap pq = workspace.queue();
+        workspace.reach(source, 0, -1, -1);
+        pq.insert(source, 0);
+        while (!pq.isEmpty()) {
+            int current = pq.pollMin();
+            workspace.settle(current);
+            if (current == target) {
+                break;
             }
-            
-            //loop through all edges leaving the current node
-            for (BaseGraph<NodeType, EdgeType>.Edge edge : currentNode.node.edgesLeaving) {
+            double currentCost = workspace.cost(current);
+            // relax every edge leaving the current node
+            for (int e = graph.offsets[current]; e < graph.offsets[current + 1]; e++) {
+                int successor = graph.targets[e];
+                double newCost = currentCost + graph.weights[e];
+                if (newCost < workspace.cost(successor)) {
+                    workspace.reach(successor, newCost, current, e);
+                    pq.insertOrDecrease(successor, newCost);
+                }
+            }
+        }
+        return workspace;
+    }
 
-                //get the successor node connected by the current edge
-                NodeType successors = edge.successor.data;
+    /**
+     * Runs Dijkstra's algorithm backwards over a CompactGraph, along edges
+     * entering each node, until every node that can reach target has been
+     * settled.  The search uses this thread's BACKWARD_WORKSPACE, where each
+     * node's cost is the cost of its shortest path to target.
+     *
+     * @param graph  the snapshot to search
+     * @param target index of the node that paths should end at
+     * @return this thread's backward workspace, holding the costs found
+     */
+    protected SearchWorkspace reverseSearch(CompactGraph<NodeType> graph, int target) {
+        CompactGraph.ReverseEdges reverse = graph.reverse();
+        SearchWorkspace workspace = BACKWARD_WORKSPACE.get();
+        workspace.reset(graph.getNodeCount(), heapArity);
+        IndexedDAryHeap pq = workspace.queue();
+        workspace.reach(target, 0, -1, -1);
+        pq.insert(target, 0);
+        while (!pq.isEmpty()) {
+            int current = pq.pollMin();
+            workspace.settle(current);
+            double currentCost = workspace.cost(current);
+            for (int r = reverse.offsets[current]; r < reverse.offsets[current + 1]; r++) {
+                int predecessor = reverse.sources[r];
+                int e = reverse.edges[r];
+                double newCost = currentCost + graph.weights[e];
+                if (newCost < workspace.cost(predecessor)) {
+                    workspace.reach(predecessor, newCost, current, e);
+                    pq.insertOrDecrease(predecessor, newCost);
+                }
+            }
+        }
+        return workspace;
+    }
 
-                //calculate the total cost to reach the successor via this edge
-                double cost = currentNode.cost + edge.data.doubleValue();
+    /**
+     * Runs an A* search over a CompactGraph from source until target is
+     * settled, queueing each node by its cost so far plus the landmark
+     * table's lower bound on its remaining cost to target.  Nodes on the far
+     * side of source from target get large bounds and are rarely settled.
+     *
+     * The bounds are consistent for every node that can reach target, so
+     * those nodes are still settled at most once and with their final cost.
+     * Nodes that cannot reach target are never part of the answer, and are
+     * simply not relaxed again once settled.
+     *
+     * @param graph  the snapshot to search
+     * @param source index of the node to start from
+     * @param target index of the node to stop at
+     * @param table  the landmark table for graph
+     * @return this thread's workspace, holding the costs and predecessors found
+     */
+    protected SearchWorkspace landmarkSearch(CompactGraph<NodeType> graph, int source, int target,
+                                             LandmarkTable<NodeType> table) {
+        SearchWorkspace workspace = WORKSPACE.get();
+        workspace.reset(graph.getNodeCount(), heapArity);
+        IndexedDAryHeap pq = workspace.queue();
+        workspace.reach(source, 0, -1, -1);
+        pq.insert(source, table.lowerBound(source, target));
+        while (!pq.isEmpty()) {
+            int current = pq.pollMin();
+            workspace.settle(current);
+            if (current == target) {
+                break;
+            }
+            double currentCost = workspace.cost(current);
+            for (int e = graph.offsets[current]; e < graph.offsets[current + 1]; e++) {
+                int successor = graph.targets[e];
+                double newCost = currentCost + graph.weights[e];
+                if (newCost < workspace.cost(successor) && !workspace.isSettled(successor)) {
+                    workspace.reach(successor, newCost, current, e);
+                    pq.insertOrDecrease(successor, newCost + table.lowerBound(successor, target));
+                }
+            }
+        }
+        return workspace;
+    }
 
-                if (!shortestPaths.containsKey(successors) || cost < shortestPaths.get(successors).cost) {
-                    //check if this path to the successor is shorter than any previously found path
+    /**
+     * Runs a bidirectional Dijkstra search over a CompactGraph: a forward
+     * search from source in this thread's WORKSPACE, and a backward search
+     * from target along reversed edges in its BACKWARD_WORKSPACE.  Each step
+     * settles one node on whichever side has the cheaper node queued.
+     *
+     * Whenever an edge is relaxed into a node that the other side has also
+     * reached, the cost through that node is a candidate for the shortest
+     * path.  The search stops once the cheapest queued costs of both sides
+     * add up to at least the best candidate, since any path through an
+     * unsettled node would then cost at least as much.  In the backward
+     * workspace, a node's predecessor is the next node towards target and
+     * its predecessor edge is the forward edge leading there.
+     *
+     * @param graph  the snapshot to search
+     * @param source index of the node to start from
+     * @param target index of the node to reach
+     * @return index of a node on the shortest path where both searches met,
+     *         or -1 if there is no path from source to target
+     */
+    protected int bidirectionalSearch(CompactGraph<NodeType> graph, int source, int target) {
+        CompactGraph.ReverseEdges reverse = graph.reverse();
+        SearchWorkspace forward = WORKSPACE.get();
+        SearchWorkspace backward = BACKWARD_WORKSPACE.get();
+        forward.reset(graph.getNodeCount(), heapArity);
+        backward.reset(graph.getNodeCount(), heapArity);
+        IndexedDAryHeap forwardQueue = forward.queue();
+        IndexedDAryHeap backwardQueue = backward.queue();
+        forward.reach(source, 0, -1, -1);
+        forwardQueue.insert(source, 0);
+        backward.reach(target, 0, -1, -1);
+        backwardQueue.insert(target, 0);
 
-                    if (shortestPaths.containsKey(successors)) {
-                        shortestPaths.remove(successors); //if a shorter path exists, remove the
-                        // old path from the shortestPaths map
+        // best path found so far goes through meeting and costs best
+        int meeting = source == target ? source : -1;
+        double best = source == target ? 0 : Double.POSITIVE_INFINITY;
+        while (true) {
+            double forwardMin = forwardQueue.isEmpty() ? Double.POSITIVE_INFINITY
+                    : forwardQueue.getPriority(forwardQueue.peekMin());
+            double backwardMin = backwardQueue.isEmpty() ? Double.POSITIVE_INFINITY
+                    : backwardQueue.getPriority(backwardQueue.peekMin());
+            if (forwardMin + backwardMin >= best) {
+                break; // also covers both queues being empty
+            }
+            if (forwardMin <= backwardMin) {
+                int current = forwardQueue.pollMin();
+                forward.settle(current);
+                double currentCost = forward.cost(current);
+                for (int e = graph.offsets[current]; e < graph.offsets[current + 1]; e++) {
+                    int successor = graph.targets[e];
+                    double newCost = currentCost + graph.weights[e];
+                    if (newCost < forward.cost(successor)) {
+                        forward.reach(successor, newCost, current, e);
+                        forwardQueue.insertOrDecrease(successor, newCost);
+                    }
+                    double through = forward.cost(successor) + backward.cost(successor);
+                    if (through < best) {
+                        best = through;
+                        meeting = successor;
+                    }
+                }
+            } else {
+                int current = backwardQueue.pollMin();
+                backward.settle(current);
+                double currentCost = backward.cost(current);
+                for (int r = reverse.offsets[current]; r < reverse.offsets[current + 1]; r++) {
+                    int predecessor = reverse.sources[r];
+                    int e = reverse.edges[r];
+                    double newCost = currentCost + graph.weights[e];
+                    if (newCost < backward.cost(predecessor)) {
+                        backward.reach(predecessor, newCost, current, e);
+                        backwardQueue.insertOrDecrease(predecessor, newCost);
+                    }
+                    double through = forward.cost(predecessor) + backward.cost(predecessor);
+                    if (through < best) {
+                        best = through;
+                        meeting = predecessor;
                     }
-                    SearchNode nextNode = new SearchNode(edge.successor, cost, currentNode);
-
-                    //create a new SearchNode for the successor with the updated cost and predecessor
-
-                    shortestPaths.put(successors, nextNode); // add this updated path to the map
-
-                    pq.add(nextNode);  // add new SearchNode to the priority queue
                 }
             }
         }
-        throw new NoSuchElementException("No path exists between " + start + " and " + end);
+        return meeting;
+    }
+
+    /**
+     * Builds the chain of SearchNodes leading to a node from the predecessors
+     * recorded by a search.  Node indexes are positions in nodeList.
+     *
+     * @param end       index of the last node on the path
+     * @param workspace the workspace holding the results of that search
+     * @return SearchNode for end, linked back to the start of the path
+     */
+    private SearchNode toSearchNodes(int end, SearchWorkspace workspace) {
+        // collect the path's node indexes from end back to start
+        int length = 0;
+        for (int node = end; node >= 0; node = workspace.predecessor(node)) {
+            length++;
+        }
+        int[] path = new int[length];
+        for (int node = end, i = length - 1; node >= 0; node = workspace.predecessor(node), i--) {
+            path[i] = node;
+        }
+        // then link SearchNodes together from start to end
+        SearchNode searchNode = null;
+        for (int node : path) {
+            searchNode = new SearchNode(nodeList.get(node), workspace.cost(node), searchNode);
+        }
+        return searchNode;
     }
 
     /**
@@ -137,60 +504,140 @@ public class DijkstraGraph<NodeType, EdgeType extends Number>
      * @return list of data item from node along this shortest path
      */
     public List<NodeType> shortestPathData(NodeType start, NodeType end) {
-        // implement in step 5.4
-        if (!containsNode(start) || !containsNode(end)){
-            throw new NoSuchElementException("start or end node not in graph!");
-        }
-        List<SearchNode> nodeList = pathTaken(start, end);
-        return pathConverter(nodeList);
+        return new ArrayList<>(shortestPath(start, end).getNodes());
 	}
 
     /**
-     * Constructs a list of SearchNodes representing the path from the start node to the end node
-     * as determined by Dijkstra's shortest path algorithm.
+     * Returns the list of data values from nodes along the shortest path
+     * from start to end, like shortestPathData(start, end), but searching
+     * in the given mode instead of this graph's default one.
+     *
+     * @param start the data item in the starting node for the path
+     * @param end   the data item in the destination node for the path
+     * @param mode  how to search for the path
+     * @return list of data item from node along this shortest path
+     */
+    public List<NodeType> shortestPathData(NodeType start, NodeType end, SearchMode mode) {
+        return new ArrayList<>(shortestPath(start, end, mode).getNodes());
+    }
+
+    /**
+     * Returns the nodes along the shortest path from start to end, together
+     * with the weight of each edge along that path and its total cost.  All
+     * of these come from a single run of Dijkstra's shortest path algorithm,
+     * or from the cached shortest path tree of start when it has one.
      *
-     * This method uses the result from the `computeShortestPath` method to build the path by
-     * following each SearchNode's predecessor references. The resulting list begins with the
-     * start node and ends with the end node, in the order of traversal.
+     * @param start the data item in the starting node for the path
+     * @param end   the data item in the destination node for the path
+     * @return the nodes, edge weights and cost of the shortest path
+     * @throws NoSuchElementException if either the start or end node cannot
+     *                                be found in the graph, or if there is no
+     *                                directed path from start to end
+     */
+    public PathResult<NodeType> shortestPath(NodeType start, NodeType end) {
+        ShortestPathTree<NodeType> tree = reusableTree(start, end);
+        return tree != null ? tree.getPath(end) : shortestPath(start, end, searchMode);
+    }
+
+    /**
+     * Returns the nodes, edge weights and total cost of the shortest path
+     * from start to end, like shortestPath(start, end), but searching in the
+     * given mode instead of this graph's default one.
      *
      * @param start the data item in the starting node for the path
      * @param end   the data item in the destination node for the path
-     * @return a list of SearchNodes representing the shortest path from the start to the end node
-     * @throws NoSuchElementException if there is no path from start to end,
-     *                                or if either start or end node is not present in the graph
+     * @param mode  how to search for the path
+     * @return the nodes, edge weights and cost of the shortest path
+     * @throws NoSuchElementException if either the start or end node cannot
+     *                                be found in the graph, or if there is no
+     *                                directed path from start to end
      */
-    private List<SearchNode> pathTaken(NodeType start, NodeType end){
-        SearchNode result = computeShortestPath(start, end); // store SearchNode result of algo
-        SearchNode variableResult = computeShortestPath(start, end); //variable result for while
-        // loop
-        SearchNode startNode = new SearchNode(nodes.get(start), 0, null);
-        List<SearchNode> list = new LinkedList<>(); // create a list to store the path
-        list.add(startNode); //add the starting node
-        while (variableResult.predecessor != null && variableResult.predecessor.node.data != start){
-            // make sure the predecessor isn't null, and also make sure we don't add the start node
-            list.add(1,variableResult.predecessor); //add after start node
-            variableResult = variableResult.predecessor; // update reference to result
-        }
-        list.add(list.size(), result); // add the end node to end
-        return list;
+    public PathResult<NodeType> shortestPath(NodeType start, NodeType end, SearchMode mode) {
+        if (!containsNode(start) || !containsNode(end)){
+            throw new NoSuchElementException("start or end node not in graph!");
+        }
+        CompactGraph<NodeType> graph = freeze();
+        int meeting = findPath(graph, graph.indexOf(start), graph.indexOf(end), mode);
+        if (meeting < 0) {
+            throw new NoSuchElementException("No path exists between " + start + " and " + end);
+        }
+        return toPathResult(graph, meeting, WORKSPACE.get(),
+            mode == SearchMode.BIDIRECTIONAL ? BACKWARD_WORKSPACE.get() : null);
     }
 
     /**
-     * Converts a list of SearchNode objects into a list of their corresponding NodeType data.
+     * Searches for the shortest path from source to target in some mode.
+     * The forward part of the path is left in this thread's WORKSPACE, and
+     * in BIDIRECTIONAL mode the rest of it is left in BACKWARD_WORKSPACE.
      *
-     * This method iterates over a list of SearchNodes and extracts the data stored in each node,
-     * returning a list of NodeType values that represent the path.
+     * @param graph  the snapshot to search
+     * @param source index of the node to start from
+     * @param target index of the node to reach
+     * @param mode   how to search
+     * @return index of the node where the forward part of the path ends,
+     *         which is target unless mode is BIDIRECTIONAL, or -1 if there
+     *         is no path from source to target
+     * @throws IllegalStateException in LANDMARKS mode, if there is no
+     *                               landmark table for the current graph
+     */
+    private int findPath(CompactGraph<NodeType> graph, int source, int target, SearchMode mode) {
+        if (mode == SearchMode.BIDIRECTIONAL) {
+            return bidirectionalSearch(graph, source, target);
+        }
+        SearchWorkspace workspace = mode == SearchMode.LANDMARKS
+            ? landmarkSearch(graph, source, target, currentLandmarks(graph))
+            : search(graph, source, target);
+        return workspace.isSettled(target) ? target : -1;
+    }
+
+    /**
+     * Reads a path out of the predecessors recorded by a search.  The path
+     * runs from the forward search's source to meeting, and then, when there
+     * is a backward search, on from meeting to that search's target.
      *
-     * @param nodeList the list of SearchNode objects to be converted
-     * @return a list of NodeType values representing the data in each SearchNode along the path
+     * @param graph    the snapshot that was searched
+     * @param meeting  index of the last node of the forward part of the path
+     * @param forward  the workspace holding the results of the forward search
+     * @param backward the workspace holding the results of the backward
+     *                 search, or null if there was none
+     * @return the nodes, edge weights and cost of the path
      */
-    private List<NodeType> pathConverter(List<SearchNode> nodeList){
-        List<NodeType> pathData = new LinkedList<>(); //convert SearchNode list into a
-        // NodeType LinkedList
-        for (SearchNode node : nodeList){ //traverse through
-            pathData.add(node.node.data); // add the node.data to the NodeType list
+    private PathResult<NodeType> toPathResult(CompactGraph<NodeType> graph, int meeting,
+                                              SearchWorkspace forward, SearchWorkspace backward) {
+        int forwardLength = 0;
+        for (int node = meeting; node >= 0; node = forward.predecessor(node)) {
+            forwardLength++;
         }
-        return pathData;
+        int backwardLength = 0;
+        if (backward != null) {
+            for (int node = backward.predecessor(meeting); node >= 0; node = backward.predecessor(node)) {
+                backwardLength++;
+            }
+        }
+        int length = forwardLength + backwardLength;
+        Object[] pathNodes = new Object[length];
+        Double[] weights = new Double[length - 1];
+        // fill the forward part from the back, since predecessors lead to the start
+        int i = forwardLength - 1;
+        for (int node = meeting; node >= 0; node = forward.predecessor(node), i--) {
+            pathNodes[i] = graph.dataAt(node);
+            if (i > 0) {
+                weights[i - 1] = graph.weights[forward.predecessorEdge(node)];
+            }
+        }
+        // and the backward part from the front, since its predecessors lead to the end
+        double cost = forward.cost(meeting);
+        if (backward != null) {
+            i = forwardLength - 1;
+            for (int node = meeting; backward.predecessor(node) >= 0; node = backward.predecessor(node)) {
+                weights[i] = graph.weights[backward.predecessorEdge(node)];
+                pathNodes[++i] = graph.dataAt(backward.predecessor(node));
+            }
+            cost += backward.cost(meeting);
+        }
+        @SuppressWarnings("unchecked")
+        List<NodeType> nodeData = (List<NodeType>) Arrays.asList(pathNodes);
+        return new PathResult<>(nodeData, Arrays.asList(weights), cost);
     }
 
     /**
@@ -204,10 +651,180 @@ public class DijkstraGraph<NodeType, EdgeType extends Number>
      * @return the cost of the shortest path between these nodes
      */
     public double shortestPathCost(NodeType start, NodeType end) {
-        SearchNode result = computeShortestPath(start, end); // call dijkstras algo implemented
-        // in computeShortestPath()
+        ShortestPathTree<NodeType> tree = reusableTree(start, end);
+        return tree != null ? tree.getCost(end) : shortestPathCost(start, end, searchMode);
+    }
+
+    /**
+     * Finds the cached tree rooted at start, building and caching it when
+     * start has been queried from recently enough that it's likely to be
+     * queried from again.
+     *
+     * @param start the data item in the starting node for a path
+     * @param end   the data item in the destination node for that path
+     * @return the shortest path tree rooted at start, or null if the path
+     *         should be searched for instead (including when either node is
+     *         missing, so that the search reports it)
+     */
+    private ShortestPathTree<NodeType> reusableTree(NodeType start, NodeType end) {
+        ShortestPathTreeCache<NodeType> cache = treeCache;
+        if (cache == null || !containsNode(start) || !containsNode(end)) {
+            return null;
+        }
+        CompactGraph<NodeType> graph = freeze();
+        int source = graph.indexOf(start);
+        ShortestPathTree<NodeType> tree = cache.get(graph, source);
+        if (tree == null && cache.isRepeated(source)) {
+            tree = ShortestPathTree.fromSearch(graph, source, search(graph, source, -1));
+            cache.put(graph, source, tree);
+        }
+        return tree;
+    }
+
+    /**
+     * Returns the cost of the shortest path from start to end, like
+     * shortestPathCost(start, end), but searching in the given mode instead
+     * of this graph's default one.
+     *
+     * @param start the data item in the starting node for the path
+     * @param end   the data item in the destination node for the path
+     * @param mode  how to search for the path
+     * @return the cost of the shortest path between these nodes
+     */
+    public double shortestPathCost(NodeType start, NodeType end, SearchMode mode) {
+        if (!containsNode(start) || !containsNode(end)){
+            throw new NoSuchElementException("start or end node not in graph!");
+        }
+        // read the cost straight out of the search, without building the path
+        CompactGraph<NodeType> graph = freeze();
+        int meeting = findPath(graph, graph.indexOf(start), graph.indexOf(end), mode);
+        if (meeting < 0) {
+            throw new NoSuchElementException("No path exists between " + start + " and " + end);
+        }
+        double cost = WORKSPACE.get().cost(meeting);
+        if (mode == SearchMode.BIDIRECTIONAL) {
+            cost += BACKWARD_WORKSPACE.get().cost(meeting);
+        }
+        return cost;
+    }
 
-        return result.cost; //result contains the total path cost
+    /**
+     * Runs Dijkstra's algorithm once from start until every reachable node
+     * is settled, and returns the cost, path and hop count to all of them.
+     * Use this instead of calling shortestPath for each destination when
+     * many paths leave from the same start.  The tree is kept in the tree
+     * cache, so later queries from start don't search again.
+     *
+     * @param start the data item in the node that all paths start from
+     * @return the shortest path tree rooted at start
+     * @throws NoSuchElementException if start cannot be found in the graph
+     */
+    public ShortestPathTree<NodeType> shortestPathTree(NodeType start) {
+        if (!containsNode(start)){
+            throw new NoSuchElementException("start node not in graph!");
+        }
+        CompactGraph<NodeType> graph = freeze();
+        int source = graph.indexOf(start);
+        ShortestPathTreeCache<NodeType> cache = treeCache;
+        ShortestPathTree<NodeType> tree = cache == null ? null : cache.get(graph, source);
+        if (tree == null) {
+            tree = ShortestPathTree.fromSearch(graph, source, search(graph, source, -1));
+            if (cache != null) {
+                cache.put(graph, source, tree);
+            }
+        }
+        return tree;
+    }
+
+    /**
+     * Computes the shortest path tree from each of many starts, running the
+     * searches in parallel on pool's threads, and hands each tree to
+     * callback as soon as it is ready instead of collecting them all.
+     *
+     * @param starts   the data items in the nodes to search from
+     * @param pool     the pool to run the searches in, using all of its threads
+     * @param callback receives each tree; it is called from several threads
+     *                 at once, so it must be thread-safe
+     * @throws NoSuchElementException if any start cannot be found in the graph,
+     *                                in which case no search is run
+     */
+    public void shortestPathTrees(Collection<NodeType> starts, ForkJoinPool pool,
+                                  Consumer<ShortestPathTree<NodeType>> callback) {
+        shortestPathTrees(starts, pool, pool.getParallelism(), callback);
+    }
+
+    /**
+     * Computes the shortest path tree from each of many starts, running the
+     * searches as parallelism tasks on executor, and hands each tree to
+     * callback as soon as it is ready instead of collecting them all.  Any
+     * executor works, including one that starts a virtual thread per task.
+     * Returns once every tree has been handed to callback.
+     *
+     * @param starts      the data items in the nodes to search from
+     * @param executor    the executor to run the searches on
+     * @param parallelism the number of tasks to split the searches between
+     * @param callback    receives each tree; it is called from several threads
+     *                    at once, so it must be thread-safe
+     * @throws NoSuchElementException if any start cannot be found in the graph,
+     *                                in which case no search is run
+     */
+    public void shortestPathTrees(Collection<NodeType> starts, Executor executor, int parallelism,
+                                  Consumer<ShortestPathTree<NodeType>> callback) {
+        CompactGraph<NodeType> graph = freeze();
+        int[] sources = new int[starts.size()];
+        int i = 0;
+        for (NodeType start : starts) {
+            sources[i] = graph.indexOf(start);
+            if (sources[i++] < 0) {
+                throw new NoSuchElementException(start + " is not in the graph");
+            }
+        }
+        searchEach(graph, sources, executor, parallelism, (workspace, source) ->
+            callback.accept(ShortestPathTree.fromSearch(graph, source, workspace)));
+    }
+
+    /**
+     * Runs a search from every node in sources that settles every node it can
+     * reach, split between parallelism tasks on executor.  Each task claims
+     * the next unsearched source until none are left, and searches in its
+     * thread's own workspace, which is handed to visit along with the source
+     * before that thread's next search.  If visit throws, the remaining
+     * sources are skipped and the exception is rethrown here.
+     *
+     * @param graph       the snapshot to search
+     * @param sources     index of each node to search from
+     * @param executor    the executor to run the tasks on
+     * @param parallelism the number of tasks to run, at least 1
+     * @param visit       reads the results of each search out of the workspace
+     */
+    protected void searchEach(CompactGraph<NodeType> graph, int[] sources, Executor executor,
+                              int parallelism, ObjIntConsumer<SearchWorkspace> visit) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("parallelism should be at least 1");
+        }
+        AtomicInteger next = new AtomicInteger();
+        CompletableFuture<?>[] tasks = new CompletableFuture<?>[Math.min(parallelism, sources.length)];
+        for (int t = 0; t < tasks.length; t++) {
+            tasks[t] = CompletableFuture.runAsync(() -> {
+                try {
+                    for (int i = next.getAndIncrement(); i < sources.length; i = next.getAndIncrement()) {
+                        visit.accept(search(graph, sources[i], -1), sources[i]);
+                    }
+                } catch (RuntimeException | Error e) {
+                    next.set(sources.length); // the other tasks stop claiming sources
+                    throw e;
+                }
+            }, executor);
+        }
+        try {
+            CompletableFuture.allOf(tasks).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException)
+                throw (RuntimeException) e.getCause();
+            if (e.getCause() instanceof Error)
+                throw (Error) e.getCause();
+            throw e;
+        }
     }
 
     @Test
@@ -309,6 +926,210 @@ public class DijkstraGraph<NodeType, EdgeType extends Number>
 
     }
 
+    @Test
+    public void testShortestPathResult(){
+        DijkstraGraph<String, Double> graph = new DijkstraGraph<>();
+        graph.insertNode("A");
+        graph.insertNode("B");
+        graph.insertNode("C");
+        graph.insertNode("D");
+        graph.insertEdge("A", "B", 1.5);
+        graph.insertEdge("B", "C", 0.0);
+        graph.insertEdge("C", "D", 2.0);
+        graph.insertEdge("A", "D", 9.0);
+
+        PathResult<String> path = graph.shortestPath("A", "D");
+        assertEquals(List.of("A", "B", "C", "D"), path.getNodes());
+        assertEquals(List.of(1.5, 0.0, 2.0), path.getEdgeWeights());
+        assertEquals(3.5, path.getCost());
+
+        PathResult<String> self = graph.shortestPath("B", "B");
+        assertEquals(List.of("B"), self.getNodes());
+        assertTrue(self.getEdgeWeights().isEmpty());
+        assertEquals(0.0, self.getCost());
+        assertThrows(NoSuchElementException.class, () -> graph.shortestPath("D", "A"));
+    }
+
+    @Test
+    public void testShortestPathTree(){
+        DijkstraGraph<String, Double> graph = new DijkstraGraph<>();
+        for (String node : List.of("A", "B", "C", "D", "E", "F", "G", "H")) {
+            graph.insertNode(node);
+        }
+        graph.insertEdge("A", "C", 2.0);
+        graph.insertEdge("A", "B", 4.0);
+        graph.insertEdge("A", "E", 15.0);
+        graph.insertEdge("B", "E", 10.0);
+        graph.insertEdge("B", "D", 1.0);
+        graph.insertEdge("C", "D", 5.0);
+        graph.insertEdge("D", "E", 3.0);
+        graph.insertEdge("D", "F", 0.0);
+        graph.insertEdge("F", "D", 2.0);
+        graph.insertEdge("F", "H", 4.0);
+        graph.insertEdge("G", "H", 4.0);
+
+        ShortestPathTree<String> tree = graph.shortestPathTree("A");
+        assertEquals("A", tree.getSource());
+        assertEquals(7, tree.getReachableCount()); // everything but G
+        assertFalse(tree.isReachable("G"));
+        assertThrows(NoSuchElementException.class, () -> tree.getPath("G"));
+        assertEquals(0, tree.getHops("A"));
+        assertEquals(4, tree.getHops("H"));
+        // every path in the tree matches the one found by a point to point search
+        for (String node : List.of("A", "B", "C", "D", "E", "F", "H")) {
+            PathResult<String> expected = graph.shortestPath("A", node);
+            PathResult<String> actual = tree.getPath(node);
+            assertEquals(expected.getNodes(), actual.getNodes());
+            assertEquals(expected.getEdgeWeights(), actual.getEdgeWeights());
+            assertEquals(expected.getCost(), tree.getCost(node));
+            assertEquals(expected.getNodes().size() - 1, tree.getHops(node));
+        }
+        assertThrows(NoSuchElementException.class, () -> graph.shortestPathTree("Z"));
+    }
+
+    @Test
+    public void testAllNodesView(){
+        DijkstraGraph<String, Double> graph = new DijkstraGraph<>();
+        List<String> allNodes = graph.getAllNodes();
+        graph.insertNode("A");
+        graph.insertNode("B");
+        graph.insertNode("C");
+        graph.insertEdge("A", "C", 1.0);
+
+        assertEquals(3, allNodes.size()); // the view reflects later inserts
+        assertTrue(allNodes instanceof RandomAccess);
+        assertThrows(UnsupportedOperationException.class, () -> allNodes.add("D"));
+
+        graph.removeNode("A");
+        assertEquals(2, allNodes.size());
+        assertTrue(allNodes.containsAll(List.of("B", "C")));
+        graph.insertNode("A");
+        assertEquals(List.of("C", "B", "A"), allNodes);
+    }
+
+    @Test
+    public void testFreeze(){
+        DijkstraGraph<String, Double> graph = new DijkstraGraph<>();
+        graph.insertNode("A");
+        graph.insertNode("B");
+        graph.insertNode("C");
+        graph.insertEdge("A", "B", 1.0);
+        graph.insertEdge("A", "C", 4.0);
+        graph.insertEdge("B", "C", 2.0);
+
+        CompactGraph<String> snapshot = graph.freeze();
+        assertSame(snapshot, graph.freeze(), "unchanged graph reuses its snapshot");
+        assertEquals(3, snapshot.getNodeCount());
+        assertEquals(3, snapshot.getEdgeCount());
+        assertEquals("B", snapshot.dataAt(snapshot.indexOf("B")));
+        assertEquals(-1, snapshot.indexOf("D"));
+        assertEquals(3.0, graph.shortestPathCost("A", "C"));
+
+        // edits go to the mutable graph, and the next query sees them
+        graph.insertEdge("A", "C", 2.5);
+        assertNotSame(snapshot, graph.freeze());
+        assertEquals(2.5, graph.shortestPathCost("A", "C"));
+        graph.removeEdge("A", "C");
+        assertEquals(List.of("A", "B", "C"), graph.shortestPathData("A", "C"));
+        assertEquals(3, snapshot.getEdgeCount(), "old snapshots are never modified");
+    }
+
+    @Test
+    public void testHeapArity(){
+        DijkstraGraph<Integer, Double> graph = TestGraphs.randomGraph(400, 200, 1000);
+        double[] expected = new double[200];
+        // every arity has to find paths of the same cost
+        for (int arity : new int[] {2, 3, 4, 8}) {
+            graph.setHeapArity(arity);
+            for (int end = 0; end < 200; end++) {
+                double cost;
+                try {
+                    cost = graph.shortestPathCost(0, end);
+                } catch (NoSuchElementException e) {
+                    cost = Double.POSITIVE_INFINITY;
+                }
+                if (arity == 2) {
+                    expected[end] = cost;
+                }
+                assertEquals(expected[end], cost);
+            }
+        }
+        assertThrows(IllegalArgumentException.class, () -> graph.setHeapArity(1));
+    }
+
+    @Test
+    public void testBidirectional(){
+        Random random = new Random(12);
+        for (int round = 0; round < 20; round++) {
+            DijkstraGraph<Integer, Double> graph = TestGraphs.randomGraph(random, 60, 150, 0, 9);
+            for (int start = 0; start < 60; start += 7) {
+                for (int end = 0; end < 60; end++) {
+                    PathResult<Integer> expected;
+                    try {
+                        expected = graph.shortestPath(start, end, SearchMode.UNIDIRECTIONAL);
+                    } catch (NoSuchElementException e) {
+                        final int from = start, to = end;
+                        assertThrows(NoSuchElementException.class,
+                            () -> graph.shortestPath(from, to, SearchMode.BIDIRECTIONAL));
+                        continue;
+                    }
+                    PathResult<Integer> actual = graph.shortestPath(start, end, SearchMode.BIDIRECTIONAL);
+                    assertEquals(expected.getCost(), actual.getCost(), 1e-9);
+                    assertEquals(expected.getCost(), graph.shortestPathCost(start, end, SearchMode.BIDIRECTIONAL), 1e-9);
+                    // the path may differ when there are ties, but it has to be
+                    // a real path from start to end with the reported weights
+                    List<Integer> nodes = actual.getNodes();
+                    assertEquals(start, nodes.get(0));
+                    assertEquals(end, nodes.get(nodes.size() - 1));
+                    double sum = 0;
+                    for (int i = 1; i < nodes.size(); i++) {
+                        assertEquals(graph.getEdge(nodes.get(i - 1), nodes.get(i)), actual.getEdgeWeights().get(i - 1));
+                        sum += actual.getEdgeWeights().get(i - 1);
+                    }
+                    assertEquals(actual.getCost(), sum, 1e-9);
+                }
+            }
+        }
+
+        DijkstraGraph<String, Double> graph = new DijkstraGraph<>();
+        graph.insertNode("A");
+        graph.insertNode("B");
+        graph.insertEdge("A", "B", 3.0);
+        graph.setSearchMode(SearchMode.BIDIRECTIONAL);
+        assertEquals(List.of("A"), graph.shortestPathData("A", "A"));
+        assertEquals(List.of("A", "B"), graph.shortestPathData("A", "B"));
+        assertThrows(NoSuchElementException.class, () -> graph.shortestPathCost("B", "A"));
+    }
+
+    @Test
+    public void testLandmarkSearch(){
+        DijkstraGraph<Integer, Double> graph = TestGraphs.randomGraph(new Random(13), 200, 600, 0, 29);
+        assertThrows(IllegalStateException.class,
+            () -> graph.shortestPathCost(0, 1, SearchMode.LANDMARKS));
+        graph.setLandmarks(LandmarkTable.build(graph, 4));
+        for (int start = 0; start < 200; start += 9) {
+            for (int end = 0; end < 200; end++) {
+                PathResult<Integer> expected;
+                try {
+                    expected = graph.shortestPath(start, end);
+                } catch (NoSuchElementException e) {
+                    final int from = start, to = end;
+                    assertThrows(NoSuchElementException.class,
+                        () -> graph.shortestPath(from, to, SearchMode.LANDMARKS));
+                    continue;
+                }
+                PathResult<Integer> actual = graph.shortestPath(start, end, SearchMode.LANDMARKS);
+                assertEquals(expected.getCost(), actual.getCost(), 1e-9);
+                assertEquals(start, actual.getNodes().get(0));
+                assertEquals(end, actual.getNodes().get(actual.getNodes().size() - 1));
+            }
+        }
+        // changing the graph retires the table until a new one is set
+        graph.insertEdge(0, 1, 1.0);
+        assertThrows(IllegalStateException.class,
+            () -> graph.shortestPathCost(0, 1, SearchMode.LANDMARKS));
+    }
+
     @Test
     public void testNoPath(){
         DijkstraGraph<String, Double> graph = new DijkstraGraph<>();
@@ -344,4 +1165,152 @@ public class DijkstraGraph<NodeType, EdgeType extends Number>
             "path found!");
 
     }
+
+    @Test
+    public void testTreeCache() {
+        DijkstraGraph<String, Double> graph = new DijkstraGraph<>();
+        for (String node : new String[] { "A", "B", "C", "D" })
+            graph.insertNode(node);
+        graph.insertEdge("A", "B", 1.0);
+        graph.insertEdge("B", "C", 1.0);
+        graph.insertEdge("A", "C", 3.0);
+        ShortestPathTreeCache<String> cache = graph.getTreeCache();
+
+        // the second query from a start builds its tree, and later ones reuse it
+        assertEquals(List.of("A", "B", "C"), graph.shortestPathData("A", "C"));
+        assertEquals(0, cache.size());
+        assertEquals(1.0, graph.shortestPathCost("A", "B"));
+        assertEquals(1, cache.size());
+        assertEquals(List.of("A", "B", "C"), graph.shortestPath("A", "C").getNodes());
+        assertEquals(List.of(1.0, 1.0), graph.shortestPath("A", "C").getEdgeWeights());
+        assertThrows(NoSuchElementException.class, () -> graph.shortestPath("A", "D"));
+        assertThrows(NoSuchElementException.class, () -> graph.shortestPath("A", "E"));
+        assertEquals(3, cache.getHitCount());
+        assertSame(graph.shortestPathTree("A"), graph.shortestPathTree("A"));
+
+        // changing the graph retires its trees
+        graph.insertEdge("C", "D", 1.0);
+        assertEquals(3.0, graph.shortestPathCost("A", "D"));
+        assertEquals(0, cache.size());
+        graph.setTreeCache(null);
+        assertEquals(List.of("A", "B", "C", "D"), graph.shortestPathData("A", "D"));
+        assertNotSame(graph.shortestPathTree("A"), graph.shortestPathTree("A"));
+    }
+
+    @Test
+    public void testWeightUpdatesRepairTrees() {
+        Random random = new Random(19);
+        DijkstraGraph<Integer, Double> graph = TestGraphs.randomGraph(random, 60, 200, 0, 9);
+        List<int[]> edges = new ArrayList<>();
+        for (int pred = 0; pred < 60; pred++)
+            for (int succ = 0; succ < 60; succ++)
+                if (graph.containsEdge(pred, succ))
+                    edges.add(new int[] { pred, succ });
+        for (int s = 0; s < 8; s++)
+            graph.shortestPathTree(s);
+        for (int update = 0; update < 300; update++) {
+            int[] edge = edges.get(random.nextInt(edges.size()));
+            // weights include zero, and some updates price edges out of use
+            double weight = random.nextInt(8) == 0 ? 1e6 : random.nextInt(10);
+            graph.insertEdge(edge[0], edge[1], weight);
+            assertEquals(8, graph.getTreeCache().size(), "trees are repaired, not dropped");
+            for (int s = 0; s < 8; s++) {
+                ShortestPathTree<Integer> tree = graph.shortestPathTree(s);
+                int reachable = 0;
+                for (int t = 0; t < 60; t++) {
+                    double expected;
+                    try {
+                        expected = graph.shortestPathCost(s, t, SearchMode.UNIDIRECTIONAL);
+                    } catch (NoSuchElementException e) {
+                        assertFalse(tree.isReachable(t));
+                        continue;
+                    }
+                    reachable++;
+                    assertEquals(expected, tree.getCost(t), 1e-9);
+                    PathResult<Integer> path = tree.getPath(t);
+                    assertEquals(tree.getHops(t) + 1, path.getNodes().size());
+                    double sum = 0;
+                    for (int i = 0; i < path.getEdgeWeights().size(); i++) {
+                        assertEquals(graph.getEdge(path.getNodes().get(i), path.getNodes().get(i + 1)),
+                                     path.getEdgeWeights().get(i));
+                        sum += path.getEdgeWeights().get(i);
+                    }
+                    assertEquals(expected, sum, 1e-6);
+                }
+                assertEquals(reachable, tree.getReachableCount());
+            }
+        }
+        assertEquals(8 * 300, graph.getTreeCache().getHitCount());
+    }
+
+    @Test
+    public void testWeightUpdatesPatchTheSnapshot() {
+        // a chain with a shortcut over every ten nodes, long enough that its
+        // trees span several blocks
+        DijkstraGraph<Integer, Double> graph = new DijkstraGraph<>();
+        for (int i = 0; i < 5000; i++)
+            graph.insertNode(i);
+        for (int i = 0; i + 1 < 5000; i++)
+            graph.insertEdge(i, i + 1, 1.0);
+        for (int i = 0; i + 10 < 5000; i += 10)
+            graph.insertEdge(i, i + 10, 12.0);
+        ShortestPathTree<Integer> tree = graph.shortestPathTree(0);
+        CompactGraph<Integer> before = graph.freeze();
+        CompactGraph.ReverseEdges reverse = before.reverse();
+
+        for (double weight : new double[] { 50.0, 0.5, 1.0 }) {
+            graph.insertEdge(4990, 4991, weight);
+            CompactGraph<Integer> after = graph.freeze();
+            assertNotSame(before, after);
+            assertSame(reverse, after.reverse(), "a weight update keeps the snapshot's layout");
+            assertEquals(weight, after.weightAt(after.offsets[after.indexOf(4990)]));
+            ShortestPathTree<Integer> repaired = graph.shortestPathTree(0);
+            assertNotSame(tree, repaired, "the cached tree is repaired");
+            for (int t : new int[] { 0, 1000, 4990, 4991, 4995, 4999 }) {
+                assertEquals(graph.shortestPathCost(0, t, SearchMode.UNIDIRECTIONAL), repaired.getCost(t), 1e-9);
+                assertEquals(graph.shortestPathData(0, t, SearchMode.UNIDIRECTIONAL).size() - 1,
+                             repaired.getHops(t));
+            }
+            assertEquals(5000, repaired.getReachableCount());
+            before = after;
+            tree = repaired;
+        }
+    }
+
+    @Test
+    public void testShortestPathTrees() {
+        DijkstraGraph<Integer, Double> graph = TestGraphs.randomGraph(3, 50, 150);
+        ForkJoinPool forkJoinPool = new ForkJoinPool(4);
+        ExecutorService executor = Executors.newFixedThreadPool(3);
+        try {
+            for (Executor pool : new Executor[] { forkJoinPool, executor }) {
+                Map<Integer, ShortestPathTree<Integer>> trees = new ConcurrentHashMap<>();
+                graph.shortestPathTrees(graph.getAllNodes(), pool, 3,
+                                        tree -> assertNull(trees.put(tree.getSource(), tree)));
+                assertEquals(50, trees.size(), "one tree per start");
+                for (int s = 0; s < 50; s++) {
+                    ShortestPathTree<Integer> expected = graph.shortestPathTree(s);
+                    for (int t = 0; t < 50; t++) {
+                        assertEquals(expected.isReachable(t), trees.get(s).isReachable(t));
+                        if (expected.isReachable(t))
+                            assertEquals(expected.getPath(t).getNodes(), trees.get(s).getPath(t).getNodes());
+                    }
+                }
+            }
+
+            // a missing start is found before searching, and an exception
+            // thrown by the callback reaches the caller
+            AtomicInteger calls = new AtomicInteger();
+            assertThrows(NoSuchElementException.class, () -> graph.shortestPathTrees(
+                List.of(1, 2, 99), executor, 2, tree -> calls.incrementAndGet()));
+            assertEquals(0, calls.get());
+            assertThrows(IllegalStateException.class, () -> graph.shortestPathTrees(
+                List.of(1, 2, 3), ForkJoinPool.commonPool(), tree -> {
+                    throw new IllegalStateException();
+                }));
+        } finally {
+            forkJoinPool.shutdown();
+            executor.shutdown();
+        }
+    }
 }
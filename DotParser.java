@@ -0,0 +1,539 @@
+import java.io.IOException;
+import java.io.Reader;
+
+/**
+ * A single pass parser for graphs written in the DOT language, such as
+ * campus.dot.  It reads characters straight out of its own buffer and hands
+ * each node and edge to a Handler as soon as it has been read, without
+ * regular expressions, splitting lines or collecting the graph in memory.
+ *
+ * The parser understands the parts of DOT that a weighted graph needs: a
+ * (strict) graph or digraph, edge statements with chains of -> or -- and
+ * any number of attribute lists in any order, node statements, graph, node
+ * and edge attribute statements, graph attributes, subgraphs, quoted IDs
+ * with escaped quotes and line continuations, HTML IDs, and comments.  The
+ * weight of each edge is taken from one of its attributes, seconds unless
+ * another name is given.  Node names are interned while parsing, so every
+ * edge between the same nodes shares their strings.
+ */
+public class DotParser {
+
+    /**
+     * Receives the nodes and edges of a graph in the order they are parsed.
+     */
+    public interface Handler {
+        /**
+         * Called for each node statement.
+         *
+         * @param name the node's ID
+         */
+        void node(String name);
+
+        /**
+         * Called for each edge, once for each direction of an undirected one.
+         *
+         * @param pred   the ID of the node the edge leaves
+         * @param succ   the ID of the node the edge enters
+         * @param weight the value of the edge's weight attribute
+         */
+        void edge(String pred, String succ, double weight);
+    }
+
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    // exactly representable powers of ten, for the fast path of parseNumber
+    private static final double[] POWERS_OF_TEN = {
+        1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+        1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+
+    private final String weightAttribute;
+
+    /**
+     * Creates a parser that takes edge weights from the seconds attribute.
+     */
+    public DotParser() {
+        this("seconds");
+    }
+
+    /**
+     * Creates a parser that takes edge weights from the named attribute.
+     *
+     * @param weightAttribute the name of the attribute holding edge weights
+     */
+    public DotParser(String weightAttribute) {
+        this.weightAttribute = weightAttribute;
+    }
+
+    /**
+     * Parses a graph into a GraphADT, inserting every node that is named in
+     * a node or edge statement and every edge.
+     *
+     * @param reader the DOT text to parse, which is read to its end
+     * @param graph  the graph to insert the nodes and edges into
+     * @throws IOException if the text could not be read or is not valid DOT
+     */
+    public void parse(Reader reader, GraphADT<String, Double> graph) throws IOException {
+        parse(reader, new Handler() {
+            @Override
+            public void node(String name) {
+                graph.insertNode(name);
+            }
+
+            @Override
+            public void edge(String pred, String succ, double weight) {
+                graph.insertNode(pred);
+                graph.insertNode(succ);
+                graph.insertEdge(pred, succ, weight);
+            }
+        });
+    }
+
+    /**
+     * Parses a graph, handing each node and edge to handler as it is read.
+     *
+     * @param reader  the DOT text to parse, which is read to its end
+     * @param handler receives the nodes and edges
+     * @throws IOException if the text could not be read or is not valid DOT,
+     *                     including edges without a weight attribute
+     */
+    public void parse(Reader reader, Handler handler) throws IOException {
+        new Parse(reader, handler).graph();
+    }
+
+    // the state of parsing one graph
+    private class Parse {
+        private final Reader reader;
+        private final Handler handler;
+
+        // buffer[position..limit-1] holds characters read but not consumed
+        private final char[] buffer = new char[BUFFER_SIZE];
+        private int position = 0;
+        private int limit = 0;
+        private int line = 1;
+
+        // the characters of the last ID read, and whether it was quoted
+        private char[] token = new char[64];
+        private int tokenLength = 0;
+        private boolean quoted = false;
+
+        // node names seen so far, in an open addressing table
+        private String[] names = new String[1024];
+        private int nameCount = 0;
+
+        // the IDs along the edge chain being parsed
+        private String[] chain = new String[8];
+        private boolean directed;
+
+        // the line the statement being parsed starts on
+        private int statementLine = 1;
+
+        Parse(Reader reader, Handler handler) {
+            this.reader = reader;
+            this.handler = handler;
+        }
+
+        // graph : [strict] (graph | digraph) [ID] '{' stmt_list '}'
+        void graph() throws IOException {
+            if (!readToken())
+                throw error("expected graph or digraph");
+            if (isKeyword("strict") && !readToken())
+                throw error("expected graph or digraph after strict");
+            if (isKeyword("digraph"))
+                directed = true;
+            else if (!isKeyword("graph"))
+                throw error("expected graph or digraph");
+            if (peek() != '{' && !readToken())
+                throw error("expected {");
+            expect('{');
+            statements();
+            if (peek() != -1)
+                throw error("unexpected text after the graph");
+        }
+
+        // parses statements up to and including the '}' that closes them
+        private void statements() throws IOException {
+            while (true) {
+                int c = peek();
+                if (c == '}') {
+                    position++;
+                    return;
+                }
+                if (c == -1)
+                    throw error("missing }");
+                if (c == ';') {
+                    position++;
+                    continue;
+                }
+                if (c == '{') { // an anonymous subgraph
+                    position++;
+                    statements();
+                    continue;
+                }
+                statementLine = line;
+                if (!readToken())
+                    throw error("unexpected '" + (char) c + "'");
+                if (isKeyword("graph") || isKeyword("node") || isKeyword("edge")) {
+                    attributes(false);
+                    continue;
+                }
+                if (isKeyword("subgraph")) {
+                    if (peek() != '{' && !readToken())
+                        throw error("expected {");
+                    expect('{');
+                    statements();
+                    continue;
+                }
+                if (peek() == '=') { // a graph attribute
+                    position++;
+                    if (!readToken())
+                        throw error("expected a value after =");
+                    continue;
+                }
+                String id = intern();
+                port();
+                if (isEdgeOperator()) {
+                    edges(id);
+                } else {
+                    attributes(false);
+                    handler.node(id);
+                }
+            }
+        }
+
+        // edge_stmt : ID (edgeop ID)+ [attr_list], starting after the first ID
+        private void edges(String first) throws IOException {
+            int length = 0;
+            chain[length++] = first;
+            while (isEdgeOperator()) {
+                position += 2;
+                if (!readToken())
+                    throw error("expected a node after the edge operator");
+                if (length == chain.length)
+                    chain = java.util.Arrays.copyOf(chain, length * 2);
+                chain[length++] = intern();
+                port();
+            }
+            double weight = attributes(true);
+            if (Double.isNaN(weight)) {
+                line = statementLine;
+                throw error("edge from " + chain[0] + " has no " + weightAttribute + " attribute");
+            }
+            for (int i = 0; i + 1 < length; i++) {
+                handler.edge(chain[i], chain[i + 1], weight);
+                if (!directed)
+                    handler.edge(chain[i + 1], chain[i], weight);
+            }
+        }
+
+        // skips a node's port, as in "a":n or "a":port:sw
+        private void port() throws IOException {
+            while (peek() == ':') {
+                position++;
+                if (!readToken())
+                    throw error("expected a port after :");
+            }
+        }
+
+        // attr_list : ('[' [a_list] ']')+, returning the value of the weight
+        // attribute when wanted, or NaN if there was none
+        private double attributes(boolean wantWeight) throws IOException {
+            double weight = Double.NaN;
+            while (peek() == '[') {
+                position++;
+                while (true) {
+                    int c = peek();
+                    if (c == ']') {
+                        position++;
+                        break;
+                    }
+                    if (c == ',' || c == ';') {
+                        position++;
+                        continue;
+                    }
+                    if (!readToken())
+                        throw error(c == -1 ? "missing ]" : "unexpected '" + (char) c + "'");
+                    boolean isWeight = wantWeight && tokenEquals(weightAttribute);
+                    expect('=');
+                    if (!readToken())
+                        throw error("expected a value after =");
+                    if (isWeight)
+                        weight = parseNumber();
+                }
+            }
+            return weight;
+        }
+
+        // true if the next two characters are -> in a digraph or -- in a graph
+        private boolean isEdgeOperator() throws IOException {
+            return peek() == '-' && available(2) && buffer[position + 1] == (directed ? '>' : '-');
+        }
+
+        /**
+         * Reads the next ID into token: a quoted string, an HTML string, a
+         * numeral, or a run of letters, digits and underscores.
+         *
+         * @return false, consuming nothing, if the next character can't
+         *         start an ID
+         */
+        private boolean readToken() throws IOException {
+            int c = peek();
+            tokenLength = 0;
+            quoted = false;
+            if (c == '"') {
+                quoted = true;
+                position++;
+                while (true) {
+                    c = next();
+                    if (c == -1)
+                        throw error("unterminated string");
+                    if (c == '"')
+                        return true;
+                    if (c == '\\') {
+                        int escaped = next();
+                        if (escaped == '"') {
+                            append('"');
+                        } else if (escaped == '\n') {
+                            // a line continuation, which stands for nothing
+                        } else if (escaped == '\r' && available(1) && buffer[position] == '\n') {
+                            position++;
+                            line++;
+                        } else {
+                            // any other escape is kept for the graph's user
+                            append('\\');
+                            if (escaped != -1)
+                                append((char) escaped);
+                        }
+                    } else {
+                        append((char) c);
+                    }
+                }
+            }
+            if (c == '<') {
+                quoted = true;
+                position++;
+                int depth = 1;
+                while (true) {
+                    c = next();
+                    if (c == -1)
+                        throw error("unterminated HTML string");
+                    if (c == '<')
+                        depth++;
+                    else if (c == '>' && --depth == 0)
+                        return true;
+                    append((char) c);
+                }
+            }
+            boolean numeral = c == '-' || c == '.' || (c >= '0' && c <= '9');
+            if (c == '-' && !(available(2) && (isDigit(buffer[position + 1]) || buffer[position + 1] == '.')))
+                return false;
+            if (!numeral && !isIdStart(c))
+                return false;
+            do {
+                append((char) c);
+                position++;
+                c = available(1) ? buffer[position] : -1;
+            } while (numeral ? isDigit(c) || c == '.' || c == 'e' || c == 'E'
+                               || ((c == '-' || c == '+') && (token[tokenLength - 1] | 0x20) == 'e')
+                             : isIdStart(c) || isDigit(c));
+            return true;
+        }
+
+        private boolean isIdStart(int c) {
+            return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || c == '_' || c >= 0x80;
+        }
+
+        private boolean isDigit(int c) {
+            return c >= '0' && c <= '9';
+        }
+
+        private void append(char c) {
+            if (tokenLength == token.length)
+                token = java.util.Arrays.copyOf(token, tokenLength * 2);
+            token[tokenLength++] = c;
+        }
+
+        // true if the token is the unquoted keyword, in any case
+        private boolean isKeyword(String keyword) {
+            if (quoted || tokenLength != keyword.length())
+                return false;
+            for (int i = 0; i < tokenLength; i++)
+                if ((token[i] | 0x20) != keyword.charAt(i))
+                    return false;
+            return true;
+        }
+
+        private boolean tokenEquals(String s) {
+            if (tokenLength != s.length())
+                return false;
+            for (int i = 0; i < tokenLength; i++)
+                if (token[i] != s.charAt(i))
+                    return false;
+            return true;
+        }
+
+        // the token as a String, reusing the String of an earlier equal token
+        private String intern() {
+            int hash = 0;
+            for (int i = 0; i < tokenLength; i++)
+                hash = 31 * hash + token[i];
+            int mask = names.length - 1;
+            int slot = (hash ^ (hash >>> 16)) & mask;
+            for (String name = names[slot]; name != null; name = names[slot]) {
+                if (name.hashCode() == hash && tokenEquals(name))
+                    return name;
+                slot = (slot + 1) & mask;
+            }
+            String name = new String(token, 0, tokenLength);
+            names[slot] = name;
+            if (++nameCount * 2 > names.length)
+                growNames();
+            return name;
+        }
+
+        private void growNames() {
+            String[] old = names;
+            names = new String[old.length * 2];
+            int mask = names.length - 1;
+            for (String name : old) {
+                if (name == null)
+                    continue;
+                int hash = name.hashCode();
+                int slot = (hash ^ (hash >>> 16)) & mask;
+                while (names[slot] != null)
+                    slot = (slot + 1) & mask;
+                names[slot] = name;
+            }
+        }
+
+        /**
+         * Converts the token to a double.  Numbers with at most 15 or so
+         * significant digits and a small exponent, like most weights, are
+         * computed exactly from their digits; only longer ones go through a
+         * String and Double.parseDouble.
+         */
+        private double parseNumber() throws IOException {
+            int i = 0;
+            boolean negative = tokenLength > 0 && token[0] == '-';
+            if (negative || (tokenLength > 0 && token[0] == '+'))
+                i++;
+            long mantissa = 0;
+            int digits = 0;
+            int scale = 0;
+            boolean point = false;
+            for (; i < tokenLength; i++) {
+                char c = token[i];
+                if (c == '.' && !point) {
+                    point = true;
+                } else if (isDigit(c) && digits < 18) {
+                    mantissa = mantissa * 10 + (c - '0');
+                    if (mantissa != 0)
+                        digits++;
+                    if (point)
+                        scale--;
+                } else {
+                    break; // exponents, long numbers and bad input take the slow path
+                }
+            }
+            if (i == tokenLength && (digits > 0 || mantissa == 0) && tokenLength > (negative ? 1 : 0)
+                    && mantissa <= (1L << 53) && scale >= -22) {
+                double value = mantissa / POWERS_OF_TEN[-scale];
+                return negative ? -value : value;
+            }
+            try {
+                return Double.parseDouble(new String(token, 0, tokenLength));
+            } catch (NumberFormatException e) {
+                throw error("expected a number for " + weightAttribute);
+            }
+        }
+
+        private void expect(char c) throws IOException {
+            if (peek() != c)
+                throw error("expected '" + c + "'");
+            position++;
+        }
+
+        /**
+         * Skips whitespace and comments, and returns the next character
+         * without consuming it.
+         *
+         * @return the next character, or -1 at the end of the text
+         */
+        private int peek() throws IOException {
+            while (available(1)) {
+                char c = buffer[position];
+                if (c == '\n') {
+                    line++;
+                    position++;
+                } else if (c == ' ' || c == '\t' || c == '\r' || c == '\f') {
+                    position++;
+                } else if (c == '/' && available(2) && buffer[position + 1] == '/') {
+                    skipLine();
+                } else if (c == '#' && atLineStart()) {
+                    skipLine(); // a C preprocessor line
+                } else if (c == '/' && available(2) && buffer[position + 1] == '*') {
+                    position += 2;
+                    while (!(available(2) && buffer[position] == '*' && buffer[position + 1] == '/')) {
+                        if (next() == -1)
+                            throw error("unterminated comment");
+                    }
+                    position += 2;
+                } else {
+                    return c;
+                }
+            }
+            return -1;
+        }
+
+        private void skipLine() throws IOException {
+            while (available(1) && buffer[position] != '\n')
+                position++;
+        }
+
+        // true if only spaces and tabs come before position on its line; the
+        // previous characters are still in the buffer, since peek only ever
+        // reaches here after consuming them from it
+        private boolean atLineStart() {
+            for (int i = position - 1; i >= 0; i--) {
+                if (buffer[i] == '\n')
+                    return true;
+                if (buffer[i] != ' ' && buffer[i] != '\t')
+                    return false;
+            }
+            return line == 1;
+        }
+
+        // consumes and returns the next character, or -1 at the end
+        private int next() throws IOException {
+            if (!available(1))
+                return -1;
+            char c = buffer[position++];
+            if (c == '\n')
+                line++;
+            return c;
+        }
+
+        // makes sure that count characters are buffered, unless the text
+        // ends first, and returns whether they are
+        private boolean available(int count) throws IOException {
+            while (limit - position < count) {
+                if (position > 0) {
+                    // keep a little of what was consumed, for atLineStart
+                    int keep = Math.min(position, 256);
+                    System.arraycopy(buffer, position - keep, buffer, 0, limit - position + keep);
+                    limit -= position - keep;
+                    position = keep;
+                }
+                int read = reader.read(buffer, limit, buffer.length - limit);
+                if (read < 0)
+                    return false;
+                limit += read;
+            }
+            return true;
+        }
+
+        private IOException error(String message) {
+            return new IOException("line " + line + ": " + message);
+        }
+    }
+}
@@ -0,0 +1,97 @@
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Tests for DotParser, which declares two constructors and so cannot hold
+ * its own JUnit tests.
+ */
+public class DotParserTests {
+
+    // records what a parse hands to its handler, as lines of text
+    private static List<String> parseToList(String dot) throws IOException {
+        List<String> parsed = new ArrayList<>();
+        new DotParser().parse(new StringReader(dot), new DotParser.Handler() {
+            @Override
+            public void node(String name) {
+                parsed.add(name);
+            }
+
+            @Override
+            public void edge(String pred, String succ, double weight) {
+                parsed.add(pred + " -> " + succ + " " + weight);
+            }
+        });
+        return parsed;
+    }
+
+    @Test
+    public void testCampusFormat() throws IOException {
+        assertEquals(List.of("Memorial Union -> Science Hall 105.8",
+                             "Memorial Union -> Brat Stand 156.49999999999997"),
+                     parseToList("digraph campus {\n"
+                                 + "\t\"Memorial Union\" -> \"Science Hall\" [seconds=105.8];\n"
+                                 + "\t\"Memorial Union\" -> \"Brat Stand\" [seconds=156.49999999999997];\n"
+                                 + "}\n"));
+    }
+
+    @Test
+    public void testDotSyntax() throws IOException {
+        String dot = "/* a comment */ strict DiGraph \"g\" {\n"
+                     + "# a preprocessor line\n"
+                     + "  graph [rankdir=LR]; node [shape=box] edge [color=red]\n"
+                     + "  label = \"ignored\"\n"
+                     + "  \"say \\\"hi\\\"\" [color=blue]  // a node statement\n"
+                     + "  a:n -> b -> \"c\\\nd\" [color=red, seconds=\"2.5\"] [weight=3]\n"
+                     + "  subgraph cluster { x -> y [seconds=1e2; style=dotted] }\n"
+                     + "  { z } _1 -> -.5e1 [seconds=-0.25]\n"
+                     + "  <<b>html</b>> -> 42 [seconds=12]\n"
+                     + "}";
+        assertEquals(List.of("say \"hi\"", "a -> b 2.5", "b -> cd 2.5", "x -> y 100.0", "z",
+                             "_1 -> -.5e1 -0.25", "<b>html</b> -> 42 12.0"),
+                     parseToList(dot));
+
+        List<String> undirected = parseToList("graph { a -- b [seconds=1] }");
+        assertEquals(List.of("a -> b 1.0", "b -> a 1.0"), undirected);
+    }
+
+    @Test
+    public void testErrors() {
+        IOException e = assertThrows(IOException.class,
+            () -> parseToList("digraph {\n a -> b [color=red]\n}"));
+        assertTrue(e.getMessage().startsWith("line 2:"), e.getMessage());
+        assertThrows(IOException.class, () -> parseToList("digraph { a -> b [seconds=fast] }"));
+        assertThrows(IOException.class, () -> parseToList("digraph { \"a -> b }"));
+        assertThrows(IOException.class, () -> parseToList("digraph { a -> b [seconds=1]"));
+        assertThrows(IOException.class, () -> parseToList("tree { }"));
+    }
+
+    @Test
+    public void testLongInputAndSharedNames() throws IOException {
+        StringBuilder dot = new StringBuilder("digraph {\n");
+        for (int i = 0; i < 20000; i++)
+            dot.append("\"node ").append(i % 3000).append("\" -> n").append(i % 7)
+               .append(" [seconds=").append(i).append(".5];\n");
+        dot.append("}\n");
+        List<String> preds = new ArrayList<>();
+        double[] total = { 0 };
+        new DotParser().parse(new StringReader(dot.toString()), new DotParser.Handler() {
+            @Override
+            public void node(String name) {
+            }
+
+            @Override
+            public void edge(String pred, String succ, double weight) {
+                preds.add(pred);
+                total[0] += weight;
+            }
+        });
+        assertEquals(20000, preds.size());
+        assertSame(preds.get(0), preds.get(3000), "equal names share one String");
+        assertEquals(20000 * 19999 / 2.0 + 20000 * 0.5, total[0], 1e-3);
+    }
+}
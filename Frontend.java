@@ -59,7 +59,9 @@ public String generateShortestPathPromptHTML() {
    */
   @Override
   public String generateShortestPathResponseHTML(String start, String end) {
-    List<String> locationsOnShortestPath = backend.findLocationsOnShortestPath(start, end);
+    // a single search provides both the locations and the travel time
+    PathResult<String> shortestPath = backend.findShortestPath(start, end);
+    List<String> locationsOnShortestPath = shortestPath.getNodes();
 
     StringBuilder htmlResponse = new StringBuilder("<div>");
 
@@ -74,10 +76,7 @@ public String generateShortestPathPromptHTML() {
       }
       htmlResponse.append("</ol>");
 
-      double totalTravelTime = 0.0;
-      for (Double time : backend.findTimesOnShortestPath(start, end)) {
-        totalTravelTime += time;
-      }
+      double totalTravelTime = shortestPath.getCost();
       htmlResponse.append("<p>Total Travel Time: ").append(totalTravelTime).append(" Minutes</p>");
     }
     htmlResponse.append("</div>");
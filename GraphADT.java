@@ -123,6 +123,21 @@ public interface GraphADT<NodeType, EdgeType extends Number> {
    */
   public List<NodeType> shortestPathData(NodeType start, NodeType end);
 
+  /**
+   * Returns the list of data values from nodes along the shortest path from
+   * the node with the provided start value through the node with the provided
+   * end value, together with the weight of each edge along that path and the
+   * path's total cost.  All three come from a single shortest path search.
+   *
+   * @param start the data item in the starting node for the path
+   * @param end the data item in the destination node for the path
+   * @return the node data, edge weights and cost of this shortest path
+   * @throws NoSuchElementException if either the start or end node cannot
+   *         be found in the graph, or if there is no directed path from the
+   *         start node to the end node
+   */
+  public PathResult<NodeType> shortestPath(NodeType start, NodeType end);
+
   /**
    * Returns the cost of the path (sum over edge weights) of the shortest path
    * from the node containing the start data to the node containing the end 
@@ -137,5 +152,17 @@ public interface GraphADT<NodeType, EdgeType extends Number> {
    *         start node to the end node
    */
   public double shortestPathCost(NodeType start, NodeType end);
+
+  /**
+   * Returns the shortest paths from the node with the provided start value
+   * to every node that can be reached from it, all found by a single run of
+   * Dijkstra's shortest path algorithm.
+   *
+   * @param start the data item in the node that all paths start from
+   * @return the shortest path tree rooted at start
+   * @throws NoSuchElementException if the start node cannot be found in
+   *         the graph
+   */
+  public ShortestPathTree<NodeType> shortestPathTree(NodeType start);
     
 }
@@ -0,0 +1,1037 @@
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Reader;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Benchmarks shortest path queries on campus.dot and on a large random
+ * graph.  Each section compares the current DijkstraGraph search against a
+ * baseline that reproduces an earlier version of that search, so the effect
+ * of a change can be measured on the same machine.
+ *
+ * Run with: java -Xmx2g GraphBenchmark [section]
+ * where section is one of: csr, heap, alloc, tree, bidir, alt, ch, table, batch, cache, trees, repair, parse, snapshot (defaults to all of them)
+ */
+public class GraphBenchmark {
+
+    // results are accumulated here so the JIT can't drop the timed loops
+    private static double sink = 0;
+
+    public static void main(String[] args) throws IOException {
+        String section = args.length > 0 ? args[0] : "all";
+        if (section.equals("coldstart")) { // run by compareColdStarts in a fresh JVM
+            coldStart(args[1], args[2], args[3], args[4]);
+            return;
+        }
+        DijkstraGraph<String, Double> campus = loadCampus();
+        DijkstraGraph<Integer, Double> synthetic = randomGraph(100_000, 10, 400);
+        if (section.equals("all") || section.equals("csr")) {
+            compareCSR("campus.dot", campus, 20_000);
+            compareCSR("random 100k nodes / 1M edges", synthetic, 50);
+        }
+        if (section.equals("all") || section.equals("heap")) {
+            compareHeaps("campus.dot", campus, 20_000);
+            compareHeaps("random 100k nodes / 1M edges", synthetic, 50);
+        }
+        if (section.equals("all") || section.equals("alloc")) {
+            compareAllocation("campus.dot", campus, 20_000);
+            compareAllocation("random 100k nodes / 1M edges", synthetic, 50);
+        }
+        if (section.equals("all") || section.equals("tree")) {
+            compareLongestList("campus.dot", campus, 200);
+            compareLongestList("random 10k nodes / 30k edges", named(randomGraph(10_000, 3, 500)), 1);
+        }
+        if (section.equals("all") || section.equals("bidir")) {
+            compareDirections("campus.dot", campus, 20_000);
+            compareDirections("random 100k nodes / 1M edges", synthetic, 200);
+            compareDirections("grid 316x316 (road-like)", gridGraph(316, 600), 200);
+        }
+        if (section.equals("all") || section.equals("alt")) {
+            compareLandmarks("campus.dot", campus, 20_000);
+            compareLandmarks("random 100k nodes / 1M edges", synthetic, 200);
+            compareLandmarks("grid 316x316 (road-like)", gridGraph(316, 600), 200);
+        }
+        if (section.equals("all") || section.equals("ch")) {
+            compareHierarchy("campus.dot", campus, 20_000);
+            compareHierarchy("grid 316x316 (road-like)", gridGraph(316, 600), 2_000);
+            compareHierarchy("grid 316x316 with arterials", arterialGraph(316, 600), 2_000);
+        }
+        if (section.equals("all") || section.equals("table")) {
+            compareAllPairs("campus.dot", campus, 20_000);
+            compareAllPairs("random 1000 nodes / 3k edges", named(randomGraph(1000, 3, 700)), 20_000);
+        }
+        if (section.equals("all") || section.equals("batch")) {
+            compareBatch("campus.dot", campus, 20);
+            compareBatch("random 2000 nodes / 6k edges", randomGraph(2_000, 3, 500), 2);
+        }
+        if (section.equals("all") || section.equals("cache")) {
+            compareCaches("campus.dot", campus, 200_000);
+        }
+        if (section.equals("all") || section.equals("trees")) {
+            compareTreeCache("campus.dot", campus, 2_000, 10);
+            compareTreeCache("grid 316x316 (road-like)", gridGraph(316, 600), 50, 10);
+        }
+        if (section.equals("all") || section.equals("repair")) {
+            compareRepair("campus.dot", campus, 2_000);
+            compareRepair("grid 316x316 (road-like)", gridGraph(316, 600), 100);
+        }
+        if (section.equals("all") || section.equals("parse")) {
+            compareParsers();
+        }
+        if (section.equals("all") || section.equals("snapshot")) {
+            compareColdStarts();
+        }
+        if (sink == 42) System.out.println(); // keeps sink observable
+    }
+
+    // the campus map, loaded the same way that WebApp loads it
+    static DijkstraGraph<String, Double> loadCampus() throws IOException {
+        DijkstraGraph<String, Double> graph = new DijkstraGraph<>();
+        new Backend(graph).loadGraphData("campus.dot");
+        return uncached(graph);
+    }
+
+    // nodes 0..n-1, each with a ring edge to the next node (so every node can
+    // reach every other) plus degree-1 edges to random nodes, weighted 1..100
+    static DijkstraGraph<Integer, Double> randomGraph(int n, int degree, long seed) {
+        Random random = new Random(seed);
+        DijkstraGraph<Integer, Double> graph = new DijkstraGraph<>();
+        graph.ensureNodeCapacity(n);
+        for (int i = 0; i < n; i++)
+            graph.insertNode(i);
+        for (int i = 0; i < n; i++) {
+            graph.insertEdge(i, (i + 1) % n, 1.0 + random.nextInt(100));
+            for (int d = 1; d < degree; d++)
+                graph.insertEdge(i, random.nextInt(n), 1.0 + random.nextInt(100));
+        }
+        return uncached(graph);
+    }
+
+    // a side x side grid with edges both ways between neighbours, weighted
+    // 1..100, which has the large diameter of a walking or road network
+    static DijkstraGraph<Integer, Double> gridGraph(int side, long seed) {
+        Random random = new Random(seed);
+        DijkstraGraph<Integer, Double> graph = new DijkstraGraph<>();
+        graph.ensureNodeCapacity(side * side);
+        for (int i = 0; i < side * side; i++)
+            graph.insertNode(i);
+        for (int row = 0; row < side; row++) {
+            for (int col = 0; col < side; col++) {
+                int node = row * side + col;
+                if (col + 1 < side) {
+                    graph.insertEdge(node, node + 1, 1.0 + random.nextInt(100));
+                    graph.insertEdge(node + 1, node, 1.0 + random.nextInt(100));
+                }
+                if (row + 1 < side) {
+                    graph.insertEdge(node, node + side, 1.0 + random.nextInt(100));
+                    graph.insertEdge(node + side, node, 1.0 + random.nextInt(100));
+                }
+            }
+        }
+        return uncached(graph);
+    }
+
+    // like gridGraph, but every eighth row and column is an arterial road
+    // that is about ten times faster than the streets between them, giving
+    // the graph the kind of hierarchy that real road networks have
+    static DijkstraGraph<Integer, Double> arterialGraph(int side, long seed) {
+        Random random = new Random(seed);
+        DijkstraGraph<Integer, Double> graph = new DijkstraGraph<>();
+        graph.ensureNodeCapacity(side * side);
+        for (int i = 0; i < side * side; i++)
+            graph.insertNode(i);
+        for (int row = 0; row < side; row++) {
+            for (int col = 0; col < side; col++) {
+                int node = row * side + col;
+                if (col + 1 < side) {
+                    double scale = row % 8 == 0 ? 0.1 : 1.0;
+                    graph.insertEdge(node, node + 1, scale * (50 + random.nextInt(50)));
+                    graph.insertEdge(node + 1, node, scale * (50 + random.nextInt(50)));
+                }
+                if (row + 1 < side) {
+                    double scale = col % 8 == 0 ? 0.1 : 1.0;
+                    graph.insertEdge(node, node + side, scale * (50 + random.nextInt(50)));
+                    graph.insertEdge(node + side, node, scale * (50 + random.nextInt(50)));
+                }
+            }
+        }
+        return uncached(graph);
+    }
+
+    // a copy of an Integer graph whose nodes are named by their numbers, so
+    // that it can be loaded into a Backend
+    static DijkstraGraph<String, Double> named(DijkstraGraph<Integer, Double> graph) {
+        DijkstraGraph<String, Double> copy = new DijkstraGraph<>();
+        copy.ensureNodeCapacity(graph.getNodeCount());
+        for (Integer node : graph.getAllNodes())
+            copy.insertNode(node.toString());
+        for (BaseGraph<Integer, Double>.Node node : graph.nodeList)
+            for (BaseGraph<Integer, Double>.Edge edge : node.edgesLeaving)
+                copy.insertEdge(node.data.toString(), edge.successor.data.toString(), edge.data);
+        return uncached(copy);
+    }
+
+    // turns off a graph's tree cache, so that repeated starts are searched
+    // for again and the sections time searches rather than cache lookups
+    static <N> DijkstraGraph<N, Double> uncached(DijkstraGraph<N, Double> graph) {
+        graph.setTreeCache(null);
+        return graph;
+    }
+
+    // random (start, end) pairs drawn from a graph's nodes
+    static <N> Object[][] randomQueries(DijkstraGraph<N, Double> graph, int count, long seed) {
+        Random random = new Random(seed);
+        List<N> nodes = graph.getAllNodes();
+        Object[][] queries = new Object[count][];
+        for (int i = 0; i < count; i++)
+            queries[i] = new Object[] { nodes.get(random.nextInt(nodes.size())),
+                                        nodes.get(random.nextInt(nodes.size())) };
+        return queries;
+    }
+
+    /**
+     * Times queries that walk the linked Node and Edge objects (the search
+     * used before CompactGraph) against queries over the frozen CSR arrays.
+     */
+    @SuppressWarnings("unchecked")
+    static <N> void compareCSR(String name, DijkstraGraph<N, Double> graph, int count) {
+        Object[][] queries = randomQueries(graph, count, 7);
+        graph.freeze(); // built once, outside of the timed queries
+        for (int round = 0; round < 2; round++) { // the first round is warm up
+            long start = System.nanoTime();
+            for (Object[] q : queries)
+                sink += linkedCost(graph, (N) q[0], (N) q[1]);
+            long linked = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            for (Object[] q : queries)
+                sink += cost(graph, (N) q[0], (N) q[1]);
+            long compact = System.nanoTime() - start;
+            if (round == 1)
+                System.out.printf("%-32s linked %9.1f us/query   csr %9.1f us/query   %.2fx%n",
+                        name, linked / 1e3 / count, compact / 1e3 / count,
+                        (double) linked / compact);
+        }
+    }
+
+    /**
+     * Times a PriorityQueue with lazy deletion (the queue used before
+     * IndexedDAryHeap) against the indexed d-ary heap at several arities, all
+     * searching the same CompactGraph.
+     */
+    @SuppressWarnings("unchecked")
+    static <N> void compareHeaps(String name, DijkstraGraph<N, Double> graph, int count) {
+        Object[][] queries = randomQueries(graph, count, 11);
+        CompactGraph<N> compact = graph.freeze();
+        for (int round = 0; round < 2; round++) { // the first round is warm up
+            long start = System.nanoTime();
+            for (Object[] q : queries)
+                sink += lazyQueueCost(compact, compact.indexOf((N) q[0]), compact.indexOf((N) q[1]));
+            long lazy = System.nanoTime() - start;
+            if (round == 1)
+                System.out.printf("%-32s PriorityQueue+lazy   %9.1f us/query%n", name,
+                        lazy / 1e3 / count);
+            for (int arity : new int[] { 2, 4, 8 }) {
+                graph.setHeapArity(arity);
+                start = System.nanoTime();
+                for (Object[] q : queries)
+                    sink += cost(graph, (N) q[0], (N) q[1]);
+                long indexed = System.nanoTime() - start;
+                if (round == 1)
+                    System.out.printf("%-32s %d-ary indexed heap  %9.1f us/query   %.2fx%n", name,
+                            arity, indexed / 1e3 / count, (double) lazy / indexed);
+            }
+        }
+        graph.setHeapArity(4);
+    }
+
+    /**
+     * Reports the bytes allocated per query by a search that allocates fresh
+     * cost, predecessor and heap arrays each time (the search used before
+     * SearchWorkspace), by shortestPathCost, and by shortestPathData, whose
+     * only allocation should be the path it returns.  Allocation is measured
+     * with the JVM's per-thread allocation counter.
+     */
+    @SuppressWarnings("unchecked")
+    static <N> void compareAllocation(String name, DijkstraGraph<N, Double> graph, int count) {
+        Object[][] queries = randomQueries(graph, count, 13);
+        CompactGraph<N> compact = graph.freeze();
+        for (int round = 0; round < 2; round++) { // the first round is warm up
+            long before = allocatedBytes();
+            long start = System.nanoTime();
+            for (Object[] q : queries)
+                sink += freshArraysCost(compact, compact.indexOf((N) q[0]), compact.indexOf((N) q[1]));
+            long freshTime = System.nanoTime() - start;
+            long fresh = allocatedBytes() - before;
+
+            before = allocatedBytes();
+            start = System.nanoTime();
+            for (Object[] q : queries)
+                sink += cost(graph, (N) q[0], (N) q[1]);
+            long reusedTime = System.nanoTime() - start;
+            long reused = allocatedBytes() - before;
+
+            before = allocatedBytes();
+            for (Object[] q : queries) {
+                try {
+                    sink += graph.shortestPathData((N) q[0], (N) q[1]).size();
+                } catch (NoSuchElementException e) {
+                    sink--;
+                }
+            }
+            long withPath = allocatedBytes() - before;
+            if (round == 1) {
+                System.out.printf("%-32s fresh arrays     %12.0f B/query %9.1f us/query%n", name,
+                        (double) fresh / count, freshTime / 1e3 / count);
+                System.out.printf("%-32s workspace (cost) %12.0f B/query %9.1f us/query%n", name,
+                        (double) reused / count, reusedTime / 1e3 / count);
+                System.out.printf("%-32s workspace (path) %12.0f B/query%n", name,
+                        (double) withPath / count);
+            }
+        }
+    }
+
+    /**
+     * Reports the nodes settled per query and the time per query of
+     * unidirectional and bidirectional searches for the same random pairs.
+     */
+    @SuppressWarnings("unchecked")
+    static <N> void compareDirections(String name, DijkstraGraph<N, Double> graph, int count) {
+        Object[][] queries = randomQueries(graph, count, 19);
+        CompactGraph<N> compact = graph.freeze();
+        // settled counts come from running the searches directly
+        long uniSettled = 0;
+        long biSettled = 0;
+        for (Object[] q : queries) {
+            int source = compact.indexOf((N) q[0]);
+            int target = compact.indexOf((N) q[1]);
+            uniSettled += graph.search(compact, source, target).getSettledCount();
+            graph.bidirectionalSearch(compact, source, target);
+            biSettled += DijkstraGraph.WORKSPACE.get().getSettledCount()
+                    + DijkstraGraph.BACKWARD_WORKSPACE.get().getSettledCount();
+        }
+        for (int round = 0; round < 2; round++) { // the first round is warm up
+            long[] times = new long[2];
+            SearchMode[] modes = { SearchMode.UNIDIRECTIONAL, SearchMode.BIDIRECTIONAL };
+            for (int m = 0; m < modes.length; m++) {
+                long start = System.nanoTime();
+                for (Object[] q : queries) {
+                    try {
+                        sink += graph.shortestPathCost((N) q[0], (N) q[1], modes[m]);
+                    } catch (NoSuchElementException e) {
+                        sink--;
+                    }
+                }
+                times[m] = System.nanoTime() - start;
+            }
+            if (round == 1) {
+                System.out.printf("%-32s unidirectional %9.0f settled %9.1f us/query%n", name,
+                        (double) uniSettled / count, times[0] / 1e3 / count);
+                System.out.printf("%-32s bidirectional  %9.0f settled %9.1f us/query   %.2fx%n", name,
+                        (double) biSettled / count, times[1] / 1e3 / count,
+                        (double) times[0] / times[1]);
+            }
+        }
+    }
+
+    /**
+     * Reports the time to build landmark tables with 4, 8 and 16 landmarks,
+     * and the nodes settled and time per query of A* searches with each of
+     * them, against unidirectional Dijkstra on the same random pairs.
+     */
+    @SuppressWarnings("unchecked")
+    static <N> void compareLandmarks(String name, DijkstraGraph<N, Double> graph, int count)
+            throws IOException {
+        Object[][] queries = randomQueries(graph, count, 23);
+        CompactGraph<N> compact = graph.freeze();
+        long dijkstraSettled = 0;
+        for (Object[] q : queries)
+            dijkstraSettled += graph.search(compact, compact.indexOf((N) q[0]),
+                                            compact.indexOf((N) q[1])).getSettledCount();
+        long dijkstraTime = 0;
+        for (int round = 0; round < 2; round++) { // the first round is warm up
+            long start = System.nanoTime();
+            for (Object[] q : queries)
+                sink += cost(graph, (N) q[0], (N) q[1]);
+            dijkstraTime = System.nanoTime() - start;
+        }
+        System.out.printf("%-32s dijkstra        %9.0f settled %9.1f us/query%n", name,
+                (double) dijkstraSettled / count, dijkstraTime / 1e3 / count);
+        for (int k : new int[] { 4, 8, 16 }) {
+            long start = System.nanoTime();
+            LandmarkTable<N> table = LandmarkTable.build(graph, k);
+            long buildTime = System.nanoTime() - start;
+            // loading a saved table is what a restart pays instead of building one
+            java.io.File file = java.io.File.createTempFile("landmarks", ".bin");
+            long loadTime;
+            try {
+                table.save(file.getPath());
+                start = System.nanoTime();
+                table = LandmarkTable.load(file.getPath());
+                loadTime = System.nanoTime() - start;
+            } finally {
+                file.delete();
+            }
+            graph.setLandmarks(table);
+            long settled = 0;
+            for (Object[] q : queries)
+                settled += graph.landmarkSearch(compact, compact.indexOf((N) q[0]),
+                                                compact.indexOf((N) q[1]), table).getSettledCount();
+            long altTime = 0;
+            for (int round = 0; round < 2; round++) { // the first round is warm up
+                start = System.nanoTime();
+                for (Object[] q : queries) {
+                    try {
+                        sink += graph.shortestPathCost((N) q[0], (N) q[1], SearchMode.LANDMARKS);
+                    } catch (NoSuchElementException e) {
+                        sink--;
+                    }
+                }
+                altTime = System.nanoTime() - start;
+            }
+            System.out.printf("%-32s ALT k=%-2d        %9.0f settled %9.1f us/query   %.2fx   built in %.0f ms, loaded in %.0f ms%n",
+                    name, k, (double) settled / count, altTime / 1e3 / count,
+                    (double) dijkstraTime / altTime, buildTime / 1e6, loadTime / 1e6);
+        }
+    }
+
+    /**
+     * Reports the time to contract a graph into a ContractionHierarchy, and
+     * the time per query for its costs and for its unpacked paths, against
+     * unidirectional and bidirectional Dijkstra on the same random pairs.
+     */
+    @SuppressWarnings("unchecked")
+    static <N> void compareHierarchy(String name, DijkstraGraph<N, Double> graph, int count) {
+        Object[][] queries = randomQueries(graph, count, 29);
+        long start = System.nanoTime();
+        ContractionHierarchy<N> hierarchy = new ContractionHierarchy<>(graph);
+        long buildTime = System.nanoTime() - start;
+        System.out.printf("%-32s contracted in %.0f ms, %d shortcuts for %d edges%n", name,
+                buildTime / 1e6, hierarchy.getShortcutCount(), graph.getEdgeCount());
+        for (int round = 0; round < 2; round++) { // the first round is warm up
+            long[] times = new long[4];
+            for (int m = 0; m < 4; m++) {
+                start = System.nanoTime();
+                for (Object[] q : queries) {
+                    try {
+                        N from = (N) q[0];
+                        N to = (N) q[1];
+                        if (m == 0)
+                            sink += graph.shortestPathCost(from, to, SearchMode.UNIDIRECTIONAL);
+                        else if (m == 1)
+                            sink += graph.shortestPathCost(from, to, SearchMode.BIDIRECTIONAL);
+                        else if (m == 2)
+                            sink += hierarchy.shortestPathCost(from, to);
+                        else
+                            sink += hierarchy.shortestPath(from, to).getNodes().size();
+                    } catch (NoSuchElementException e) {
+                        sink--;
+                    }
+                }
+                times[m] = System.nanoTime() - start;
+            }
+            if (round == 1)
+                System.out.printf("%-32s dijkstra %9.1f  bidirectional %9.1f  ch cost %7.1f  ch path %7.1f us/query   %.0fx%n",
+                        name, times[0] / 1e3 / count, times[1] / 1e3 / count, times[2] / 1e3 / count,
+                        times[3] / 1e3 / count, (double) times[0] / times[3]);
+        }
+    }
+
+    /**
+     * Times Backend queries answered from an all-pairs table against the
+     * same queries answered by searching, and reports how long the table
+     * took to build and how much memory it takes.
+     */
+    static void compareAllPairs(String name, DijkstraGraph<String, Double> graph, int count) {
+        Object[][] queries = randomQueries(graph, count, 31);
+        Backend backend = new Backend(graph);
+        backend.setRouteCache(null); // every query searches
+        ForkJoinPool pool = ForkJoinPool.commonPool();
+        AllPairsTable<String> table = null;
+        long buildTime = Long.MAX_VALUE;
+        for (int round = 0; round < 5; round++) { // keeps the fastest build
+            long start = System.nanoTime();
+            table = AllPairsTable.build(graph, pool);
+            buildTime = Math.min(buildTime, System.nanoTime() - start);
+        }
+        System.out.printf("%-32s table built in %.1f ms on %d threads, %.1f KB%n", name,
+                buildTime / 1e6, pool.getParallelism(), table.getMemoryBytes() / 1024.0);
+        for (int round = 0; round < 2; round++) { // the first round is warm up
+            long[] times = new long[4];
+            for (int m = 0; m < 4; m++) {
+                long start = System.nanoTime();
+                for (Object[] q : queries) {
+                    String from = (String) q[0];
+                    String to = (String) q[1];
+                    if (m == 0)
+                        sink += backend.findShortestPath(from, to).getCost();
+                    else if (m == 1)
+                        sink += table.isReachable(from, to) ? table.getPath(from, to).getCost() : 0;
+                    else if (m == 2)
+                        sink += backend.getLongestLocationListFrom(from).size();
+                    else
+                        sink += table.getLongestPathFrom(from).getNodes().size();
+                }
+                times[m] = System.nanoTime() - start;
+            }
+            if (round == 1)
+                System.out.printf("%-32s path: search %7.2f  table %5.2f us/query   longest: tree %7.2f  table %5.2f us/query%n",
+                        name, times[0] / 1e3 / count, times[1] / 1e3 / count, times[2] / 1e3 / count,
+                        times[3] / 1e3 / count);
+        }
+    }
+
+    /**
+     * Times shortest path trees from every node of a graph, computed one
+     * after another on this thread and then by shortestPathTrees on pools of
+     * 1 up to as many threads as there are processors.
+     */
+    static <N> void compareBatch(String name, DijkstraGraph<N, Double> graph, int repeats) {
+        List<N> starts = graph.getAllNodes();
+        int processors = Runtime.getRuntime().availableProcessors();
+        LongAdder reached = new LongAdder();
+        for (int round = 0; round < 2; round++) { // the first round is warm up
+            long start = System.nanoTime();
+            for (int r = 0; r < repeats; r++)
+                for (N node : starts)
+                    sink += graph.shortestPathTree(node).getReachableCount();
+            long serial = System.nanoTime() - start;
+            if (round == 1)
+                System.out.printf("%-32s serial     %9.1f ms%n", name, serial / 1e6 / repeats);
+            long single = 0;
+            for (int threads = 1; threads <= processors; threads++) {
+                ForkJoinPool pool = new ForkJoinPool(threads);
+                start = System.nanoTime();
+                for (int r = 0; r < repeats; r++)
+                    graph.shortestPathTrees(starts, pool, tree -> reached.add(tree.getReachableCount()));
+                long time = System.nanoTime() - start;
+                pool.shutdown();
+                if (threads == 1)
+                    single = time;
+                if (round == 1)
+                    System.out.printf("%-32s %2d threads %9.1f ms   %.2fx%n", name, threads,
+                            time / 1e6 / repeats, (double) single / time);
+            }
+        }
+        sink += reached.sum();
+    }
+
+    /**
+     * Times Backend.findShortestPath without a route cache and with LRU and
+     * W-TinyLFU caches holding 1% of all routes, on routes whose popularity
+     * follows a Zipf distribution the way real requests tend to.
+     */
+    static void compareCaches(String name, DijkstraGraph<String, Double> graph, int count) {
+        List<String> nodes = graph.getAllNodes();
+        int n = nodes.size();
+        // route i (in a random order of all routes) is requested with
+        // probability proportional to 1 / (i + 1)
+        double[] cumulative = new double[n * n];
+        double total = 0;
+        for (int i = 0; i < cumulative.length; i++)
+            cumulative[i] = total += 1.0 / (i + 1);
+        int[] routes = new int[n * n];
+        Random random = new Random(37);
+        for (int i = 0; i < routes.length; i++) {
+            int j = random.nextInt(i + 1);
+            routes[i] = routes[j];
+            routes[j] = i;
+        }
+        String[][] queries = new String[count][];
+        for (int q = 0; q < count; q++) {
+            int rank = Arrays.binarySearch(cumulative, random.nextDouble() * total);
+            int route = routes[rank < 0 ? -rank - 1 : rank];
+            queries[q] = new String[] { nodes.get(route / n), nodes.get(route % n) };
+        }
+        int capacity = n * n / 100;
+        for (int round = 0; round < 2; round++) { // the first round is warm up
+            long[] times = new long[3];
+            double[] ratios = new double[3];
+            for (int m = 0; m < 3; m++) {
+                Backend backend = new Backend(graph);
+                backend.setRouteCache(m == 0 ? null : new RouteCache<>(
+                    m == 1 ? RouteCache.Policy.LRU : RouteCache.Policy.TINY_LFU, capacity, 64L << 20));
+                long start = System.nanoTime();
+                for (String[] q : queries)
+                    sink += backend.findShortestPath(q[0], q[1]).getCost();
+                times[m] = System.nanoTime() - start;
+                ratios[m] = m == 0 ? 0 : backend.getRouteCache().getHitRatio();
+            }
+            if (round == 1)
+                System.out.printf("%-32s none %6.2f us   lru %6.2f us (%.1f%% hits)   tinylfu %6.2f us (%.1f%% hits)%n",
+                        name, times[0] / 1e3 / count, times[1] / 1e3 / count, 100 * ratios[1],
+                        times[2] / 1e3 / count, 100 * ratios[2]);
+        }
+    }
+
+    /**
+     * Times sessions of point to point queries that all leave from the same
+     * start, the way users ask for several destinations from where they
+     * are, with and without the graph's tree cache.
+     */
+    @SuppressWarnings("unchecked")
+    static <N> void compareTreeCache(String name, DijkstraGraph<N, Double> graph, int sessions,
+                                     int queriesPerSession) {
+        List<N> nodes = graph.getAllNodes();
+        Random random = new Random(41);
+        Object[][] queries = new Object[sessions * queriesPerSession][];
+        for (int session = 0; session < sessions; session++) {
+            N start = nodes.get(random.nextInt(nodes.size()));
+            for (int q = 0; q < queriesPerSession; q++)
+                queries[session * queriesPerSession + q] =
+                    new Object[] { start, nodes.get(random.nextInt(nodes.size())) };
+        }
+        for (int round = 0; round < 2; round++) { // the first round is warm up
+            long[] times = new long[2];
+            for (int m = 0; m < 2; m++) {
+                ShortestPathTreeCache<N> cache = m == 0 ? null : new ShortestPathTreeCache<>(8, 64L << 20);
+                graph.setTreeCache(cache);
+                long start = System.nanoTime();
+                for (Object[] q : queries) {
+                    try {
+                        sink += graph.shortestPathCost((N) q[0], (N) q[1]);
+                    } catch (NoSuchElementException e) {
+                        sink--;
+                    }
+                }
+                times[m] = System.nanoTime() - start;
+            }
+            if (round == 1)
+                System.out.printf("%-32s %d queries per start: searched %8.1f us/query   tree cache %8.1f us/query   %.1fx%n",
+                        name, queriesPerSession, times[0] / 1e3 / queries.length,
+                        times[1] / 1e3 / queries.length, (double) times[0] / times[1]);
+        }
+        graph.setTreeCache(null);
+    }
+
+    /**
+     * Times a stream of edge weight updates that each have to leave eight
+     * shortest path trees up to date, either by repairing the cached trees
+     * or by searching for all of them again.
+     */
+    @SuppressWarnings("unchecked")
+    static <N> void compareRepair(String name, DijkstraGraph<N, Double> graph, int updates) {
+        List<N> nodes = graph.getAllNodes();
+        Random random = new Random(43);
+        List<N> sources = nodes.subList(0, 8);
+        // each update sets a random existing edge to a new random weight
+        Object[][] changes = new Object[updates][];
+        for (int u = 0; u < updates; u++) {
+            BaseGraph<N, Double>.Node node;
+            do {
+                node = graph.nodeList.get(random.nextInt(nodes.size()));
+            } while (node.edgesLeaving.isEmpty());
+            BaseGraph<N, Double>.Edge edge = node.edgesLeaving.get(random.nextInt(node.edgesLeaving.size()));
+            changes[u] = new Object[] { node.data, edge.successor.data, edge.data * (0.5 + random.nextDouble()) };
+        }
+        for (int round = 0; round < 2; round++) { // the first round is warm up
+            long[] times = new long[2];
+            for (int m = 0; m < 2; m++) {
+                graph.setTreeCache(m == 0 ? null : new ShortestPathTreeCache<>(8, 64L << 20));
+                for (N source : sources)
+                    graph.shortestPathTree(source);
+                long start = System.nanoTime();
+                for (Object[] change : changes) {
+                    graph.insertEdge((N) change[0], (N) change[1], (Double) change[2]);
+                    for (N source : sources)
+                        sink += graph.shortestPathTree(source).getReachableCount();
+                }
+                times[m] = System.nanoTime() - start;
+            }
+            if (round == 1)
+                System.out.printf("%-32s per update: search 8 trees %9.1f us   repair 8 trees %8.1f us   %.1fx%n",
+                        name, times[0] / 1e3 / updates, times[1] / 1e3 / updates, (double) times[0] / times[1]);
+        }
+        graph.setTreeCache(null);
+    }
+
+    /**
+     * Times loading campus.dot with DotParser against the regular expression
+     * based loop that Backend used before, and then parsing a generated DOT
+     * file with 5 million edges with each of them, without building a graph.
+     */
+    static void compareParsers() throws IOException {
+        for (int round = 0; round < 2; round++) { // the first round is warm up
+            int count = 200;
+            long start = System.nanoTime();
+            for (int i = 0; i < count; i++)
+                sink += regexLoad("campus.dot", new DijkstraGraph<>()).getEdgeCount();
+            long regex = System.nanoTime() - start;
+            start = System.nanoTime();
+            for (int i = 0; i < count; i++) {
+                DijkstraGraph<String, Double> graph = new DijkstraGraph<>();
+                new Backend(graph).loadGraphData("campus.dot");
+                sink += graph.getEdgeCount();
+            }
+            long parser = System.nanoTime() - start;
+            if (round == 1)
+                System.out.printf("%-32s load: regex %8.1f us   DotParser %8.1f us   %.1fx%n", "campus.dot",
+                        regex / 1e3 / count, parser / 1e3 / count, (double) regex / parser);
+        }
+        DijkstraGraph<String, Double> expected = regexLoad("campus.dot", new DijkstraGraph<>());
+        DijkstraGraph<String, Double> actual = new DijkstraGraph<>();
+        new Backend(actual).loadGraphData("campus.dot");
+        if (!Arrays.equals(expected.freeze().weights, actual.freeze().weights)
+                || !expected.getAllNodes().equals(actual.getAllNodes()))
+            throw new AssertionError("DotParser loaded a different graph");
+
+        File file = File.createTempFile("generated", ".dot");
+        try {
+            int edges = 5_000_000;
+            Random random = new Random(47);
+            try (BufferedWriter out = new BufferedWriter(new FileWriter(file))) {
+                out.write("digraph generated {\n");
+                for (int i = 0; i < edges; i++)
+                    out.write("\t\"Building " + random.nextInt(500_000) + "\" -> \"Building "
+                              + random.nextInt(500_000) + "\" [seconds=" + random.nextInt(10_000) / 10.0 + "];\n");
+                out.write("}\n");
+            }
+            double megabytes = file.length() / 1e6;
+            for (int round = 0; round < 2; round++) { // the first round is warm up
+                long start = System.nanoTime();
+                try (BufferedReader in = new BufferedReader(new FileReader(file))) {
+                    String line;
+                    while ((line = in.readLine()) != null) {
+                        if (line.isEmpty() || line.startsWith("digraph") || line.startsWith("}"))
+                            continue;
+                        String[] parts = line.trim().split("->|\\[seconds=|];");
+                        sink += parts[0].trim().replace("\"", "").length()
+                                + parts[1].trim().replace("\"", "").length()
+                                + Double.parseDouble(parts[2].trim());
+                    }
+                }
+                long regex = System.nanoTime() - start;
+                start = System.nanoTime();
+                try (Reader in = new FileReader(file)) {
+                    new DotParser().parse(in, new DotParser.Handler() {
+                        @Override
+                        public void node(String name) {
+                        }
+
+                        @Override
+                        public void edge(String pred, String succ, double weight) {
+                            sink += pred.length() + succ.length() + weight;
+                        }
+                    });
+                }
+                long parser = System.nanoTime() - start;
+                if (round == 1)
+                    System.out.printf("%-32s parse: regex %7.0f ms (%5.1f MB/s)   DotParser %7.0f ms (%5.1f MB/s)   %.1fx%n",
+                            "generated 5M edges", regex / 1e6, megabytes / (regex / 1e9), parser / 1e6,
+                            megabytes / (parser / 1e9), (double) regex / parser);
+            }
+        } finally {
+            file.delete();
+        }
+    }
+
+    /**
+     * Starts fresh JVMs that load a graph and answer one query, either by
+     * parsing its DOT file with loadGraphData or by mapping a snapshot with
+     * loadGraphSnapshot, and compares how long they take and how much
+     * memory they end up with.  Each is run a few times and the median kept.
+     */
+    static void compareColdStarts() throws IOException {
+        Path snapshot = Files.createTempFile("campus", ".snapshot");
+        Path largeDot = Files.createTempFile("generated", ".dot");
+        Path largeSnapshot = Files.createTempFile("generated", ".snapshot");
+        try {
+            Backend campus = new Backend(new DijkstraGraph<>());
+            campus.loadGraphData("campus.dot");
+            campus.writeGraphSnapshot(snapshot.toString());
+            System.out.printf("%-32s DOT %7.1f KB   snapshot %7.1f KB%n", "campus.dot",
+                    new File("campus.dot").length() / 1e3, Files.size(snapshot) / 1e3);
+            coldStarts("campus.dot", "campus.dot", snapshot.toString(),
+                       "Union South", "Computer Sciences and Statistics");
+
+            // 200k named nodes with 1M edges, as DOT text and as a snapshot
+            DijkstraGraph<String, Double> large = named(randomGraph(200_000, 5, 900));
+            try (BufferedWriter out = Files.newBufferedWriter(largeDot)) {
+                out.write("digraph generated {\n");
+                for (BaseGraph<String, Double>.Node node : large.nodeList)
+                    for (BaseGraph<String, Double>.Edge edge : node.edgesLeaving)
+                        out.write("    \"" + node.data + "\" -> \"" + edge.successor.data
+                                  + "\" [seconds=" + edge.data + "];\n");
+                out.write("}\n");
+            }
+            MappedGraph.write(large, largeSnapshot);
+            large = null;
+            System.out.printf("%-32s DOT %7.1f MB   snapshot %7.1f MB%n", "random 200k nodes / 1M edges",
+                    Files.size(largeDot) / 1e6, Files.size(largeSnapshot) / 1e6);
+            coldStarts("random 200k nodes / 1M edges", largeDot.toString(), largeSnapshot.toString(),
+                       "17", "123456");
+        } finally {
+            Files.deleteIfExists(snapshot);
+            Files.deleteIfExists(largeDot);
+            Files.deleteIfExists(largeSnapshot);
+        }
+    }
+
+    // prints the median cold start of each way of loading one graph
+    static void coldStarts(String name, String dot, String snapshot, String start, String end)
+            throws IOException {
+        for (String kind : new String[] { "dot", "snapshot" }) {
+            int runs = 5;
+            double[][] results = new double[runs][];
+            for (int run = 0; run < runs; run++)
+                results[run] = runColdStart(kind, kind.equals("dot") ? dot : snapshot, start, end);
+            // sorted by process wall time
+            Arrays.sort(results, (a, b) -> Double.compare(a[0], b[0]));
+            double[] median = results[runs / 2];
+            System.out.printf("%-32s %-8s process %7.1f ms   load %7.1f ms   first query %6.2f ms   RSS %6.1f MB%n",
+                    name, kind, median[0], median[1], median[2], median[3] / 1e3);
+        }
+    }
+
+    // runs one cold start in a new JVM: {process ms, load ms, query ms, RSS KB}
+    static double[] runColdStart(String kind, String file, String start, String end) throws IOException {
+        String java = ProcessHandle.current().info().command().orElse("java");
+        ProcessBuilder builder = new ProcessBuilder(java, "-cp", System.getProperty("java.class.path"),
+                "GraphBenchmark", "coldstart", kind, file, start, end);
+        builder.redirectErrorStream(true);
+        long began = System.nanoTime();
+        Process process = builder.start();
+        String output;
+        try (BufferedReader in = new BufferedReader(new java.io.InputStreamReader(process.getInputStream()))) {
+            output = in.readLine();
+            while (in.readLine() != null) {
+            }
+        }
+        try {
+            process.waitFor();
+        } catch (InterruptedException e) {
+            throw new IOException(e);
+        }
+        long elapsed = System.nanoTime() - began;
+        if (output == null || !output.startsWith("coldstart "))
+            throw new IOException("cold start run failed: " + output);
+        String[] fields = output.split(" ");
+        return new double[] { elapsed / 1e6, Double.parseDouble(fields[1]),
+                              Double.parseDouble(fields[2]), Double.parseDouble(fields[3]) };
+    }
+
+    // the child side of runColdStart: loads the graph, answers one query, and
+    // prints the load and query times and the resident set size
+    static void coldStart(String kind, String file, String start, String end) throws IOException {
+        long began = System.nanoTime();
+        Backend backend = new Backend(new DijkstraGraph<>());
+        if (kind.equals("dot"))
+            backend.loadGraphData(file);
+        else
+            backend.loadGraphSnapshot(file);
+        long loaded = System.nanoTime();
+        PathResult<String> path = backend.findShortestPath(start, end);
+        long answered = System.nanoTime();
+        if (path.isEmpty())
+            throw new IllegalStateException("no path from " + start + " to " + end);
+        long rss = 0;
+        for (String line : Files.readAllLines(Path.of("/proc/self/status")))
+            if (line.startsWith("VmRSS:"))
+                rss = Long.parseLong(line.replaceAll("[^0-9]", ""));
+        System.out.printf("coldstart %.3f %.3f %d%n", (loaded - began) / 1e6, (answered - loaded) / 1e6, rss);
+    }
+
+    /**
+     * Baseline: loads a DOT file into graph the way Backend.loadGraphData did
+     * before DotParser, splitting each line with a regular expression.
+     */
+    static DijkstraGraph<String, Double> regexLoad(String filename, DijkstraGraph<String, Double> graph)
+            throws IOException {
+        try (BufferedReader br = new BufferedReader(new FileReader(filename))) {
+            String currentLine;
+            while ((currentLine = br.readLine()) != null) {
+                if (currentLine.isEmpty() || currentLine.startsWith("digraph")
+                        || currentLine.startsWith("}") || currentLine.startsWith("{"))
+                    continue;
+                String[] parts = currentLine.trim().split("->|\\[seconds=|];");
+                String pred = parts[0].trim().replace("\"", "");
+                String succ = parts[1].trim().replace("\"", "");
+                Double weight = Double.parseDouble(parts[2].trim());
+                graph.insertNode(pred);
+                graph.insertNode(succ);
+                graph.insertEdge(pred, succ, weight);
+            }
+        }
+        return graph;
+    }
+
+    /**
+     * Times Backend.getLongestLocationListFrom, which reads the answer out of
+     * one shortest path tree, against the loop it replaced, which ran two
+     * point to point searches for every location in the graph.
+     */
+    static void compareLongestList(String name, DijkstraGraph<String, Double> graph, int count) {
+        Backend backend = new Backend(graph);
+        List<String> nodes = graph.getAllNodes();
+        Random random = new Random(17);
+        String[] starts = new String[count];
+        for (int i = 0; i < count; i++)
+            starts[i] = nodes.get(random.nextInt(nodes.size()));
+        for (int round = 0; round < 2; round++) { // the first round is warm up
+            long start = System.nanoTime();
+            for (String s : starts)
+                sink += pairwiseLongest(graph, s).size();
+            long pairwise = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            for (String s : starts)
+                sink += backend.getLongestLocationListFrom(s).size();
+            long tree = System.nanoTime() - start;
+            if (round == 1)
+                System.out.printf("%-32s 2 searches/node %10.2f ms/request   tree %8.2f ms/request   %.0fx%n",
+                        name, pairwise / 1e6 / count, tree / 1e6 / count, (double) pairwise / tree);
+        }
+    }
+
+    /**
+     * Baseline: the longest location list from start, found the way Backend
+     * did before shortest path trees, with two searches per location.
+     */
+    static List<String> pairwiseLongest(DijkstraGraph<String, Double> graph, String start) {
+        List<String> longest = null;
+        int maxLength = 0;
+        for (String location : graph.getAllNodes()) {
+            try {
+                if (graph.shortestPathData(start, location).size() > maxLength) {
+                    longest = graph.shortestPathData(start, location);
+                    maxLength = longest.size();
+                }
+            } catch (NoSuchElementException e) {
+                // unreachable locations are skipped
+            }
+        }
+        return longest;
+    }
+
+    // bytes allocated by the current thread so far
+    static long allocatedBytes() {
+        return ((com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean())
+                .getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    /**
+     * Baseline: Dijkstra over a CompactGraph with the indexed heap, but with
+     * cost array and heap allocated for every query.  Returns -1 when there
+     * is no path.
+     */
+    static double freshArraysCost(CompactGraph<?> graph, int source, int target) {
+        double[] cost = new double[graph.getNodeCount()];
+        int[] predecessor = new int[graph.getNodeCount()];
+        Arrays.fill(cost, Double.POSITIVE_INFINITY);
+        Arrays.fill(predecessor, -1);
+        IndexedDAryHeap pq = new IndexedDAryHeap(graph.getNodeCount(), 4);
+        cost[source] = 0;
+        pq.insert(source, 0);
+        while (!pq.isEmpty()) {
+            int node = pq.pollMin();
+            if (node == target)
+                return cost[node];
+            for (int e = graph.offsets[node]; e < graph.offsets[node + 1]; e++) {
+                double newCost = cost[node] + graph.weights[e];
+                if (newCost < cost[graph.targets[e]]) {
+                    cost[graph.targets[e]] = newCost;
+                    predecessor[graph.targets[e]] = node;
+                    pq.insertOrDecrease(graph.targets[e], newCost);
+                }
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Baseline: Dijkstra over a CompactGraph with a java.util.PriorityQueue
+     * that queues a new entry on every improvement and skips stale entries
+     * when they are polled.  Returns -1 when there is no path.
+     */
+    static double lazyQueueCost(CompactGraph<?> graph, int source, int target) {
+        double[] cost = new double[graph.getNodeCount()];
+        Arrays.fill(cost, Double.POSITIVE_INFINITY);
+        PriorityQueue<Entry<Integer>> pq = new PriorityQueue<>();
+        cost[source] = 0;
+        pq.add(new Entry<>(source, 0));
+        while (!pq.isEmpty()) {
+            Entry<Integer> current = pq.poll();
+            int node = current.node;
+            if (current.cost > cost[node])
+                continue;
+            if (node == target)
+                return current.cost;
+            for (int e = graph.offsets[node]; e < graph.offsets[node + 1]; e++) {
+                double newCost = current.cost + graph.weights[e];
+                if (newCost < cost[graph.targets[e]]) {
+                    cost[graph.targets[e]] = newCost;
+                    pq.add(new Entry<>(graph.targets[e], newCost));
+                }
+            }
+        }
+        return -1;
+    }
+
+    // shortest path cost through DijkstraGraph, or -1 when there is no path
+    static <N> double cost(DijkstraGraph<N, Double> graph, N start, N end) {
+        try {
+            return graph.shortestPathCost(start, end);
+        } catch (NoSuchElementException e) {
+            return -1;
+        }
+    }
+
+    // entry in the baseline searches' priority queues
+    private static class Entry<T> implements Comparable<Entry<T>> {
+        final T node;
+        final double cost;
+
+        Entry(T node, double cost) {
+            this.node = node;
+            this.cost = cost;
+        }
+
+        public int compareTo(Entry<T> other) {
+            return Double.compare(cost, other.cost);
+        }
+    }
+
+    /**
+     * Baseline: Dijkstra over the linked Node and Edge objects, keeping the
+     * best costs in a HashtableMap keyed by node data and unboxing each
+     * weight, the way DijkstraGraph searched before it used CompactGraph.
+     * Returns -1 when there is no path.
+     */
+    static <N> double linkedCost(DijkstraGraph<N, Double> graph, N start, N end) {
+        HashtableMap<N, Double> best = new HashtableMap<>();
+        PriorityQueue<Entry<BaseGraph<N, Double>.Node>> pq = new PriorityQueue<>();
+        best.put(start, 0.0);
+        pq.add(new Entry<>(graph.nodes.get(start), 0));
+        while (!pq.isEmpty()) {
+            Entry<BaseGraph<N, Double>.Node> current = pq.poll();
+            if (current.node.data.equals(end))
+                return current.cost;
+            if (current.cost > best.get(current.node.data))
+                continue;
+            for (BaseGraph<N, Double>.Edge edge : current.node.edgesLeaving) {
+                double cost = current.cost + edge.data;
+                N successor = edge.successor.data;
+                if (!best.containsKey(successor) || cost < best.get(successor)) {
+                    if (best.containsKey(successor))
+                        best.remove(successor);
+                    best.put(successor, cost);
+                    pq.add(new Entry<>(edge.successor, cost));
+                }
+            }
+        }
+        return -1;
+    }
+}
@@ -80,6 +80,41 @@ public class Graph_Placeholder implements GraphADT<String, Double> {
     return list;
   }
 
+  public PathResult<String> shortestPath(String start, String end) {
+    List<String> nodes = shortestPathData(start,end);
+    if(nodes.isEmpty()) throw new NoSuchElementException();
+    List<Double> weights = new ArrayList<>();
+    double cost = 0;
+    for(int i=1;i<nodes.size();i++) {
+      weights.add(getEdge(nodes.get(i-1),nodes.get(i)));
+      cost += weights.get(i-1);
+    }
+    return new PathResult<>(nodes,weights,cost);
+  }
+
+  public ShortestPathTree<String> shortestPathTree(String start) {
+    int source = path.indexOf(start);
+    if(source < 0) throw new NoSuchElementException();
+    // the path as a graph, with edge i-1 -> i weighted i like getEdge
+    int n = path.size();
+    int[] offsets = new int[n+1];
+    int[] targets = new int[n-1];
+    double[] weights = new double[n-1];
+    for(int i=1;i<n;i++) { offsets[i] = i-1; targets[i-1] = i; weights[i-1] = i; }
+    offsets[n] = n-1;
+    CompactGraph<String> graph = new CompactGraph<>(path.toArray(), offsets, targets, weights, 0);
+    double[] cost = new double[n];
+    int[] pred = new int[n];
+    int[] predEdge = new int[n];
+    int[] hops = new int[n];
+    for(int i=0;i<n;i++) {
+      if(i < source) { cost[i] = Double.POSITIVE_INFINITY; pred[i] = predEdge[i] = hops[i] = -1; }
+      else if(i == source) { pred[i] = predEdge[i] = -1; }
+      else { cost[i] = cost[i-1] + i; pred[i] = i-1; predEdge[i] = i-1; hops[i] = hops[i-1] + 1; }
+    }
+    return new ShortestPathTree<>(graph, source, cost, pred, predEdge, hops, n - source);
+  }
+
   public double shortestPathCost(String start, String end) {
     boolean capture = false;
     double sum = 0;
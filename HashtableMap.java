@@ -5,28 +5,51 @@
 // Lecturer: Florian Heimerl
 // Notes to Grader: n/a
 
-import org.junit.jupiter.api.Test;
-
+import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.NoSuchElementException;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
 
-import static org.junit.jupiter.api.Assertions.*;
-
-public class HashtableMap<KeyType, ValueType> implements MapADT{
+public class HashtableMap<KeyType, ValueType> implements MapADT<KeyType, ValueType> {
 
   protected LinkedList<Pair>[] table = null;
 
+  // number of pairs currently stored, kept up to date by put, remove and clear
+  private int size = 0;
+
+  // the table grows once size reaches capacity * loadFactor, multiplying its capacity by
+  // growthFactor each time so that the cost of resizing is amortized over many puts
+  private final double loadFactor;
+  private final double growthFactor;
+
+  // capacity the table was created with, used when shrinking it back down in clear
+  private final int initialCapacity;
+  private boolean shrinkOnClear = false;
+
   @SuppressWarnings("unchecked")
-  public HashtableMap(int capacity){
+  public HashtableMap(int capacity, double loadFactor, double growthFactor){
     if (capacity <= 0){
       throw new IllegalArgumentException("capacity should be greater than 0");
     }
+    if (!(loadFactor > 0)){
+      throw new IllegalArgumentException("load factor should be greater than 0");
+    }
+    if (!(growthFactor > 1)){
+      throw new IllegalArgumentException("growth factor should be greater than 1");
+    }
 
+    this.loadFactor = loadFactor;
+    this.growthFactor = growthFactor;
+    this.initialCapacity = capacity;
     table = (LinkedList<Pair>[]) new LinkedList[capacity];
 
   }
 
-  @SuppressWarnings("unchecked")
+  public HashtableMap(int capacity){
+    this(capacity, 0.8, 2.0);
+  }
+
   public HashtableMap(){
     this(64);
   }
@@ -66,38 +89,92 @@ public class HashtableMap<KeyType, ValueType> implements MapADT{
     Pair pair = new Pair((KeyType) key, (ValueType) value);
 
 
-    int index = Math.abs(key.hashCode()) % this.getCapacity();
+    int index = indexFor(key, table.length);
 
     if (table[index] == null) {
       table[index] = new LinkedList<>();
     }
     table[index].add(pair);
+    size++;
 
-    rehash();
+    if (size >= table.length * loadFactor) {
+      int grown = (int) Math.min(Integer.MAX_VALUE - 8, (long) Math.ceil(table.length * growthFactor));
+      resize(Math.max(grown, table.length + 1));
+    }
   }
 
-  private double getLoadFactor() {
-    return (double) this.getSize() / this.getCapacity();
+  /**
+   * Computes the bucket that a key belongs in for a table of the given capacity. Every method
+   * that stores or looks up a key must go through here so that they all agree on the bucket.
+   *
+   * @param key      the key to find the bucket for
+   * @param capacity the number of buckets in the table
+   * @return the index of the key's bucket, between 0 and capacity-1
+   */
+  private static int indexFor(Object key, int capacity) {
+    // floorMod stays non-negative even for a hashCode of Integer.MIN_VALUE, which Math.abs doesn't
+    return Math.floorMod(key.hashCode(), capacity);
   }
 
+  /**
+   * Grows the table ahead of time so that it can hold at least expectedSize keys without
+   * resizing again, which lets bulk loaders pay for a single resize up front.
+   *
+   * @param expectedSize the number of keys this collection should be ready to hold
+   */
+  @Override
+  public void ensureCapacity(int expectedSize) {
+    long needed = (long) Math.ceil(expectedSize / loadFactor) + 1;
+    if (needed > table.length) {
+      resize((int) Math.min(Integer.MAX_VALUE - 8, needed));
+    }
+  }
 
-  private void rehash(){
-    if (getLoadFactor() >= 0.8) {
-      LinkedList<Pair>[] doubleCap = (LinkedList<Pair>[]) new LinkedList[table.length * 2];
+  /**
+   * Sets whether clear should also shrink the table back to the capacity it was created with,
+   * rather than keeping it at the largest size it reached.
+   *
+   * @param shrinkOnClear true to shrink the table whenever this collection is cleared
+   */
+  public void setShrinkOnClear(boolean shrinkOnClear) {
+    this.shrinkOnClear = shrinkOnClear;
+  }
 
-      for (LinkedList<Pair> pairs : table) {
-        if (pairs != null) {
-          for (Pair pair : pairs) {
-            int index = Math.abs(pair.key.hashCode()) % doubleCap.length;
-            if (doubleCap[index] == null) {
-              doubleCap[index] = new LinkedList<>();
-            }
-            doubleCap[index].add(pair);
+  @SuppressWarnings("unchecked")
+  private void resize(int newCapacity){
+    LinkedList<Pair>[] resized = (LinkedList<Pair>[]) new LinkedList[newCapacity];
+
+    for (LinkedList<Pair> pairs : table) {
+      if (pairs != null) {
+        for (Pair pair : pairs) {
+          int index = indexFor(pair.key, resized.length);
+          if (resized[index] == null) {
+            resized[index] = new LinkedList<>();
           }
+          resized[index].add(pair);
         }
       }
-      table = doubleCap;
     }
+    table = resized;
+  }
+
+  /**
+   * Finds the pair holding a key by searching only the bucket that key hashes to.
+   *
+   * @param key the key to search for
+   * @return the pair containing key, or null when key is not in this collection
+   * @throws NullPointerException if key is null
+   */
+  private Pair findPair(Object key) {
+    LinkedList<Pair> pairs = table[indexFor(key, table.length)];
+    if (pairs != null) {
+      for (Pair pair : pairs) {
+        if (key.equals(pair.key)) {
+          return pair;
+        }
+      }
+    }
+    return null;
   }
 
   /**
@@ -108,13 +185,7 @@ public class HashtableMap<KeyType, ValueType> implements MapADT{
    */
   @Override
   public boolean containsKey(Object key) {
-    try{
-      get(key);
-      return true;
-    }
-    catch (NoSuchElementException e){
-      return false;
-    }
+    return findPair(key) != null;
   }
 
   /**
@@ -126,17 +197,11 @@ public class HashtableMap<KeyType, ValueType> implements MapADT{
    */
   @Override
   public ValueType get(Object key) throws NoSuchElementException {
-
-    for (LinkedList<Pair> pairs : table) {
-      if (pairs != null) {
-        for (Pair pair : pairs) {
-          if (key.equals(pair.key)) {
-            return pair.value;
-          }
-        }
-      }
+    Pair pair = findPair(key);
+    if (pair == null) {
+      throw new NoSuchElementException("key does not exist in collection");
     }
-    throw new NoSuchElementException("key does not exist in collection");
+    return pair.value;
   }
 
   /**
@@ -148,35 +213,35 @@ public class HashtableMap<KeyType, ValueType> implements MapADT{
    */
   @Override
   public Object remove(Object key) throws NoSuchElementException {
-    if (!containsKey(key)){
-      throw new NoSuchElementException("key is not in collection!");
-    }
-
-    Object value = get(key);
-
-    int index = Math.abs(key.hashCode() % this.getCapacity());
-
-    LinkedList<Pair> pairs = table[index];
-    if (pairs != null){
-      for (Pair pair: pairs){
-        if (key.equals(pair.key)){
-          pairs.remove(pair);
-          return value;
+    LinkedList<Pair> pairs = table[indexFor(key, table.length)];
+    if (pairs != null) {
+      Iterator<Pair> iterator = pairs.iterator();
+      while (iterator.hasNext()) {
+        Pair pair = iterator.next();
+        if (key.equals(pair.key)) {
+          iterator.remove();
+          size--;
+          return pair.value;
         }
       }
     }
-    throw new NoSuchElementException("key is not in collection!"); // backup, but should never be
-    // reached
+    throw new NoSuchElementException("key is not in collection!");
   }
 
   /**
    * Removes all key,value pairs from this collection.
    */
   @Override
+  @SuppressWarnings("unchecked")
   public void clear() {
-    for (int i = 0; i < table.length; i++) {
-      table[i] = null; // clear all buckets
+    if (shrinkOnClear && table.length > initialCapacity) {
+      table = (LinkedList<Pair>[]) new LinkedList[initialCapacity]; // drop the grown table
+    } else {
+      for (int i = 0; i < table.length; i++) {
+        table[i] = null; // clear all buckets
+      }
     }
+    size = 0;
   }
 
   /**
@@ -186,12 +251,6 @@ public class HashtableMap<KeyType, ValueType> implements MapADT{
    */
   @Override
   public int getSize() {
-    int size = 0;
-    for (LinkedList<Pair> bucket : table) {
-      if (bucket != null) {
-        size += bucket.size();
-      }
-    }
     return size;
   }
 
@@ -220,87 +279,71 @@ public class HashtableMap<KeyType, ValueType> implements MapADT{
     return keys; // return the list of keys
   }
 
-
-
-  @Test
-  public void testPutAndGet(){
-    HashtableMap<Integer, String> hashtable = new HashtableMap<>();
-
-    hashtable.put(100, "data1"); // add keys to map, ensure put works
-    hashtable.put(200, "data2");
-    hashtable.put(322, "data3");
-    hashtable.put(443, "data4");
-
-
-
-    assertEquals("data1", hashtable.get(100)); // test that get returns the correct data
-    assertEquals("data2", hashtable.get(200));
-    assertEquals("data3", hashtable.get(322));
-    assertEquals("data4", hashtable.get(443));
-
-  }
-
-  @Test
-  public void testDuplicatePut(){
-    HashtableMap<Integer, String> hashtable = new HashtableMap<>();
-    hashtable.put(100, "key1");
-    hashtable.put(200, "key2"); // Uudate value for same key
-    assertEquals("key2", hashtable.get(200), "failed to update value for existing key");
-  }
-
-  @Test
-  public void testContainsKey(){
-    HashtableMap<Integer, String> hashtable = new HashtableMap<>();
-
-    hashtable.put(100, "data1"); // add keys to map
-    hashtable.put(200, "data2");
-    hashtable.put(322, "data3");
-    hashtable.put(443, "data4");
-
-    assertTrue(hashtable.containsKey(100), "contains key, should be TRUE"); // true, key is there
-    assertFalse(hashtable.containsKey(500), "does not exist, should be FALSE"); // false, key
-    // does not exist
-
+  /**
+   * Returns a view of the keys that walks the buckets in place instead of copying them.
+   *
+   * @return the keys in this collection, in bucket order
+   */
+  @Override
+  public Iterable<KeyType> keys() {
+    return () -> new PairIterator<>(pair -> pair.key);
   }
 
-  @Test
-  public void testRemove(){
-    HashtableMap<Integer, String> hashtable = new HashtableMap<>();
-
-    hashtable.put(100, "data1"); // add values to map
-    hashtable.put(200, "data2");
-    hashtable.put(322, "data3");
-    hashtable.put(443, "data4");
-
-
-
-    assertEquals("data3", hashtable.remove(322), "failed to remove key"); //should remove key
-
+  /**
+   * Returns a view of the values that walks the buckets in place instead of copying them.
+   *
+   * @return the values in this collection, in bucket order
+   */
+  @Override
+  public Iterable<ValueType> values() {
+    return () -> new PairIterator<>(pair -> pair.value);
   }
 
-  @Test
-  public void testResize() {
-    HashtableMap<Integer, String> hashtable = new HashtableMap<>(2); // Small initial capacity
-    hashtable.put(1, "one");
-    hashtable.put(2, "two");
-    hashtable.put(3, "three"); // resize!
-
-
-    assertEquals("one", hashtable.get(1), "failed to retrieve value after resizing.");
-    assertEquals("two", hashtable.get(2), "failed to retrieve value after resizing.");
-    assertEquals("three", hashtable.get(3), "failed to retrieve value after resizing.");
+  /**
+   * Passes every key,value pair to action, walking the buckets in place.
+   *
+   * @param action called once with each key and the value it maps to
+   */
+  @Override
+  public void forEach(BiConsumer<? super KeyType, ? super ValueType> action) {
+    for (LinkedList<Pair> bucket : table) {
+      if (bucket != null) {
+        for (Pair pair : bucket) {
+          action.accept(pair.key, pair.value);
+        }
+      }
+    }
   }
 
-  @Test
-  public void testClear(){
-    HashtableMap<Integer, String> hashtable = new HashtableMap<>(2);
-    hashtable.put(1, "data1");
-    hashtable.put(2, "data2");
+  // steps through every pair in every bucket, handing out one part of each pair
+  private class PairIterator<T> implements Iterator<T> {
+    private final Function<Pair, T> part;
+    private int bucket = 0; // next bucket to look in once current runs out
+    private Iterator<Pair> current = null;
 
-    hashtable.clear();
+    PairIterator(Function<Pair, T> part) {
+      this.part = part;
+    }
 
-    assertEquals(0, hashtable.getSize()); // table size should be 0 after clear
+    @Override
+    public boolean hasNext() {
+      while (current == null || !current.hasNext()) {
+        if (bucket == table.length) {
+          return false;
+        }
+        LinkedList<Pair> pairs = table[bucket++];
+        current = pairs == null ? null : pairs.iterator();
+      }
+      return true;
+    }
 
+    @Override
+    public T next() {
+      if (!hasNext()) {
+        throw new NoSuchElementException("no more pairs in this collection");
+      }
+      return part.apply(current.next());
+    }
   }
 
 }
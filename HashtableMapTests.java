@@ -0,0 +1,181 @@
+import org.junit.jupiter.api.Test;
+
+import java.util.NoSuchElementException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for HashtableMap, which declares several constructors and so cannot
+ * hold its own JUnit tests.
+ */
+public class HashtableMapTests {
+
+  @Test
+  public void testPutAndGet(){
+    HashtableMap<Integer, String> hashtable = new HashtableMap<>();
+
+    hashtable.put(100, "data1"); // add keys to map, ensure put works
+    hashtable.put(200, "data2");
+    hashtable.put(322, "data3");
+    hashtable.put(443, "data4");
+
+
+
+    assertEquals("data1", hashtable.get(100)); // test that get returns the correct data
+    assertEquals("data2", hashtable.get(200));
+    assertEquals("data3", hashtable.get(322));
+    assertEquals("data4", hashtable.get(443));
+
+  }
+
+  @Test
+  public void testDuplicatePut(){
+    HashtableMap<Integer, String> hashtable = new HashtableMap<>();
+    hashtable.put(100, "key1");
+    hashtable.put(200, "key2"); // Uudate value for same key
+    assertEquals("key2", hashtable.get(200), "failed to update value for existing key");
+  }
+
+  @Test
+  public void testContainsKey(){
+    HashtableMap<Integer, String> hashtable = new HashtableMap<>();
+
+    hashtable.put(100, "data1"); // add keys to map
+    hashtable.put(200, "data2");
+    hashtable.put(322, "data3");
+    hashtable.put(443, "data4");
+
+    assertTrue(hashtable.containsKey(100), "contains key, should be TRUE"); // true, key is there
+    assertFalse(hashtable.containsKey(500), "does not exist, should be FALSE"); // false, key
+    // does not exist
+
+  }
+
+  @Test
+  public void testRemove(){
+    HashtableMap<Integer, String> hashtable = new HashtableMap<>();
+
+    hashtable.put(100, "data1"); // add values to map
+    hashtable.put(200, "data2");
+    hashtable.put(322, "data3");
+    hashtable.put(443, "data4");
+
+
+
+    assertEquals("data3", hashtable.remove(322), "failed to remove key"); //should remove key
+
+  }
+
+  @Test
+  public void testResize() {
+    HashtableMap<Integer, String> hashtable = new HashtableMap<>(2); // Small initial capacity
+    hashtable.put(1, "one");
+    hashtable.put(2, "two");
+    hashtable.put(3, "three"); // resize!
+
+
+    assertEquals("one", hashtable.get(1), "failed to retrieve value after resizing.");
+    assertEquals("two", hashtable.get(2), "failed to retrieve value after resizing.");
+    assertEquals("three", hashtable.get(3), "failed to retrieve value after resizing.");
+  }
+
+  @Test
+  public void testSizeAndGrowth(){
+    HashtableMap<Integer, String> hashtable = new HashtableMap<>(4, 0.5, 3.0);
+    hashtable.put(1, "one");
+    assertEquals(4, hashtable.getCapacity()); // 1 key is below the load factor
+    hashtable.put(2, "two");
+    assertEquals(12, hashtable.getCapacity()); // grows by the growth factor once reached
+    hashtable.put(3, "three");
+    assertEquals(3, hashtable.getSize());
+    hashtable.remove(2);
+    assertEquals(2, hashtable.getSize());
+    assertThrows(NoSuchElementException.class, () -> hashtable.remove(2));
+    assertEquals(2, hashtable.getSize()); // failed removes leave the size alone
+  }
+
+  @Test
+  public void testEnsureCapacityAndShrink(){
+    HashtableMap<Integer, Integer> hashtable = new HashtableMap<>(8);
+    hashtable.ensureCapacity(1000);
+    int capacity = hashtable.getCapacity();
+    assertTrue(capacity * 0.8 > 1000, "pre-sized table should fit 1000 keys");
+    for (int i = 0; i < 1000; i++) {
+      hashtable.put(i, i);
+    }
+    assertEquals(capacity, hashtable.getCapacity(), "no resize after pre-sizing");
+
+    hashtable.clear();
+    assertEquals(capacity, hashtable.getCapacity(), "clear keeps the capacity by default");
+    hashtable.setShrinkOnClear(true);
+    hashtable.put(1, 1);
+    hashtable.clear();
+    assertEquals(8, hashtable.getCapacity(), "clear shrinks back to the initial capacity");
+    assertEquals(0, hashtable.getSize());
+  }
+
+  @Test
+  public void testClear(){
+    HashtableMap<Integer, String> hashtable = new HashtableMap<>(2);
+    hashtable.put(1, "data1");
+    hashtable.put(2, "data2");
+
+    hashtable.clear();
+
+    assertEquals(0, hashtable.getSize()); // table size should be 0 after clear
+
+  }
+
+  @Test
+  public void testNegativeHashCodes(){
+    HashtableMap<Integer, String> hashtable = new HashtableMap<>(7);
+    hashtable.put(-3, "minus three"); // negative hash codes must land in a valid bucket
+    hashtable.put(Integer.MIN_VALUE, "min"); // Math.abs of this hash code is still negative
+
+    assertEquals("minus three", hashtable.get(-3));
+    assertEquals("min", hashtable.get(Integer.MIN_VALUE));
+    // remove has to look in the same bucket that put used
+    assertEquals("minus three", hashtable.remove(-3));
+    assertFalse(hashtable.containsKey(-3));
+    assertThrows(NoSuchElementException.class, () -> hashtable.get(-3));
+  }
+
+  @Test
+  public void testManyKeys(){
+    HashtableMap<Integer, Integer> hashtable = new HashtableMap<>(2);
+    for (int i = 0; i < 1000; i++) {
+      hashtable.put(i, i * i);
+    }
+    for (int i = 0; i < 1000; i += 2) {
+      assertEquals(i * i, hashtable.remove(i)); // remove every even key after several resizes
+    }
+    for (int i = 0; i < 1000; i++) {
+      assertEquals(i % 2 == 1, hashtable.containsKey(i));
+    }
+    assertEquals(500, hashtable.getSize());
+  }
+
+  @Test
+  public void testViews(){
+    HashtableMap<Integer, String> hashtable = new HashtableMap<>(4);
+    for (int i = 0; i < 10; i++) {
+      hashtable.put(i, "v" + i);
+    }
+    int keySum = 0;
+    for (int key : hashtable.keys()) {
+      keySum += key;
+    }
+    assertEquals(45, keySum); // every key visited exactly once
+
+    int valueCount = 0;
+    for (String value : hashtable.values()) {
+      assertTrue(value.startsWith("v"));
+      valueCount++;
+    }
+    assertEquals(10, valueCount);
+
+    hashtable.forEach((key, value) -> assertEquals("v" + key, value));
+    assertFalse(new HashtableMap<Integer, String>().keys().iterator().hasNext());
+  }
+
+}
@@ -0,0 +1,263 @@
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+
+/**
+ * A min-priority queue of int items 0..capacity-1, each queued at most once
+ * with a double priority.  Because the position of every item in the heap is
+ * tracked, an item's priority can be lowered in place with decreaseKey, so a
+ * search never has to queue the same node twice and no stale entries pile up.
+ *
+ * Each heap node has arity children rather than two.  Wider heaps are
+ * shallower, which makes decreaseKey cheaper and keeps siblings next to each
+ * other in memory, at the cost of more comparisons in pollMin.
+ */
+public class IndexedDAryHeap {
+
+    private final int arity;
+    private int size = 0;
+
+    // heap[0..size-1] holds the queued items in heap order
+    private int[] heap;
+    // position[item] is the index of item within heap, or -1 when not queued
+    private int[] position;
+    // priority[item] is only meaningful while item is queued
+    private double[] priority;
+
+    /**
+     * Creates an empty heap for items 0..capacity-1.
+     *
+     * @param capacity the number of distinct items that can be queued
+     * @param arity    the number of children of each heap node, at least 2
+     */
+    public IndexedDAryHeap(int capacity, int arity) {
+        if (arity < 2)
+            throw new IllegalArgumentException("arity should be at least 2");
+        if (capacity < 0)
+            throw new IllegalArgumentException("capacity should not be negative");
+        this.arity = arity;
+        heap = new int[capacity];
+        position = new int[capacity];
+        priority = new double[capacity];
+        Arrays.fill(position, -1);
+    }
+
+    /**
+     * Creates an empty 4-ary heap that has no room for items until
+     * ensureCapacity is called.
+     */
+    public IndexedDAryHeap() {
+        this(0, 4);
+    }
+
+    /**
+     * @return the number of children of each heap node
+     */
+    public int getArity() {
+        return arity;
+    }
+
+    /**
+     * @return the number of distinct items that can be queued
+     */
+    public int getCapacity() {
+        return position.length;
+    }
+
+    /**
+     * @return the number of items currently queued
+     */
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * @param item the item to check
+     * @return true if item is currently queued
+     */
+    public boolean contains(int item) {
+        return position[item] >= 0;
+    }
+
+    /**
+     * @param item a queued item
+     * @return the priority that item is queued with
+     * @throws NoSuchElementException if item is not queued
+     */
+    public double getPriority(int item) {
+        if (!contains(item))
+            throw new NoSuchElementException("item " + item + " is not queued");
+        return priority[item];
+    }
+
+    /**
+     * Queues an item that is not queued yet.
+     *
+     * @param item  the item to queue
+     * @param value its priority, where lower values are polled first
+     * @throws IllegalArgumentException if item is already queued
+     */
+    public void insert(int item, double value) {
+        if (contains(item))
+            throw new IllegalArgumentException("item " + item + " is already queued");
+        heap[size] = item;
+        position[item] = size;
+        priority[item] = value;
+        size++;
+        siftUp(size - 1);
+    }
+
+    /**
+     * Lowers the priority of a queued item.
+     *
+     * @param item  the queued item
+     * @param value its new priority, which must not be higher than its current one
+     * @throws NoSuchElementException   if item is not queued
+     * @throws IllegalArgumentException if value is higher than the current priority
+     */
+    public void decreaseKey(int item, double value) {
+        if (!contains(item))
+            throw new NoSuchElementException("item " + item + " is not queued");
+        if (value > priority[item])
+            throw new IllegalArgumentException("priority can only be decreased");
+        priority[item] = value;
+        siftUp(position[item]);
+    }
+
+    /**
+     * Changes the priority of a queued item, either up or down.
+     *
+     * @param item  the queued item
+     * @param value its new priority
+     * @throws NoSuchElementException if item is not queued
+     */
+    public void changeKey(int item, double value) {
+        if (!contains(item))
+            throw new NoSuchElementException("item " + item + " is not queued");
+        double old = priority[item];
+        priority[item] = value;
+        if (value < old)
+            siftUp(position[item]);
+        else
+            siftDown(position[item]);
+    }
+
+    /**
+     * Queues item with value, or lowers its priority to value if it is already
+     * queued with a higher one.
+     *
+     * @param item  the item to queue or update
+     * @param value the priority to queue it with
+     */
+    public void insertOrDecrease(int item, double value) {
+        if (!contains(item))
+            insert(item, value);
+        else if (value < priority[item])
+            decreaseKey(item, value);
+    }
+
+    /**
+     * @return the queued item with the lowest priority, without removing it
+     * @throws NoSuchElementException if the heap is empty
+     */
+    public int peekMin() {
+        if (size == 0)
+            throw new NoSuchElementException("heap is empty");
+        return heap[0];
+    }
+
+    /**
+     * Removes and returns the queued item with the lowest priority.
+     *
+     * @return the removed item
+     * @throws NoSuchElementException if the heap is empty
+     */
+    public int pollMin() {
+        if (size == 0)
+            throw new NoSuchElementException("heap is empty");
+        int min = heap[0];
+        position[min] = -1;
+        size--;
+        if (size > 0) {
+            int last = heap[size];
+            heap[0] = last;
+            position[last] = 0;
+            siftDown(0);
+        }
+        return min;
+    }
+
+    /**
+     * Removes every queued item.  This takes time proportional to the number
+     * of items still queued, not to the capacity.
+     */
+    public void clear() {
+        for (int i = 0; i < size; i++)
+            position[heap[i]] = -1;
+        size = 0;
+    }
+
+    /**
+     * Grows the heap so that items 0..capacity-1 can be queued, keeping any
+     * items that are already queued.
+     *
+     * @param capacity the number of distinct items that should fit
+     */
+    public void ensureCapacity(int capacity) {
+        if (capacity <= position.length)
+            return;
+        int oldCapacity = position.length;
+        heap = Arrays.copyOf(heap, capacity);
+        position = Arrays.copyOf(position, capacity);
+        priority = Arrays.copyOf(priority, capacity);
+        Arrays.fill(position, oldCapacity, capacity, -1);
+    }
+
+    // moves the item at index up until its parent is no larger
+    private void siftUp(int index) {
+        int item = heap[index];
+        double value = priority[item];
+        while (index > 0) {
+            int parent = (index - 1) / arity;
+            int parentItem = heap[parent];
+            if (priority[parentItem] <= value)
+                break;
+            heap[index] = parentItem;
+            position[parentItem] = index;
+            index = parent;
+        }
+        heap[index] = item;
+        position[item] = index;
+    }
+
+    // moves the item at index down until none of its children are smaller
+    private void siftDown(int index) {
+        int item = heap[index];
+        double value = priority[item];
+        while (true) {
+            int first = index * arity + 1;
+            if (first >= size)
+                break;
+            int last = Math.min(first + arity, size);
+            int smallest = first;
+            double smallestValue = priority[heap[first]];
+            for (int child = first + 1; child < last; child++) {
+                double childValue = priority[heap[child]];
+                if (childValue < smallestValue) {
+                    smallest = child;
+                    smallestValue = childValue;
+                }
+            }
+            if (smallestValue >= value)
+                break;
+            heap[index] = heap[smallest];
+            position[heap[index]] = index;
+            index = smallest;
+        }
+        heap[index] = item;
+        position[item] = index;
+    }
+}
@@ -0,0 +1,75 @@
+import org.junit.jupiter.api.Test;
+
+import java.util.NoSuchElementException;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for IndexedDAryHeap, which declares two constructors and so cannot
+ * hold its own JUnit tests.
+ */
+public class IndexedDAryHeapTests {
+
+    @Test
+    public void testPollsInPriorityOrder() {
+        for (int arity = 2; arity <= 8; arity++) {
+            IndexedDAryHeap heap = new IndexedDAryHeap(1000, arity);
+            Random random = new Random(arity);
+            double[] values = new double[1000];
+            for (int i = 0; i < 1000; i++) {
+                values[i] = random.nextDouble() * 100;
+                heap.insert(i, values[i]);
+            }
+            // lower half of the priorities, some of them below everything else
+            for (int i = 0; i < 1000; i += 2) {
+                values[i] = values[i] / 2 - (i % 10 == 0 ? 100 : 0);
+                heap.decreaseKey(i, values[i]);
+            }
+            double previous = Double.NEGATIVE_INFINITY;
+            for (int i = 0; i < 1000; i++) {
+                int item = heap.pollMin();
+                assertTrue(values[item] >= previous, "items polled out of order");
+                assertFalse(heap.contains(item));
+                previous = values[item];
+            }
+            assertTrue(heap.isEmpty());
+        }
+    }
+
+    @Test
+    public void testInsertOrDecreaseAndClear() {
+        IndexedDAryHeap heap = new IndexedDAryHeap(4, 4);
+        heap.insertOrDecrease(2, 5.0);
+        heap.insertOrDecrease(2, 7.0); // higher priority is ignored
+        assertEquals(5.0, heap.getPriority(2));
+        heap.insertOrDecrease(2, 1.0);
+        heap.insertOrDecrease(3, 2.0);
+        assertEquals(2, heap.peekMin());
+        assertThrows(IllegalArgumentException.class, () -> heap.insert(3, 0.0));
+        assertThrows(IllegalArgumentException.class, () -> heap.decreaseKey(3, 9.0));
+
+        heap.clear();
+        assertTrue(heap.isEmpty());
+        assertFalse(heap.contains(2));
+        assertThrows(NoSuchElementException.class, heap::pollMin);
+        heap.ensureCapacity(10);
+        heap.insert(9, 1.0);
+        assertEquals(9, heap.pollMin());
+    }
+
+    @Test
+    public void testChangeKey() {
+        IndexedDAryHeap heap = new IndexedDAryHeap(5, 3);
+        for (int i = 0; i < 5; i++)
+            heap.insert(i, i);
+        heap.changeKey(0, 10.0); // up
+        heap.changeKey(4, -1.0); // down
+        assertEquals(4, heap.pollMin());
+        assertEquals(1, heap.pollMin());
+        assertEquals(2, heap.pollMin());
+        assertEquals(3, heap.pollMin());
+        assertEquals(0, heap.pollMin());
+        assertThrows(NoSuchElementException.class, () -> heap.changeKey(0, 1.0));
+    }
+}
@@ -0,0 +1,46 @@
+import java.util.NoSuchElementException;
+
+/**
+ * A read-only graph whose nodes are numbered 0..n-1 and whose edges are
+ * numbered 0..m-1, which is all that a ShortestPathTree needs to translate
+ * the indexes it stores back into node data and edge weights.  Implemented
+ * by CompactGraph, whose arrays live on the heap, and by MappedGraph, whose
+ * arrays live in a memory-mapped snapshot file.
+ *
+ * @param NodeType is the data type stored at each graph node
+ */
+public interface IndexedGraph<NodeType> {
+
+    /**
+     * @return the number of nodes in this graph
+     */
+    public int getNodeCount();
+
+    /**
+     * @return the number of edges in this graph
+     */
+    public int getEdgeCount();
+
+    /**
+     * Finds the index of the node holding some data.
+     *
+     * @param nodeData the data to look for
+     * @return the index of that node, or -1 if no node holds nodeData
+     */
+    public int indexOf(NodeType nodeData);
+
+    /**
+     * Retrieves the data stored at a node.
+     *
+     * @param index the index of the node
+     * @return the data stored at that node
+     * @throws NoSuchElementException if there is no node with that index
+     */
+    public NodeType dataAt(int index);
+
+    /**
+     * @param edge the index of an edge
+     * @return the weight of that edge
+     */
+    public double weightAt(int edge);
+}
@@ -0,0 +1,286 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Precomputed shortest path costs from and to a few landmark nodes, which
+ * give lower bounds on the cost between any two nodes through the triangle
+ * inequality: for a landmark L, the cost from v to t is at least
+ * cost(L, t) - cost(L, v) and at least cost(v, L) - cost(t, L).  A* searches
+ * in SearchMode.LANDMARKS use the largest of these bounds to head towards
+ * their target without needing coordinates for the nodes.
+ *
+ * Landmarks are chosen one at a time, each as the node farthest from the
+ * landmarks chosen so far, so that they end up spread around the edges of
+ * the graph where the bounds are tightest.  Tables are tied to a graph by its
+ * fingerprint, and can be saved next to the graph's file so that a later
+ * process does not have to build them again.
+ *
+ * @param NodeType is the data type stored at each graph node
+ */
+public class LandmarkTable<NodeType> {
+
+    // first bytes of a saved table, "ALT1"
+    private static final int MAGIC = 0x414c5431;
+    // magic number, fingerprint, node count and landmark count
+    private static final int HEADER_BYTES = 20;
+
+    private final long fingerprint;
+    private final int nodeCount;
+    private final int[] landmarks;
+
+    // costs from each landmark to each node and from each node to each
+    // landmark, stored node by node so that one node's costs to all
+    // landmarks sit together: fromLandmark[v * k + l] is the cost of the
+    // shortest path from landmark l to node v, and infinity if there is none
+    private final double[] fromLandmark;
+    private final double[] toLandmark;
+
+    /**
+     * Creates a table from costs that have already been computed.  The
+     * arrays are kept rather than copied, so the caller must not modify them
+     * afterwards.
+     *
+     * @param fingerprint  the fingerprint of the graph the costs belong to
+     * @param nodeCount    the number of nodes in that graph
+     * @param landmarks    the index of each landmark node
+     * @param fromLandmark cost from landmark l to node v at v * k + l
+     * @param toLandmark   cost from node v to landmark l at v * k + l
+     */
+    public LandmarkTable(long fingerprint, int nodeCount, int[] landmarks,
+                         double[] fromLandmark, double[] toLandmark) {
+        if (fromLandmark.length != nodeCount * landmarks.length
+                || toLandmark.length != nodeCount * landmarks.length)
+            throw new IllegalArgumentException("cost arrays should hold one cost per node and landmark");
+        this.fingerprint = fingerprint;
+        this.nodeCount = nodeCount;
+        this.landmarks = landmarks;
+        this.fromLandmark = fromLandmark;
+        this.toLandmark = toLandmark;
+    }
+
+    /**
+     * Chooses landmarks for the current state of a graph by farthest-point
+     * selection, and computes the costs from and to each of them.  This runs
+     * two full searches for each landmark, plus two to pick the first one.
+     *
+     * @param graph the graph to build the table for
+     * @param count the number of landmarks to choose, at least 1
+     * @return the landmark table for graph, with at most count landmarks
+     */
+    public static <NodeType> LandmarkTable<NodeType> build(DijkstraGraph<NodeType, ?> graph, int count) {
+        if (count < 1)
+            throw new IllegalArgumentException("landmark count should be at least 1");
+        CompactGraph<NodeType> compact = graph.freeze();
+        int n = compact.getNodeCount();
+        int k = Math.min(count, n);
+        int[] landmarks = new int[k];
+        double[] fromLandmark = new double[n * k];
+        double[] toLandmark = new double[n * k];
+
+        // closest[v] is v's distance, in either direction, to the nearest node
+        // chosen so far; the node with the largest one becomes the next
+        // landmark, and nodes no landmark connects to come first of all
+        double[] closest = new double[n];
+        Arrays.fill(closest, Double.POSITIVE_INFINITY);
+        boolean[] chosen = new boolean[n];
+        if (n > 0)
+            updateClosest(graph, compact, 0, closest, null, null, 0, 0);
+        for (int l = 0; l < k; l++) {
+            int next = -1;
+            for (int v = 0; v < n; v++)
+                if (!chosen[v] && (next < 0 || closest[v] > closest[next]))
+                    next = v;
+            landmarks[l] = next;
+            chosen[next] = true;
+            updateClosest(graph, compact, next, closest, fromLandmark, toLandmark, l, k);
+        }
+        return new LandmarkTable<>(compact.fingerprint(), n, landmarks, fromLandmark, toLandmark);
+    }
+
+    // searches both ways from node, lowering closest[] to its costs, and
+    // copies those costs into column l of the cost arrays when they're given
+    private static <NodeType> void updateClosest(DijkstraGraph<NodeType, ?> graph,
+                                                 CompactGraph<NodeType> compact, int node,
+                                                 double[] closest, double[] fromLandmark,
+                                                 double[] toLandmark, int l, int k) {
+        int n = compact.getNodeCount();
+        SearchWorkspace forward = graph.search(compact, node, -1);
+        for (int v = 0; v < n; v++) {
+            double cost = forward.cost(v);
+            closest[v] = Math.min(closest[v], cost);
+            if (fromLandmark != null)
+                fromLandmark[v * k + l] = cost;
+        }
+        SearchWorkspace backward = graph.reverseSearch(compact, node);
+        for (int v = 0; v < n; v++) {
+            double cost = backward.cost(v);
+            closest[v] = Math.min(closest[v], cost);
+            if (toLandmark != null)
+                toLandmark[v * k + l] = cost;
+        }
+    }
+
+    /**
+     * Returns a lower bound on the cost of the shortest path from node to
+     * target.  Landmarks that cannot reach or be reached from the nodes
+     * involved give no bound and are skipped.
+     *
+     * @param node   index of the node the path starts at
+     * @param target index of the node the path ends at
+     * @return a cost that is no larger than that of the shortest path
+     */
+    public double lowerBound(int node, int target) {
+        int k = landmarks.length;
+        int v = node * k;
+        int t = target * k;
+        double bound = 0;
+        for (int l = 0; l < k; l++) {
+            // cost(L, t) <= cost(L, v) + cost(v, t)
+            double fromTarget = fromLandmark[t + l];
+            double fromNode = fromLandmark[v + l];
+            if (fromTarget != Double.POSITIVE_INFINITY && fromNode != Double.POSITIVE_INFINITY)
+                bound = Math.max(bound, fromTarget - fromNode);
+            // cost(v, L) <= cost(v, t) + cost(t, L)
+            double toNode = toLandmark[v + l];
+            double toTarget = toLandmark[t + l];
+            if (toNode != Double.POSITIVE_INFINITY && toTarget != Double.POSITIVE_INFINITY)
+                bound = Math.max(bound, toNode - toTarget);
+        }
+        return bound;
+    }
+
+    /**
+     * @return the fingerprint of the graph this table was built for
+     */
+    public long getFingerprint() {
+        return fingerprint;
+    }
+
+    /**
+     * @return the number of landmarks in this table
+     */
+    public int getLandmarkCount() {
+        return landmarks.length;
+    }
+
+    /**
+     * @param l a landmark number, from 0 to getLandmarkCount()-1
+     * @return the index of that landmark's node
+     */
+    public int getLandmark(int l) {
+        return landmarks[l];
+    }
+
+    /**
+     * Writes this table to a file, so that it can be loaded again instead of
+     * being rebuilt.  The table is written to a temporary file next to it and
+     * then moved into place, so a process loading the file at the same time
+     * sees either the old table or the new one but never part of a table.
+     *
+     * @param filename the path of the file to write
+     * @throws IOException if there was any problem writing the file
+     */
+    public void save(String filename) throws IOException {
+        Path file = Path.of(filename).toAbsolutePath();
+        Path temporary = file.resolveSibling(file.getFileName() + "." + ProcessHandle.current().pid()
+                                             + "." + System.nanoTime() + ".tmp");
+        try {
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                    Files.newOutputStream(temporary, StandardOpenOption.CREATE_NEW)))) {
+                out.writeInt(MAGIC);
+                out.writeLong(fingerprint);
+                out.writeInt(nodeCount);
+                out.writeInt(landmarks.length);
+                for (int landmark : landmarks)
+                    out.writeInt(landmark);
+                for (double cost : fromLandmark)
+                    out.writeDouble(cost);
+                for (double cost : toLandmark)
+                    out.writeDouble(cost);
+            }
+            Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING,
+                       StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temporary);
+        }
+    }
+
+    /**
+     * Reads a table written by save.
+     *
+     * @param filename the path of the file to read
+     * @return the table held in that file
+     * @throws IOException if the file could not be read, or does not hold a
+     *                     landmark table
+     */
+    public static <NodeType> LandmarkTable<NodeType> load(String filename) throws IOException {
+        try (DataInputStream in = new DataInputStream(
+                new BufferedInputStream(new FileInputStream(filename)))) {
+            if (in.readInt() != MAGIC)
+                throw new IOException(filename + " does not hold a landmark table");
+            long fingerprint = in.readLong();
+            int nodeCount = in.readInt();
+            int k = in.readInt();
+            if (nodeCount < 0 || k < 0 || (long) nodeCount * k > Integer.MAX_VALUE)
+                throw new IOException(filename + " holds a corrupt landmark table");
+            // the header has to match the file's length before anything is
+            // allocated, so a damaged header can't ask for gigabytes of costs
+            long length = HEADER_BYTES + (long) k * Integer.BYTES
+                    + 2L * nodeCount * k * Double.BYTES;
+            if (new File(filename).length() != length)
+                throw new IOException(filename + " holds a truncated or corrupt landmark table");
+            int[] landmarks = new int[k];
+            for (int l = 0; l < k; l++)
+                landmarks[l] = in.readInt();
+            double[] fromLandmark = new double[nodeCount * k];
+            for (int i = 0; i < fromLandmark.length; i++)
+                fromLandmark[i] = in.readDouble();
+            double[] toLandmark = new double[nodeCount * k];
+            for (int i = 0; i < toLandmark.length; i++)
+                toLandmark[i] = in.readDouble();
+            return new LandmarkTable<>(fingerprint, nodeCount, landmarks, fromLandmark, toLandmark);
+        }
+    }
+
+    /**
+     * Loads the table saved in filename if it was built for the current state
+     * of graph with count landmarks.  Otherwise builds a new table and saves
+     * it to filename for next time.
+     *
+     * @param graph    the graph the table is for
+     * @param filename the path the table is saved at
+     * @param count    the number of landmarks to choose
+     * @return a landmark table for graph
+     */
+    public static <NodeType> LandmarkTable<NodeType> loadOrBuild(DijkstraGraph<NodeType, ?> graph,
+                                                                 String filename, int count) {
+        CompactGraph<NodeType> compact = graph.freeze();
+        if (new File(filename).isFile()) {
+            try {
+                LandmarkTable<NodeType> table = load(filename);
+                if (table.fingerprint == compact.fingerprint()
+                        && table.getLandmarkCount() == Math.min(count, compact.getNodeCount()))
+                    return table;
+            } catch (IOException e) {
+                // unreadable tables are rebuilt below
+            }
+        }
+        LandmarkTable<NodeType> table = build(graph, count);
+        try {
+            table.save(filename);
+        } catch (IOException e) {
+            // the table still works, it just has to be built again next time
+        }
+        return table;
+    }
+}
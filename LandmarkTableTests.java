@@ -0,0 +1,78 @@
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for LandmarkTable and the A* searches that use it.
+ */
+public class LandmarkTableTests {
+
+    @Test
+    public void testLowerBounds() {
+        DijkstraGraph<Integer, Double> graph = TestGraphs.randomGraph(5, 80, 240);
+        LandmarkTable<Integer> table = LandmarkTable.build(graph, 6);
+        assertEquals(6, table.getLandmarkCount());
+        CompactGraph<Integer> compact = graph.freeze();
+        for (int v = 0; v < 80; v++) {
+            for (int t = 0; t < 80; t++) {
+                double bound = table.lowerBound(compact.indexOf(v), compact.indexOf(t));
+                assertTrue(bound >= 0);
+                try {
+                    assertTrue(bound <= graph.shortestPathCost(v, t) + 1e-9, "bound above path cost");
+                } catch (NoSuchElementException e) {
+                    // any bound is fine when there is no path
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testSaveAndLoad() throws IOException {
+        DijkstraGraph<String, Double> graph = new DijkstraGraph<>();
+        for (String node : new String[] { "A", "B", "C", "D" })
+            graph.insertNode(node);
+        graph.insertEdge("A", "B", 1.0);
+        graph.insertEdge("B", "C", 2.0);
+        graph.insertEdge("C", "D", 3.0);
+        graph.insertEdge("D", "A", 4.0);
+        File file = File.createTempFile("landmarks", ".bin");
+        try {
+            assertTrue(file.delete());
+            LandmarkTable<String> built = LandmarkTable.loadOrBuild(graph, file.getPath(), 2);
+            assertTrue(file.isFile());
+            LandmarkTable<String> loaded = LandmarkTable.load(file.getPath());
+            assertEquals(built.getFingerprint(), loaded.getFingerprint());
+            for (int v = 0; v < 4; v++)
+                for (int t = 0; t < 4; t++)
+                    assertEquals(built.lowerBound(v, t), loaded.lowerBound(v, t));
+
+            // a changed graph no longer matches the saved table
+            graph.insertEdge("A", "C", 1.0);
+            assertThrows(IllegalArgumentException.class, () -> graph.setLandmarks(loaded));
+            LandmarkTable<String> rebuilt = LandmarkTable.loadOrBuild(graph, file.getPath(), 2);
+            assertNotEquals(loaded.getFingerprint(), rebuilt.getFingerprint());
+            graph.setLandmarks(rebuilt);
+            assertEquals(4.0, graph.shortestPathCost("A", "D", SearchMode.LANDMARKS), 1e-9);
+
+            // a header that claims more costs than the file holds is rejected
+            // before they are allocated, and loadOrBuild builds a new table
+            byte[] bytes = Files.readAllBytes(file.toPath());
+            ByteBuffer.wrap(bytes).putInt(12, Integer.MAX_VALUE).putInt(16, 1);
+            Files.write(file.toPath(), bytes);
+            assertThrows(IOException.class, () -> LandmarkTable.load(file.getPath()));
+            Files.write(file.toPath(), Arrays.copyOf(bytes, 10));
+            assertThrows(IOException.class, () -> LandmarkTable.load(file.getPath()));
+            assertEquals(rebuilt.getFingerprint(),
+                         LandmarkTable.loadOrBuild(graph, file.getPath(), 2).getFingerprint());
+        } finally {
+            file.delete();
+        }
+    }
+}
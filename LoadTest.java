@@ -0,0 +1,222 @@
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Load test for WebApp's server mode.  For each executor it starts a WebApp
+ * server in a new JVM, and then has many concurrent clients send it requests
+ * in a closed loop: each client waits for its response before sending its
+ * next request, reusing its connection like a browser does.  Most requests
+ * ask for a shortest path between two random campus locations and the rest
+ * for the longest list from one, which is the slowest kind of request.  After
+ * a warm up it reports the throughput and the latency percentiles.
+ *
+ * Run with: java LoadTest [clients] [seconds] [executor...]
+ * which defaults to 1000 clients measured for 20 seconds against the server
+ * as it was (handlers on the dispatcher thread with a backlog of 8) and then
+ * against the fixed, workstealing and virtual executors with a backlog of
+ * 1024.  An executor is any --executor kind that WebApp accepts, optionally
+ * followed by "/" and a backlog, such as fixed:16/256.
+ */
+public class LoadTest {
+
+    // how long clients run before their requests are measured
+    private static final int WARM_UP_SECONDS = 5;
+
+    // share of requests that ask for the longest list from a location
+    private static final double LONGEST_LIST_SHARE = 0.05;
+
+    public static void main(String[] args) throws Exception {
+        int clients = args.length > 0 ? Integer.parseInt(args[0]) : 1000;
+        int seconds = args.length > 1 ? Integer.parseInt(args[1]) : 20;
+        String[] executors = args.length > 2 ? Arrays.copyOfRange(args, 2, args.length)
+            : new String[] { "dispatcher/8", "fixed/1024", "workstealing/1024", "virtual/1024" };
+        // let every client keep its own connection open between requests
+        System.setProperty("http.maxConnections", String.valueOf(clients));
+
+        Backend backend = new Backend(new DijkstraGraph<>());
+        backend.loadGraphData("campus.dot");
+        List<String> locations = backend.getListOfAllLocations();
+
+        System.out.printf("%d clients, %d s warm up, %d s measured, %d cores%n", clients,
+                          WARM_UP_SECONDS, seconds, Runtime.getRuntime().availableProcessors());
+        int port = 18_000;
+        for (String executor : executors) {
+            String[] parts = executor.split("/", 2);
+            String backlog = parts.length > 1 ? parts[1] : "1024";
+            port++;
+            File log = File.createTempFile("webapp", ".log");
+            ProcessBuilder builder = new ProcessBuilder(
+                ProcessHandle.current().info().command().orElse("java"),
+                "-cp", System.getProperty("java.class.path"), "WebApp", String.valueOf(port),
+                "--executor=" + parts[0], "--backlog=" + backlog);
+            builder.redirectErrorStream(true).redirectOutput(log);
+            Process server = builder.start();
+            try {
+                if (!awaitServer(server, port)) {
+                    String output = new String(Files.readAllBytes(log.toPath()), StandardCharsets.UTF_8);
+                    System.out.printf("%-20s did not start: %s%n", executor,
+                                      output.lines().filter(line -> line.contains("Exception"))
+                                            .findFirst().orElse(output.trim()));
+                    continue;
+                }
+                run(executor, port, clients, seconds, locations);
+            } finally {
+                server.destroy();
+                server.waitFor();
+                log.delete();
+            }
+        }
+    }
+
+    // waits until the server on port answers, returning false if it exits
+    // or does not answer within 30 seconds
+    private static boolean awaitServer(Process server, int port) throws InterruptedException {
+        long deadline = System.nanoTime() + 30_000_000_000L;
+        while (System.nanoTime() < deadline && server.isAlive()) {
+            try {
+                HttpURLConnection connection =
+                    (HttpURLConnection) new URL("http://localhost:" + port + "/status").openConnection();
+                if (connection.getResponseCode() == 200) {
+                    connection.getInputStream().readAllBytes();
+                    return true;
+                }
+            } catch (IOException e) {
+                // not listening yet
+            }
+            Thread.sleep(100);
+        }
+        return false;
+    }
+
+    // runs every client against the server on port and prints the results.
+    // A request counts towards the latencies if it finishes after the warm
+    // up, however long before that it was sent, so that clients the server
+    // left waiting are not dropped from the results.  Requests still waiting
+    // a few seconds after the end count with the time they had waited so far.
+    private static void run(String executor, int port, int clients, int seconds,
+                            List<String> locations) throws InterruptedException {
+        long start = System.nanoTime();
+        long measureFrom = start + WARM_UP_SECONDS * 1_000_000_000L;
+        long end = measureFrom + seconds * 1_000_000_000L;
+        // each client's measured latencies, once it has finished
+        AtomicReferenceArray<long[]> latencies = new AtomicReferenceArray<>(clients);
+        // when each client sent the request it is waiting for, or 0
+        AtomicLongArray waitingSince = new AtomicLongArray(clients);
+        AtomicLong completed = new AtomicLong();
+        AtomicLong errors = new AtomicLong();
+        CountDownLatch done = new CountDownLatch(clients);
+        for (int c = 0; c < clients; c++) {
+            final int client = c;
+            Thread thread = new Thread(() -> {
+                Random random = new Random(client);
+                long[] measured = new long[256];
+                int count = 0;
+                while (System.nanoTime() < end) {
+                    String url = "http://localhost:" + port + "/?" + randomQuery(random, locations);
+                    long sent = System.nanoTime();
+                    waitingSince.set(client, sent);
+                    boolean ok = request(url);
+                    long received = System.nanoTime();
+                    waitingSince.set(client, 0);
+                    if (received < measureFrom)
+                        continue;
+                    if (!ok) {
+                        errors.incrementAndGet();
+                        continue;
+                    }
+                    if (received <= end)
+                        completed.incrementAndGet();
+                    if (count == measured.length)
+                        measured = Arrays.copyOf(measured, count * 2);
+                    measured[count++] = received - sent;
+                }
+                latencies.set(client, Arrays.copyOf(measured, count));
+                done.countDown();
+            });
+            thread.setDaemon(true);
+            thread.start();
+        }
+        done.await(WARM_UP_SECONDS + seconds + 5, TimeUnit.SECONDS);
+
+        long now = System.nanoTime();
+        long[][] finished = new long[clients][];
+        int total = 0;
+        for (int c = 0; c < clients; c++) {
+            finished[c] = latencies.get(c);
+            total += finished[c] == null ? 1 : finished[c].length;
+        }
+        long[] all = new long[total];
+        int position = 0;
+        int unfinished = 0;
+        for (int c = 0; c < clients; c++) {
+            if (finished[c] != null) {
+                System.arraycopy(finished[c], 0, all, position, finished[c].length);
+                position += finished[c].length;
+            } else {
+                // still waiting for a response: count the wait so far as a lower bound
+                long since = waitingSince.get(c);
+                all[position++] = since == 0 ? 0 : now - since;
+                unfinished++;
+            }
+        }
+        Arrays.sort(all);
+        System.out.printf("%-20s %6.0f requests/s   p50 %7.1f ms   p99 %8.1f ms   max %8.1f ms   errors %d   unfinished %d%n",
+                          executor, completed.get() / (double) seconds, percentile(all, 0.50),
+                          percentile(all, 0.99), all.length == 0 ? 0 : all[all.length - 1] / 1e6,
+                          errors.get(), unfinished);
+    }
+
+    // a random shortest path or longest list query string
+    private static String randomQuery(Random random, List<String> locations) {
+        String start = encode(locations.get(random.nextInt(locations.size())));
+        if (random.nextDouble() < LONGEST_LIST_SHARE)
+            return "from=" + start;
+        return "start=" + start + "&end=" + encode(locations.get(random.nextInt(locations.size())));
+    }
+
+    private static String encode(String location) {
+        return URLEncoder.encode(location, StandardCharsets.UTF_8);
+    }
+
+    // sends one request and reads the whole response, returning true if it
+    // succeeded
+    private static boolean request(String url) {
+        try {
+            HttpURLConnection connection = (HttpURLConnection) new URL(url).openConnection();
+            connection.setConnectTimeout(60_000);
+            connection.setReadTimeout(60_000);
+            if (connection.getResponseCode() != 200)
+                return false;
+            // reading to the end and closing leaves the connection open for reuse
+            try (InputStream in = connection.getInputStream()) {
+                in.readAllBytes();
+            }
+            return true;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    // the latency in milliseconds that a fraction of the sorted latencies
+    // are at or below
+    private static double percentile(long[] sorted, double fraction) {
+        if (sorted.length == 0)
+            return 0;
+        int index = (int) Math.ceil(fraction * sorted.length) - 1;
+        return sorted[Math.max(0, index)] / 1e6;
+    }
+}
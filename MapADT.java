@@ -1,5 +1,6 @@
 import java.util.NoSuchElementException;
 import java.util.List;
+import java.util.function.BiConsumer;
 
 
 /**
@@ -60,6 +61,36 @@ public interface MapADT<KeyType, ValueType> {
      */
     public int getCapacity();
 
+    /**
+     * Grows this collection ahead of time so that it can hold at least
+     * expectedSize keys without having to resize along the way.
+     * @param expectedSize the number of keys this collection should be ready for
+     */
+    public void ensureCapacity(int expectedSize);
+
     public List<KeyType> getKeys();
 
+    /**
+     * Returns a view of the keys in this collection that iterates over them
+     * in place, without copying them into a new list first.  The collection
+     * should not be modified while this view is being iterated over.
+     * @return the keys in this collection, in no particular order
+     */
+    public Iterable<KeyType> keys();
+
+    /**
+     * Returns a view of the values in this collection that iterates over them
+     * in place, without copying them into a new list first.  The collection
+     * should not be modified while this view is being iterated over.
+     * @return the values in this collection, in no particular order
+     */
+    public Iterable<ValueType> values();
+
+    /**
+     * Passes every key,value pair in this collection to action, without
+     * copying them first.
+     * @param action called once with each key and the value it maps to
+     */
+    public void forEach(BiConsumer<? super KeyType, ? super ValueType> action);
+
 }
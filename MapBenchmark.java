@@ -0,0 +1,138 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Microbenchmark for the MapADT implementations used by the graph.  For each
+ * map it measures the average cost of a successful get and an unsuccessful
+ * containsKey as the map grows, so that it is easy to see whether lookups
+ * stay flat or grow with the number of keys.  It also reports how much heap
+ * each map retains once it is filled.
+ *
+ * Run with: java MapBenchmark [largest size]   (defaults to 1,000,000 keys)
+ *
+ * Run with: java MapBenchmark concurrent
+ * to measure ConcurrentHashtableMap read throughput with 1, 4, 16 and 64
+ * reader threads while one writer keeps updating the map.
+ */
+public class MapBenchmark {
+
+    // number of timed lookups performed against each map, regardless of size
+    private static final int LOOKUPS = 2_000_000;
+
+    // results are accumulated here so the JIT can't drop the timed loops
+    private static long sink = 0;
+
+    public static void main(String[] args) throws InterruptedException {
+        if (args.length > 0 && args[0].equals("concurrent")) {
+            for (int readers : new int[] { 1, 4, 16, 64 })
+                concurrentReads(readers);
+            return;
+        }
+        int largest = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        benchmark("HashtableMap", HashtableMap::new, largest);
+        benchmark("OpenAddressingMap", OpenAddressingMap::new, largest);
+        if (sink == 42) System.out.println(); // keeps sink observable
+    }
+
+    private static void benchmark(String name, Supplier<MapADT<Integer, Integer>> factory,
+                                  int largest) {
+        System.out.println(name);
+        System.out.printf("%10s %14s %14s %14s%n", "keys", "get ns/op", "miss ns/op",
+                "bytes/entry");
+        for (int size = 100; size <= largest; size *= 10) {
+            // boxed keys and values are created first, so that only the
+            // memory used by the map itself is counted
+            Integer[] boxed = new Integer[size];
+            for (int i = 0; i < size; i++)
+                boxed[i] = i;
+            long before = usedHeap();
+            MapADT<Integer, Integer> map = factory.get();
+            for (int i = 0; i < size; i++)
+                map.put(boxed[i], boxed[i]);
+            long footprint = usedHeap() - before;
+
+            // run each measurement twice and only report the warmed up one
+            timeLookups(map, size);
+            double[] nanos = timeLookups(map, size);
+            System.out.printf("%10d %14.1f %14.1f %14.1f%n", size, nanos[0], nanos[1],
+                    (double) footprint / size);
+        }
+    }
+
+    // times random hits and misses, returning the average ns for each
+    private static double[] timeLookups(MapADT<Integer, Integer> map, int size) {
+        Random random = new Random(400);
+        int[] hits = new int[LOOKUPS];
+        for (int i = 0; i < LOOKUPS; i++)
+            hits[i] = random.nextInt(size);
+
+        long start = System.nanoTime();
+        for (int key : hits)
+            sink += map.get(key);
+        long hitTime = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        for (int key : hits)
+            if (map.containsKey(key + size)) sink++;
+        long missTime = System.nanoTime() - start;
+
+        return new double[] { (double) hitTime / LOOKUPS, (double) missTime / LOOKUPS };
+    }
+
+    // runs readers threads doing random gets against a 100,000 key map for
+    // two seconds while a single writer keeps inserting and removing keys
+    private static void concurrentReads(int readers) throws InterruptedException {
+        final int keys = 100_000;
+        ConcurrentHashtableMap<Integer, Integer> map = new ConcurrentHashtableMap<>();
+        for (int i = 0; i < keys; i++)
+            map.put(i, i);
+
+        AtomicBoolean done = new AtomicBoolean(false);
+        AtomicLong reads = new AtomicLong();
+        AtomicLong writes = new AtomicLong();
+        List<Thread> threads = new ArrayList<>();
+        for (int r = 0; r < readers; r++) {
+            final int seed = r;
+            threads.add(new Thread(() -> {
+                Random random = new Random(seed);
+                long count = 0, found = 0;
+                while (!done.get()) {
+                    for (int i = 0; i < 1000; i++)
+                        found += map.get(random.nextInt(keys));
+                    count += 1000;
+                }
+                reads.addAndGet(count);
+                if (found == 42) System.out.println();
+            }));
+        }
+        threads.add(new Thread(() -> {
+            long count = 0;
+            while (!done.get()) {
+                int key = keys + (int) (count % keys);
+                map.put(key, key);
+                map.remove(key);
+                count += 2;
+            }
+            writes.addAndGet(count);
+        }));
+
+        for (Thread thread : threads) thread.start();
+        Thread.sleep(2000);
+        done.set(true);
+        for (Thread thread : threads) thread.join();
+        System.out.printf("%3d readers: %8.1f M reads/s, %6.1f M writes/s%n", readers,
+                reads.get() / 2e6, writes.get() / 2e6);
+    }
+
+    // heap in use after asking the collector to clean up a few times
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++)
+            System.gc();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
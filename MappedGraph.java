@@ -0,0 +1,478 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.zip.CRC32C;
+
+/**
+ * A read-only graph of named locations that is served straight out of a
+ * memory-mapped snapshot file, so that it can answer queries as soon as the
+ * file is opened instead of after parsing a DOT file and building nodes and
+ * edges.  Searches read the CSR arrays (see CompactGraph) through buffers
+ * over the mapping, so the operating system only pages in the parts of the
+ * file that queries touch, and processes that map the same file share those
+ * pages.  Node names are only decoded when a query returns them.
+ *
+ * A snapshot is written by write() from any BaseGraph with String nodes.  It
+ * is a little-endian file laid out as:
+ * <pre>
+ *   header     magic "UWCG", format version, node count n, edge count m,
+ *              slot count s, name byte count b, CRC32C of everything after
+ *              the header (32 bytes in all)
+ *   weights    m doubles, the weight of each edge
+ *   offsets    n+1 ints, where the edges leaving each node begin
+ *   targets    m ints, the successor of each edge
+ *   names      n+1 ints, where each node's UTF-8 name begins in the name bytes
+ *   slots      s ints, an open addressing table from name hash to node+1
+ *   name bytes b bytes, every node name once, in node order
+ * </pre>
+ * Edges refer to nodes only by index, so each name is stored once however
+ * many edges use it.  Nodes keep the order of the graph's getAllNodes(), and
+ * edges the order of each node's leaving edges, so searches here settle
+ * nodes in the same order and return the same paths as DijkstraGraph.
+ *
+ * Buffers are only read at absolute positions, so one instance can be shared
+ * between threads.  Every method that would change the graph throws an
+ * UnsupportedOperationException.
+ */
+public class MappedGraph implements GraphADT<String, Double>, IndexedGraph<String> {
+
+    private static final int MAGIC = 0x55574347; // "UWCG"
+    private static final int FORMAT_VERSION = 1;
+    static final int HEADER_BYTES = 32;
+    private static final int CHECKSUM_POSITION = 24;
+
+    // each thread reuses one workspace for all of its searches
+    private static final ThreadLocal<SearchWorkspace> WORKSPACE =
+        ThreadLocal.withInitial(SearchWorkspace::new);
+    private static final int HEAP_ARITY = 4;
+
+    private final int nodeCount;
+    private final int edgeCount;
+
+    // views of the sections of the mapped file
+    private final DoubleBuffer weights;
+    private final IntBuffer offsets;
+    private final IntBuffer targets;
+    private final IntBuffer nameOffsets;
+    private final IntBuffer slots;
+    private final ByteBuffer names;
+
+    // node names decoded so far, by node index (null until first needed);
+    // Strings are immutable, so racing threads at worst decode one twice
+    private final String[] decoded;
+
+    /**
+     * Checks a mapped snapshot and sets up views of its sections.
+     *
+     * @param file   the file that was mapped, for error messages
+     * @param buffer the whole file, mapped read-only or in memory
+     * @throws IOException if the file is not a snapshot of this format or
+     *         its checksum does not match
+     */
+    private MappedGraph(Path file, ByteBuffer buffer) throws IOException {
+        buffer.order(ByteOrder.LITTLE_ENDIAN);
+        if (buffer.getInt(0) != MAGIC)
+            throw new IOException(file + " is not a graph snapshot");
+        if (buffer.getInt(4) != FORMAT_VERSION)
+            throw new IOException(file + " has snapshot format version " + buffer.getInt(4)
+                                  + ", expected " + FORMAT_VERSION);
+        int n = buffer.getInt(8);
+        int m = buffer.getInt(12);
+        int slotCount = buffer.getInt(16);
+        int nameBytes = buffer.getInt(20);
+        if (n < 0 || m < 0 || slotCount <= 0 || Integer.bitCount(slotCount) != 1 || nameBytes < 0
+                || fileSize(n, m, slotCount, nameBytes) != buffer.capacity())
+            throw new IOException(file + " is truncated or has a corrupt header");
+        CRC32C checksum = new CRC32C();
+        checksum.update(buffer.slice(HEADER_BYTES, buffer.capacity() - HEADER_BYTES));
+        if (checksum.getValue() != buffer.getLong(CHECKSUM_POSITION))
+            throw new IOException(file + " does not match its checksum");
+
+        this.nodeCount = n;
+        this.edgeCount = m;
+        int position = HEADER_BYTES;
+        this.weights = section(buffer, position, m * Double.BYTES).asDoubleBuffer();
+        position += m * Double.BYTES;
+        this.offsets = section(buffer, position, (n + 1) * Integer.BYTES).asIntBuffer();
+        position += (n + 1) * Integer.BYTES;
+        this.targets = section(buffer, position, m * Integer.BYTES).asIntBuffer();
+        position += m * Integer.BYTES;
+        this.nameOffsets = section(buffer, position, (n + 1) * Integer.BYTES).asIntBuffer();
+        position += (n + 1) * Integer.BYTES;
+        this.slots = section(buffer, position, slotCount * Integer.BYTES).asIntBuffer();
+        position += slotCount * Integer.BYTES;
+        this.names = section(buffer, position, nameBytes);
+        if (offsets.get(n) != m || nameOffsets.get(n) != nameBytes)
+            throw new IOException(file + " has inconsistent offsets");
+        this.decoded = new String[n];
+    }
+
+    // a little-endian view of length bytes of buffer starting at position
+    private static ByteBuffer section(ByteBuffer buffer, int position, int length) {
+        return buffer.slice(position, length).order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    // the size of a snapshot file with these section lengths
+    private static long fileSize(long n, long m, long slotCount, long nameBytes) {
+        return HEADER_BYTES + m * Double.BYTES + (n + 1) * Integer.BYTES + m * Integer.BYTES
+               + (n + 1) * Integer.BYTES + slotCount * Integer.BYTES + nameBytes;
+    }
+
+    /**
+     * Maps a snapshot file written by write() and checks it against its
+     * checksum.  The file is only read, but it should not be truncated or
+     * rewritten in place while it is mapped; write() replaces snapshots by
+     * renaming a new file over the old one, which is safe.
+     *
+     * @param file the snapshot file to open
+     * @return a graph that answers queries from the mapped file
+     * @throws IOException if the file cannot be read, is larger than 2 GB, is
+     *         not a snapshot of this format, or is corrupt
+     */
+    public static MappedGraph open(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < HEADER_BYTES)
+                throw new IOException(file + " is too short to be a graph snapshot");
+            if (size > Integer.MAX_VALUE)
+                throw new IOException(file + " is too large to map in one piece");
+            // the mapping stays valid after the channel is closed
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            return new MappedGraph(file, buffer);
+        }
+    }
+
+    /**
+     * Writes the current nodes, edges and weights of a graph to a snapshot
+     * file.  The snapshot is written to a temporary file next to file and then
+     * renamed over it, so processes that have the old snapshot mapped keep
+     * reading the old contents.
+     *
+     * @param graph the graph to write, whose node data must all be Strings
+     * @param file  the snapshot file to create or replace
+     * @throws IOException if the file cannot be written, or the snapshot
+     *         would be larger than 2 GB
+     * @throws IllegalArgumentException if some node's data is not a String
+     */
+    public static void write(BaseGraph<?, ?> graph, Path file) throws IOException {
+        ByteBuffer buffer = encode(graph);
+        Path directory = file.toAbsolutePath().getParent();
+        // created like any other new file, rather than with createTempFile's
+        // owner-only permissions, so that other users can still map it
+        Path temporary = directory.resolve(file.getFileName() + "." + ProcessHandle.current().pid()
+                                           + "." + System.nanoTime() + ".tmp");
+        try {
+            try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE_NEW,
+                                                        StandardOpenOption.WRITE)) {
+                while (buffer.hasRemaining())
+                    channel.write(buffer);
+            }
+            Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING,
+                       StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temporary);
+        }
+    }
+
+    // lays out a snapshot of graph in memory, ready to be written out
+    private static ByteBuffer encode(BaseGraph<?, ?> graph) throws IOException {
+        CompactGraph<?> compact = graph.freeze();
+        int n = compact.getNodeCount();
+        int m = compact.getEdgeCount();
+        // every name is encoded once, edges only refer to node indexes
+        byte[][] encoded = new byte[n][];
+        long nameBytes = 0;
+        for (int i = 0; i < n; i++) {
+            if (!(compact.dataAt(i) instanceof String name))
+                throw new IllegalArgumentException("only String nodes can be written to a snapshot");
+            encoded[i] = name.getBytes(StandardCharsets.UTF_8);
+            nameBytes += encoded[i].length;
+        }
+        // at least two slots per node, so probes stay short
+        int slotCount = Integer.highestOneBit(Math.max(1, n) * 2 - 1) << 1;
+        long size = fileSize(n, m, slotCount, nameBytes);
+        if (size > Integer.MAX_VALUE)
+            throw new IOException("a snapshot of this graph would take " + size + " bytes");
+
+        ByteBuffer buffer = ByteBuffer.allocate((int) size).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.putInt(MAGIC).putInt(FORMAT_VERSION).putInt(n).putInt(m).putInt(slotCount)
+              .putInt((int) nameBytes).putLong(0);
+        for (int e = 0; e < m; e++)
+            buffer.putDouble(compact.weights[e]);
+        for (int u = 0; u <= n; u++)
+            buffer.putInt(compact.offsets[u]);
+        for (int e = 0; e < m; e++)
+            buffer.putInt(compact.targets[e]);
+        int nameOffset = 0;
+        for (int i = 0; i < n; i++) {
+            buffer.putInt(nameOffset);
+            nameOffset += encoded[i].length;
+        }
+        buffer.putInt(nameOffset);
+        int[] table = new int[slotCount];
+        for (int i = 0; i < n; i++) {
+            int slot = hash(encoded[i]) & (slotCount - 1);
+            while (table[slot] != 0)
+                slot = (slot + 1) & (slotCount - 1);
+            table[slot] = i + 1;
+        }
+        for (int entry : table)
+            buffer.putInt(entry);
+        for (byte[] name : encoded)
+            buffer.put(name);
+        CRC32C checksum = new CRC32C();
+        checksum.update(buffer.slice(HEADER_BYTES, (int) size - HEADER_BYTES));
+        buffer.putLong(CHECKSUM_POSITION, checksum.getValue());
+        return buffer.flip();
+    }
+
+    // FNV-1a hash of a UTF-8 encoded name
+    private static int hash(byte[] name) {
+        int hash = 0x811c9dc5;
+        for (byte b : name)
+            hash = (hash ^ (b & 0xff)) * 0x01000193;
+        return hash;
+    }
+
+    /**
+     * Finds the index of the node with some name by looking its UTF-8 bytes
+     * up in the snapshot's hash table, without decoding any other names.
+     *
+     * @param nodeData the name to look for
+     * @return the index of that node, or -1 if there is no such node
+     */
+    public int indexOf(String nodeData) {
+        if (nodeData == null)
+            return -1;
+        byte[] name = nodeData.getBytes(StandardCharsets.UTF_8);
+        int mask = slots.capacity() - 1;
+        for (int slot = hash(name) & mask; ; slot = (slot + 1) & mask) {
+            int entry = slots.get(slot);
+            if (entry == 0)
+                return -1;
+            if (nameEquals(entry - 1, name))
+                return entry - 1;
+        }
+    }
+
+    // true if the name of node is exactly the bytes of name
+    private boolean nameEquals(int node, byte[] name) {
+        int start = nameOffsets.get(node);
+        if (nameOffsets.get(node + 1) - start != name.length)
+            return false;
+        for (int i = 0; i < name.length; i++)
+            if (names.get(start + i) != name[i])
+                return false;
+        return true;
+    }
+
+    /**
+     * Retrieves the name of a node, decoding it the first time it is asked for.
+     *
+     * @param index the index of the node
+     * @return the name of that node
+     * @throws NoSuchElementException if there is no node with that index
+     */
+    public String dataAt(int index) {
+        if (index < 0 || index >= nodeCount)
+            throw new NoSuchElementException("No node with index " + index);
+        String name = decoded[index];
+        if (name == null) {
+            int start = nameOffsets.get(index);
+            byte[] bytes = new byte[nameOffsets.get(index + 1) - start];
+            names.get(start, bytes);
+            name = new String(bytes, StandardCharsets.UTF_8);
+            decoded[index] = name;
+        }
+        return name;
+    }
+
+    /**
+     * @param edge the index of an edge
+     * @return the weight of that edge
+     */
+    public double weightAt(int edge) {
+        return weights.get(edge);
+    }
+
+    public boolean insertNode(String data) {
+        throw new UnsupportedOperationException("a mapped graph snapshot is read-only");
+    }
+
+    public boolean removeNode(String data) {
+        throw new UnsupportedOperationException("a mapped graph snapshot is read-only");
+    }
+
+    public boolean insertEdge(String pred, String succ, Double weight) {
+        throw new UnsupportedOperationException("a mapped graph snapshot is read-only");
+    }
+
+    public boolean removeEdge(String pred, String succ) {
+        throw new UnsupportedOperationException("a mapped graph snapshot is read-only");
+    }
+
+    public boolean containsNode(String data) {
+        return indexOf(data) >= 0;
+    }
+
+    /**
+     * @return a read-only view of the node names in index order, which
+     *         decodes each name as it is read
+     */
+    public List<String> getAllNodes() {
+        return new AbstractList<String>() {
+            @Override
+            public String get(int index) {
+                if (index < 0 || index >= nodeCount)
+                    throw new IndexOutOfBoundsException(index);
+                return dataAt(index);
+            }
+
+            @Override
+            public int size() {
+                return nodeCount;
+            }
+        };
+    }
+
+    public int getNodeCount() {
+        return nodeCount;
+    }
+
+    public int getEdgeCount() {
+        return edgeCount;
+    }
+
+    public boolean containsEdge(String pred, String succ) {
+        return edgeIndex(pred, succ) >= 0;
+    }
+
+    /**
+     * @param pred the name of the node the edge leaves
+     * @param succ the name of the node the edge enters
+     * @return the weight of the edge between those nodes
+     * @throws NoSuchElementException if either node or the edge between them
+     *                                are not found within this graph
+     */
+    public Double getEdge(String pred, String succ) {
+        int edge = edgeIndex(pred, succ);
+        if (edge < 0)
+            throw new NoSuchElementException("No edge from " + pred + " to " + succ);
+        return weights.get(edge);
+    }
+
+    // index of the edge from pred to succ, or -1 if there is none
+    private int edgeIndex(String pred, String succ) {
+        int from = indexOf(pred);
+        int to = indexOf(succ);
+        if (from < 0 || to < 0)
+            return -1;
+        for (int e = offsets.get(from); e < offsets.get(from + 1); e++)
+            if (targets.get(e) == to)
+                return e;
+        return -1;
+    }
+
+    /**
+     * Runs Dijkstra's algorithm over the mapped arrays from source until
+     * target is settled or every reachable node has been settled, exactly as
+     * DijkstraGraph.search does over a CompactGraph.
+     *
+     * @param source index of the node to start from
+     * @param target index of the node to stop at, or -1 to settle every node
+     *               that can be reached from source
+     * @return this thread's workspace, holding the costs and predecessors found
+     */
+    protected SearchWorkspace search(int source, int target) {
+        SearchWorkspace workspace = WORKSPACE.get();
+        workspace.reset(nodeCount, HEAP_ARITY);
+        IndexedDAryHeap pq = workspace.queue();
+        workspace.reach(source, 0, -1, -1);
+        pq.insert(source, 0);
+        while (!pq.isEmpty()) {
+            int current = pq.pollMin();
+            workspace.settle(current);
+            if (current == target)
+                break;
+            double currentCost = workspace.cost(current);
+            int end = offsets.get(current + 1);
+            for (int e = offsets.get(current); e < end; e++) {
+                int successor = targets.get(e);
+                double newCost = currentCost + weights.get(e);
+                if (newCost < workspace.cost(successor)) {
+                    workspace.reach(successor, newCost, current, e);
+                    pq.insertOrDecrease(successor, newCost);
+                }
+            }
+        }
+        return workspace;
+    }
+
+    // searches from start to end, checking that both exist and are connected
+    private SearchWorkspace searchBetween(String start, String end) {
+        int source = indexOf(start);
+        int target = indexOf(end);
+        if (source < 0 || target < 0)
+            throw new NoSuchElementException("start or end node not in graph!");
+        SearchWorkspace workspace = search(source, target);
+        if (!workspace.isSettled(target))
+            throw new NoSuchElementException("No path exists between " + start + " and " + end);
+        return workspace;
+    }
+
+    public List<String> shortestPathData(String start, String end) {
+        return shortestPath(start, end).getNodes();
+    }
+
+    /**
+     * Finds the shortest path from start to end with one search, decoding
+     * only the names of the nodes along it.
+     *
+     * @param start the name of the node the path starts at
+     * @param end   the name of the node the path ends at
+     * @return the nodes, edge weights and cost of the shortest path
+     * @throws NoSuchElementException if either node is missing or there is no
+     *         path between them
+     */
+    public PathResult<String> shortestPath(String start, String end) {
+        SearchWorkspace workspace = searchBetween(start, end);
+        int target = indexOf(end);
+        int length = 1;
+        for (int node = target; workspace.predecessor(node) >= 0; node = workspace.predecessor(node))
+            length++;
+        // fill both arrays from the back, since predecessors lead from end to start
+        String[] pathNodes = new String[length];
+        Double[] pathWeights = new Double[length - 1];
+        for (int node = target, i = length - 1; i >= 0; node = workspace.predecessor(node), i--) {
+            pathNodes[i] = dataAt(node);
+            if (i > 0)
+                pathWeights[i - 1] = weights.get(workspace.predecessorEdge(node));
+        }
+        return new PathResult<>(Arrays.asList(pathNodes), Arrays.asList(pathWeights),
+                                workspace.cost(target));
+    }
+
+    public double shortestPathCost(String start, String end) {
+        return searchBetween(start, end).cost(indexOf(end));
+    }
+
+    public ShortestPathTree<String> shortestPathTree(String start) {
+        int source = indexOf(start);
+        if (source < 0)
+            throw new NoSuchElementException("start node not in graph!");
+        return ShortestPathTree.fromSearch(this, source, search(source, -1));
+    }
+}
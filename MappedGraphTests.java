@@ -0,0 +1,98 @@
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Random;
+
+/**
+ * Tests for MappedGraph, whose only constructor maps a snapshot file and so
+ * cannot be used by JUnit to instantiate a test class.
+ */
+public class MappedGraphTests {
+
+    @Test
+    public void testMatchesDijkstra() throws IOException {
+        String[] names = new String[50];
+        for (int i = 0; i < names.length; i++) {
+            // some names that are not plain ASCII, and one that is empty
+            names[i] = i == 0 ? "" : i % 7 == 0 ? "Caf\u00e9 N\u00ba " + i : "Hall " + i;
+        }
+        DijkstraGraph<String, Double> graph = TestGraphs.randomGraph(new Random(21), List.of(names),
+                                                                     150, 1, 20);
+        Path file = Files.createTempFile("graph", ".snapshot");
+        try {
+            MappedGraph.write(graph, file);
+            MappedGraph mapped = MappedGraph.open(file);
+            assertEquals(graph.getAllNodes(), mapped.getAllNodes());
+            assertEquals(graph.getEdgeCount(), mapped.getEdgeCount());
+            for (String start : names) {
+                ShortestPathTree<String> expected = graph.shortestPathTree(start);
+                ShortestPathTree<String> actual = mapped.shortestPathTree(start);
+                for (String end : names) {
+                    assertEquals(graph.containsEdge(start, end), mapped.containsEdge(start, end));
+                    if (graph.containsEdge(start, end))
+                        assertEquals(graph.getEdge(start, end), mapped.getEdge(start, end));
+                    assertEquals(expected.isReachable(end), actual.isReachable(end));
+                    if (!expected.isReachable(end)) {
+                        assertThrows(NoSuchElementException.class, () -> mapped.shortestPath(start, end));
+                        continue;
+                    }
+                    PathResult<String> path = graph.shortestPath(start, end);
+                    PathResult<String> mappedPath = mapped.shortestPath(start, end);
+                    assertEquals(path.getNodes(), mappedPath.getNodes());
+                    assertEquals(path.getEdgeWeights(), mappedPath.getEdgeWeights());
+                    assertEquals(path.getCost(), mapped.shortestPathCost(start, end));
+                    assertEquals(expected.getHops(end), actual.getHops(end));
+                }
+            }
+            assertFalse(mapped.containsNode("Hall 50"));
+            assertThrows(NoSuchElementException.class, () -> mapped.getEdge("Hall 1", "Hall 50"));
+            assertThrows(UnsupportedOperationException.class, () -> mapped.insertNode("Hall 50"));
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    public void testCorruptSnapshots() throws IOException {
+        DijkstraGraph<String, Double> graph = new DijkstraGraph<>();
+        graph.insertNode("A");
+        graph.insertNode("B");
+        graph.insertEdge("A", "B", 2.5);
+        Path file = Files.createTempFile("graph", ".snapshot");
+        try {
+            MappedGraph.write(graph, file);
+            assertEquals(2.5, MappedGraph.open(file).shortestPathCost("A", "B"));
+            byte[] bytes = Files.readAllBytes(file);
+            // a flipped bit in any section fails the checksum
+            bytes[MappedGraph.HEADER_BYTES] ^= 1;
+            Files.write(file, bytes);
+            assertThrows(IOException.class, () -> MappedGraph.open(file));
+            bytes[MappedGraph.HEADER_BYTES] ^= 1;
+            Files.write(file, Arrays.copyOf(bytes, bytes.length - 1));
+            assertThrows(IOException.class, () -> MappedGraph.open(file));
+            Files.write(file, "digraph { }".getBytes(StandardCharsets.UTF_8));
+            assertThrows(IOException.class, () -> MappedGraph.open(file));
+
+            // an empty graph is a valid snapshot
+            MappedGraph.write(new DijkstraGraph<>(), file);
+            MappedGraph empty = MappedGraph.open(file);
+            assertEquals(0, empty.getNodeCount());
+            assertFalse(empty.containsNode("A"));
+            assertEquals(List.of(), empty.getAllNodes());
+
+            // only graphs of String locations have a snapshot format
+            DijkstraGraph<Integer, Double> numbered = new DijkstraGraph<>();
+            numbered.insertNode(1);
+            assertThrows(IllegalArgumentException.class, () -> MappedGraph.write(numbered, file));
+        } finally {
+            Files.delete(file);
+        }
+    }
+}
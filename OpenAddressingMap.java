@@ -0,0 +1,216 @@
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.function.BiConsumer;
+
+/**
+ * Implements MapADT with open addressing: keys and values are stored directly
+ * in two parallel arrays, and collisions are resolved with linear probing.
+ * Unlike HashtableMap, no Pair or LinkedList objects are allocated per entry,
+ * and a lookup walks neighboring array slots instead of following pointers.
+ *
+ * Removal uses backward shifting instead of tombstones: after a slot is
+ * emptied, later entries in the same probe run are moved back to fill the
+ * gap, so lookups never have to skip over deleted markers.
+ */
+public class OpenAddressingMap<KeyType, ValueType> implements MapADT<KeyType, ValueType> {
+
+    // slot i holds keys[i] -> values[i], and an empty slot has a null key;
+    // the capacity is always a power of two so that slots can be masked
+    protected Object[] keys;
+    protected Object[] values;
+    private int size = 0;
+
+    // the arrays double once size exceeds capacity * loadFactor
+    private final double loadFactor;
+
+    public OpenAddressingMap(int capacity, double loadFactor) {
+        if (capacity <= 0)
+            throw new IllegalArgumentException("capacity should be greater than 0");
+        if (!(loadFactor > 0 && loadFactor < 1))
+            throw new IllegalArgumentException("load factor should be between 0 and 1");
+        this.loadFactor = loadFactor;
+        int slots = Integer.highestOneBit(Math.max(capacity - 1, 1)) << 1; // round up to 2^k
+        keys = new Object[slots];
+        values = new Object[slots];
+    }
+
+    public OpenAddressingMap(int capacity) {
+        this(capacity, 0.6);
+    }
+
+    public OpenAddressingMap() {
+        this(64);
+    }
+
+    // spreads the bits of a key's hashCode and masks it to a slot index
+    private static int slotFor(Object key, int mask) {
+        int h = key.hashCode() * 0x9E3779B9; // multiply by the golden ratio to mix low bits
+        return (h ^ (h >>> 16)) & mask;
+    }
+
+    // returns the slot holding key, or -1 when key is not stored
+    private int findSlot(Object key) {
+        int mask = keys.length - 1;
+        for (int slot = slotFor(key, mask); keys[slot] != null; slot = (slot + 1) & mask)
+            if (key.equals(keys[slot]))
+                return slot;
+        return -1;
+    }
+
+    @Override
+    public void put(KeyType key, ValueType value) throws IllegalArgumentException {
+        if (key == null)
+            throw new NullPointerException("key cannot be null");
+        int mask = keys.length - 1;
+        int slot = slotFor(key, mask);
+        while (keys[slot] != null) {
+            if (key.equals(keys[slot]))
+                throw new IllegalArgumentException("key already maps to a value!");
+            slot = (slot + 1) & mask;
+        }
+        keys[slot] = key;
+        values[slot] = value;
+        size++;
+        if (size > keys.length * loadFactor)
+            resize(keys.length * 2);
+    }
+
+    @Override
+    public boolean containsKey(KeyType key) {
+        return findSlot(key) >= 0;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public ValueType get(KeyType key) throws NoSuchElementException {
+        int slot = findSlot(key);
+        if (slot < 0)
+            throw new NoSuchElementException("key does not exist in collection");
+        return (ValueType) values[slot];
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public ValueType remove(KeyType key) throws NoSuchElementException {
+        int slot = findSlot(key);
+        if (slot < 0)
+            throw new NoSuchElementException("key is not in collection!");
+        ValueType value = (ValueType) values[slot];
+
+        // shift later entries of this probe run back into the gap, as long as
+        // that does not move them in front of the slot they hash to
+        int mask = keys.length - 1;
+        int gap = slot;
+        for (int next = (gap + 1) & mask; keys[next] != null; next = (next + 1) & mask) {
+            int home = slotFor(keys[next], mask);
+            // distance from home to next must be at least the distance from home to gap
+            if (((next - home) & mask) >= ((next - gap) & mask)) {
+                keys[gap] = keys[next];
+                values[gap] = values[next];
+                gap = next;
+            }
+        }
+        keys[gap] = null;
+        values[gap] = null;
+        size--;
+        return value;
+    }
+
+    @Override
+    public void clear() {
+        Arrays.fill(keys, null);
+        Arrays.fill(values, null);
+        size = 0;
+    }
+
+    @Override
+    public int getSize() {
+        return size;
+    }
+
+    @Override
+    public int getCapacity() {
+        return keys.length;
+    }
+
+    @Override
+    public void ensureCapacity(int expectedSize) {
+        long needed = (long) Math.ceil(expectedSize / loadFactor) + 1;
+        if (needed > keys.length)
+            resize(Integer.highestOneBit((int) Math.min(1 << 30, needed - 1)) << 1);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public List<KeyType> getKeys() {
+        List<KeyType> list = new LinkedList<>();
+        for (Object key : keys)
+            if (key != null)
+                list.add((KeyType) key);
+        return list;
+    }
+
+    @Override
+    public Iterable<KeyType> keys() {
+        return () -> new SlotIterator<>(keys);
+    }
+
+    @Override
+    public Iterable<ValueType> values() {
+        return () -> new SlotIterator<>(values);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public void forEach(BiConsumer<? super KeyType, ? super ValueType> action) {
+        for (int i = 0; i < keys.length; i++)
+            if (keys[i] != null)
+                action.accept((KeyType) keys[i], (ValueType) values[i]);
+    }
+
+    // walks the occupied slots, handing out the entries of one of the arrays
+    private class SlotIterator<T> implements Iterator<T> {
+        private final Object[] source;
+        private int slot = 0; // next slot to check for an entry
+
+        SlotIterator(Object[] source) {
+            this.source = source;
+        }
+
+        @Override
+        public boolean hasNext() {
+            while (slot < keys.length && keys[slot] == null)
+                slot++;
+            return slot < keys.length;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public T next() {
+            if (!hasNext())
+                throw new NoSuchElementException("no more entries in this collection");
+            return (T) source[slot++];
+        }
+    }
+
+    // reinserts every entry into arrays with newCapacity slots
+    private void resize(int newCapacity) {
+        Object[] oldKeys = keys;
+        Object[] oldValues = values;
+        keys = new Object[newCapacity];
+        values = new Object[newCapacity];
+        int mask = newCapacity - 1;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] == null)
+                continue;
+            int slot = slotFor(oldKeys[i], mask);
+            while (keys[slot] != null)
+                slot = (slot + 1) & mask;
+            keys[slot] = oldKeys[i];
+            values[slot] = oldValues[i];
+        }
+    }
+}
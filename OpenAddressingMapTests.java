@@ -0,0 +1,85 @@
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for OpenAddressingMap, which declares several constructors and so
+ * cannot hold its own JUnit tests.
+ */
+public class OpenAddressingMapTests {
+
+    @Test
+    public void testPutGetRemove() {
+        OpenAddressingMap<String, Integer> map = new OpenAddressingMap<>(4);
+        map.put("a", 1);
+        map.put("b", 2);
+        map.put("c", 3);
+        assertEquals(2, map.get("b"));
+        assertThrows(IllegalArgumentException.class, () -> map.put("b", 5));
+        assertEquals(2, map.remove("b"));
+        assertFalse(map.containsKey("b"));
+        assertThrows(NoSuchElementException.class, () -> map.get("b"));
+        assertEquals(2, map.getSize());
+        assertThrows(NullPointerException.class, () -> map.put(null, 0));
+    }
+
+    @Test
+    public void testViews() {
+        OpenAddressingMap<Integer, Integer> map = new OpenAddressingMap<>();
+        for (int i = 0; i < 100; i++) map.put(i, -i);
+        int keySum = 0, valueSum = 0;
+        for (int key : map.keys()) keySum += key;
+        for (int value : map.values()) valueSum += value;
+        assertEquals(4950, keySum);
+        assertEquals(-4950, valueSum);
+        map.forEach((key, value) -> assertEquals(-key, value));
+    }
+
+    @Test
+    public void testRemoveKeepsProbeRunsReachable() {
+        // keys with equal hash codes all share one probe run
+        OpenAddressingMap<Long, Integer> map = new OpenAddressingMap<>(64);
+        long[] colliding = { 1L, 1L << 32 | 0, 2L << 32 | 3, 3L << 32 | 2, 4L << 32 | 5 };
+        for (int i = 0; i < colliding.length; i++) map.put(colliding[i], i);
+        map.remove(colliding[1]); // removing from the middle must not cut the run
+        for (int i = 0; i < colliding.length; i++)
+            assertEquals(i != 1, map.containsKey(colliding[i]));
+        assertEquals(4, map.get(colliding[4]));
+    }
+
+    @Test
+    public void testAgainstHashtableMap() {
+        OpenAddressingMap<Integer, Integer> map = new OpenAddressingMap<>(2);
+        HashtableMap<Integer, Integer> expected = new HashtableMap<>();
+        Random random = new Random(400);
+        for (int i = 0; i < 20000; i++) {
+            int key = random.nextInt(2000);
+            if (expected.containsKey(key)) {
+                assertEquals(expected.remove(key), map.remove(key));
+            } else {
+                expected.put(key, i);
+                map.put(key, i);
+            }
+        }
+        assertEquals(expected.getSize(), map.getSize());
+        for (int key = 0; key < 2000; key++)
+            assertEquals(expected.containsKey(key), map.containsKey(key));
+    }
+
+    @Test
+    public void testGraphWithOpenAddressingMap() {
+        DijkstraGraph<String, Double> graph = DijkstraGraph.withMap(new OpenAddressingMap<>());
+        graph.insertNode("A");
+        graph.insertNode("B");
+        graph.insertNode("C");
+        graph.insertEdge("A", "B", 1.0);
+        graph.insertEdge("B", "C", 2.0);
+        graph.insertEdge("A", "C", 5.0);
+        assertEquals(List.of("A", "B", "C"), graph.shortestPathData("A", "C"));
+        assertEquals(3.0, graph.shortestPathCost("A", "C"));
+    }
+}
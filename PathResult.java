@@ -0,0 +1,72 @@
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The answer to one shortest path query: the data of every node along the
+ * path from start to end, the weight of each edge taken between them, and
+ * the total cost of the path.  Instances are immutable, so they can be
+ * shared between threads and cached.
+ *
+ * @param NodeType is the data type stored at each graph node
+ */
+public class PathResult<NodeType> {
+
+    private static final PathResult<?> EMPTY =
+        new PathResult<>(Collections.emptyList(), Collections.emptyList(), 0);
+
+    private final List<NodeType> nodes;
+    private final List<Double> edgeWeights;
+    private final double cost;
+
+    /**
+     * Creates a path result.  The lists are wrapped rather than copied, so the
+     * caller must not modify them afterwards.
+     *
+     * @param nodes       the data of each node along the path, start to end
+     * @param edgeWeights the weight of the edge leaving each node but the last
+     * @param cost        the total cost of the path
+     */
+    public PathResult(List<NodeType> nodes, List<Double> edgeWeights, double cost) {
+        this.nodes = Collections.unmodifiableList(nodes);
+        this.edgeWeights = Collections.unmodifiableList(edgeWeights);
+        this.cost = cost;
+    }
+
+    /**
+     * @return a path result with no nodes, used when there is no path
+     */
+    @SuppressWarnings("unchecked")
+    public static <NodeType> PathResult<NodeType> empty() {
+        return (PathResult<NodeType>) EMPTY;
+    }
+
+    /**
+     * @return read-only list of node data along the path, from start to end,
+     *         or an empty list when there is no path
+     */
+    public List<NodeType> getNodes() {
+        return nodes;
+    }
+
+    /**
+     * @return read-only list of the weights of each edge along the path, so
+     *         that the i-th weight belongs to the edge from node i to node i+1
+     */
+    public List<Double> getEdgeWeights() {
+        return edgeWeights;
+    }
+
+    /**
+     * @return the total cost of the path
+     */
+    public double getCost() {
+        return cost;
+    }
+
+    /**
+     * @return true if this result holds no path
+     */
+    public boolean isEmpty() {
+        return nodes.isEmpty();
+    }
+}
@@ -1,6 +1,8 @@
+import java.util.Collections;
 import java.util.List;
 import java.util.HashMap;
 import java.util.NoSuchElementException;
+import java.util.function.BiConsumer;
 
 /**
  * Implements MapADT using an instance of java.util.HashMap.
@@ -61,11 +63,31 @@ public class PlaceholderMap<KeyType, ValueType> implements MapADT<KeyType, Value
         throw new UnsupportedOperationException("PlaceholderMap does not support the .getCapacity() method");
     }
 
+    @Override
+    public void ensureCapacity(int expectedSize) {
+        // java.util.HashMap cannot be grown in place, so there is nothing to do here
+    }
+
     @Override
     public List<KeyType> getKeys() {
         throw new UnsupportedOperationException("PlaceholderMap does not support the .getKeys() method");
     }
 
+    @Override
+    public Iterable<KeyType> keys() {
+        return Collections.unmodifiableSet(baseMap.keySet());
+    }
+
+    @Override
+    public Iterable<ValueType> values() {
+        return Collections.unmodifiableCollection(baseMap.values());
+    }
+
+    @Override
+    public void forEach(BiConsumer<? super KeyType, ? super ValueType> action) {
+        baseMap.forEach(action);
+    }
+
 
 }
 
@@ -0,0 +1,354 @@
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * A bounded cache of shortest path results keyed by their start and end
+ * nodes, so that popular routes are not searched for again on every request.
+ * The cache holds at most a given number of routes and roughly a given
+ * number of bytes, and evicts routes by one of two policies:
+ *
+ * LRU evicts the least recently used route.  TINY_LFU is W-TinyLFU: new
+ * routes enter a small LRU window, and a route leaving the window only
+ * replaces the least recently used route of the main cache if it has been
+ * asked for more often, going by a compact sketch of recent request counts.
+ * This keeps one-off routes from pushing popular ones out of the cache.
+ *
+ * All methods are synchronized, so one cache can be shared between threads.
+ * The cache does not see changes to the graph itself; whoever changes it
+ * must call clear() or invalidateEdge().
+ *
+ * @param NodeType is the data type stored at each graph node
+ */
+public class RouteCache<NodeType> {
+
+    /**
+     * How a full cache chooses which route to evict.
+     */
+    public enum Policy {
+        /** Evict the least recently used route. */
+        LRU,
+        /** Admit routes to the main cache by their request frequency (W-TinyLFU). */
+        TINY_LFU
+    }
+
+    // rough size of a cached route: the key, map entry and result objects,
+    // plus the list slots and boxed weight for each node along the path
+    private static final long ENTRY_BYTES = 200;
+    private static final long NODE_BYTES = 24;
+
+    private final Policy policy;
+    private final int maxEntries;
+    private final long maxBytes;
+
+    // the three segments of W-TinyLFU, each in least to most recently used
+    // order: new routes enter the window, routes admitted to the main cache
+    // start in probation, and routes used again while on probation are
+    // promoted to protected.  LRU keeps every route in the window.
+    private final LinkedHashMap<Key, PathResult<NodeType>> window = new LinkedHashMap<>();
+    private final LinkedHashMap<Key, PathResult<NodeType>> probation = new LinkedHashMap<>();
+    private final LinkedHashMap<Key, PathResult<NodeType>> protectedRoutes = new LinkedHashMap<>();
+    private final int windowCapacity;
+    private final int protectedCapacity;
+
+    // approximate request counts for TINY_LFU admission, or null for LRU
+    private final FrequencySketch sketch;
+
+    private long bytes = 0;
+    private long hits = 0;
+    private long misses = 0;
+
+    /**
+     * Creates an empty route cache.
+     *
+     * @param policy     how to choose routes to evict
+     * @param maxEntries the most routes to keep, at least 1
+     * @param maxBytes   roughly the most memory the routes should take
+     */
+    public RouteCache(Policy policy, int maxEntries, long maxBytes) {
+        if (maxEntries < 1 || maxBytes < 1)
+            throw new IllegalArgumentException("cache bounds should be at least 1");
+        this.policy = policy;
+        this.maxEntries = maxEntries;
+        this.maxBytes = maxBytes;
+        if (policy == Policy.LRU) {
+            windowCapacity = maxEntries;
+            protectedCapacity = 0;
+            sketch = null;
+        } else {
+            // 1% window and an 80% protected share of the main cache, as in
+            // the W-TinyLFU paper
+            windowCapacity = Math.max(1, maxEntries / 100);
+            protectedCapacity = (maxEntries - windowCapacity) * 4 / 5;
+            sketch = new FrequencySketch(maxEntries);
+        }
+    }
+
+    /**
+     * Looks up the cached route from start to end, counting a hit or a miss.
+     *
+     * @param start the data of the node the route starts at
+     * @param end   the data of the node the route ends at
+     * @return the cached route, or null if it is not cached
+     */
+    public synchronized PathResult<NodeType> get(NodeType start, NodeType end) {
+        Key key = new Key(start, end);
+        if (sketch != null)
+            sketch.increment(key.hashCode());
+        PathResult<NodeType> route = window.remove(key);
+        if (route != null) {
+            window.put(key, route);
+        } else if ((route = probation.remove(key)) != null) {
+            protectedRoutes.put(key, route);
+            // demote protected routes back to probation once it is full
+            while (protectedRoutes.size() > protectedCapacity) {
+                Map.Entry<Key, PathResult<NodeType>> eldest = eldest(protectedRoutes);
+                protectedRoutes.remove(eldest.getKey());
+                probation.put(eldest.getKey(), eldest.getValue());
+            }
+        } else if ((route = protectedRoutes.remove(key)) != null) {
+            protectedRoutes.put(key, route);
+        }
+        if (route == null)
+            misses++;
+        else
+            hits++;
+        return route;
+    }
+
+    /**
+     * Adds the route from start to end to the cache, evicting other routes
+     * as needed.  A route that is already cached is replaced.
+     *
+     * @param start the data of the node the route starts at
+     * @param end   the data of the node the route ends at
+     * @param route the shortest path from start to end, or an empty result
+     *              if there is none
+     */
+    public synchronized void put(NodeType start, NodeType end, PathResult<NodeType> route) {
+        Key key = new Key(start, end);
+        remove(key);
+        window.put(key, route);
+        bytes += weigh(route);
+        while (window.size() > windowCapacity) {
+            Map.Entry<Key, PathResult<NodeType>> candidate = eldest(window);
+            window.remove(candidate.getKey());
+            admit(candidate.getKey(), candidate.getValue());
+        }
+        // routes are evicted least valuable first until memory fits as well
+        while (bytes > maxBytes && size() > 0) {
+            LinkedHashMap<Key, PathResult<NodeType>> segment =
+                !probation.isEmpty() ? probation : !window.isEmpty() ? window : protectedRoutes;
+            Map.Entry<Key, PathResult<NodeType>> eldest = eldest(segment);
+            segment.remove(eldest.getKey());
+            bytes -= weigh(eldest.getValue());
+        }
+    }
+
+    // moves a route leaving the window into probation if the main cache has
+    // room for it or it is requested more often than the route it would
+    // replace, and drops it otherwise
+    private void admit(Key key, PathResult<NodeType> route) {
+        int mainCapacity = maxEntries - windowCapacity;
+        if (probation.size() + protectedRoutes.size() < mainCapacity) {
+            probation.put(key, route);
+            return;
+        }
+        Map.Entry<Key, PathResult<NodeType>> victim =
+            !probation.isEmpty() ? eldest(probation) : null;
+        if (victim != null
+                && sketch.frequency(key.hashCode()) > sketch.frequency(victim.getKey().hashCode())) {
+            probation.remove(victim.getKey());
+            bytes -= weigh(victim.getValue());
+            probation.put(key, route);
+        } else {
+            bytes -= weigh(route);
+        }
+    }
+
+    /**
+     * Removes every route from the cache, for when the graph may have changed
+     * anywhere.  Hit and miss counts are kept.
+     */
+    public synchronized void clear() {
+        window.clear();
+        probation.clear();
+        protectedRoutes.clear();
+        bytes = 0;
+    }
+
+    /**
+     * Removes every cached route that follows the edge from pred to succ, for
+     * when that edge is removed or becomes more expensive.  Routes that don't
+     * use the edge stay shortest after such a change.
+     *
+     * @param pred the data of the node the edge leaves
+     * @param succ the data of the node the edge enters
+     * @return the number of routes removed
+     */
+    public synchronized int invalidateEdge(NodeType pred, NodeType succ) {
+        int removed = 0;
+        for (LinkedHashMap<Key, PathResult<NodeType>> segment : List.of(window, probation, protectedRoutes)) {
+            Iterator<PathResult<NodeType>> routes = segment.values().iterator();
+            while (routes.hasNext()) {
+                PathResult<NodeType> route = routes.next();
+                if (followsEdge(route.getNodes(), pred, succ)) {
+                    routes.remove();
+                    bytes -= weigh(route);
+                    removed++;
+                }
+            }
+        }
+        return removed;
+    }
+
+    // true if succ directly follows pred somewhere along nodes
+    private static <NodeType> boolean followsEdge(List<NodeType> nodes, NodeType pred, NodeType succ) {
+        for (int i = 0; i + 1 < nodes.size(); i++)
+            if (nodes.get(i).equals(pred) && nodes.get(i + 1).equals(succ))
+                return true;
+        return false;
+    }
+
+    /**
+     * @return the policy this cache evicts routes by
+     */
+    public Policy getPolicy() {
+        return policy;
+    }
+
+    /**
+     * @return the number of routes in the cache
+     */
+    public synchronized int size() {
+        return window.size() + probation.size() + protectedRoutes.size();
+    }
+
+    /**
+     * @return the estimated number of bytes the cached routes take
+     */
+    public synchronized long getEstimatedBytes() {
+        return bytes;
+    }
+
+    /**
+     * @return the number of lookups that found their route
+     */
+    public synchronized long getHitCount() {
+        return hits;
+    }
+
+    /**
+     * @return the number of lookups that did not find their route
+     */
+    public synchronized long getMissCount() {
+        return misses;
+    }
+
+    /**
+     * @return the fraction of lookups that found their route, or 0 before
+     *         the first lookup
+     */
+    public synchronized double getHitRatio() {
+        long lookups = hits + misses;
+        return lookups == 0 ? 0 : (double) hits / lookups;
+    }
+
+    // removes key from whichever segment holds it
+    private void remove(Key key) {
+        PathResult<NodeType> old = window.remove(key);
+        if (old == null)
+            old = probation.remove(key);
+        if (old == null)
+            old = protectedRoutes.remove(key);
+        if (old != null)
+            bytes -= weigh(old);
+    }
+
+    private static <K, V> Map.Entry<K, V> eldest(LinkedHashMap<K, V> segment) {
+        return segment.entrySet().iterator().next();
+    }
+
+    private static long weigh(PathResult<?> route) {
+        return ENTRY_BYTES + NODE_BYTES * route.getNodes().size();
+    }
+
+    // the (start, end) pair a route is cached under
+    private static final class Key {
+        private final Object start;
+        private final Object end;
+        private final int hash;
+
+        Key(Object start, Object end) {
+            this.start = start;
+            this.end = end;
+            this.hash = 31 * Objects.hashCode(start) + Objects.hashCode(end);
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (!(other instanceof Key))
+                return false;
+            Key key = (Key) other;
+            return Objects.equals(start, key.start) && Objects.equals(end, key.end);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+
+    /**
+     * A count-min sketch of how often each key has been requested recently:
+     * four rows of small counters, each key counted in one counter per row,
+     * and its frequency estimated by the smallest of its counters.  Once
+     * there have been ten increments per cache entry every counter is
+     * halved, so that old popularity fades.
+     */
+    private static final class FrequencySketch {
+        private static final int ROWS = 4;
+        private static final int MAX_COUNT = 15;
+        private static final int[] SEEDS = { 0x9e3779b9, 0x85ebca6b, 0xc2b2ae35, 0x27d4eb2f };
+
+        private final byte[] counters;
+        private final int mask;
+        private final int sampleSize;
+        private int additions = 0;
+
+        FrequencySketch(int maxEntries) {
+            int width = Integer.highestOneBit(Math.max(16, maxEntries - 1) << 1);
+            counters = new byte[ROWS * width];
+            mask = width - 1;
+            sampleSize = 10 * maxEntries;
+        }
+
+        void increment(int hash) {
+            for (int row = 0; row < ROWS; row++) {
+                int index = slot(hash, row);
+                if (counters[index] < MAX_COUNT)
+                    counters[index]++;
+            }
+            if (++additions >= sampleSize) {
+                for (int i = 0; i < counters.length; i++)
+                    counters[i] >>= 1;
+                additions /= 2;
+            }
+        }
+
+        int frequency(int hash) {
+            int frequency = MAX_COUNT;
+            for (int row = 0; row < ROWS; row++)
+                frequency = Math.min(frequency, counters[slot(hash, row)]);
+            return frequency;
+        }
+
+        private int slot(int hash, int row) {
+            int h = hash * SEEDS[row];
+            h ^= h >>> 16;
+            return row * (mask + 1) + (h & mask);
+        }
+    }
+}
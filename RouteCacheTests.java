@@ -0,0 +1,86 @@
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Tests for RouteCache's LRU and W-TinyLFU policies.
+ */
+public class RouteCacheTests {
+
+    // a route from start to end through the given nodes, with unit weights
+    private static PathResult<String> route(String... nodes) {
+        Double[] weights = new Double[nodes.length - 1];
+        Arrays.fill(weights, 1.0);
+        return new PathResult<>(Arrays.asList(nodes), Arrays.asList(weights), nodes.length - 1);
+    }
+
+    @Test
+    public void testLruEviction() {
+        RouteCache<String> cache = new RouteCache<>(RouteCache.Policy.LRU, 2, 1 << 20);
+        cache.put("A", "B", route("A", "B"));
+        cache.put("A", "C", route("A", "B", "C"));
+        assertNotNull(cache.get("A", "B")); // A-B is now more recent than A-C
+        cache.put("B", "C", route("B", "C"));
+        assertEquals(2, cache.size());
+        assertNull(cache.get("A", "C"));
+        assertEquals(List.of("A", "B"), cache.get("A", "B").getNodes());
+        assertEquals(2, cache.getHitCount());
+        assertEquals(1, cache.getMissCount());
+        assertEquals(2.0 / 3, cache.getHitRatio(), 1e-9);
+    }
+
+    @Test
+    public void testTinyLfuKeepsFrequentRoutes() {
+        RouteCache<String> cache = new RouteCache<>(RouteCache.Policy.TINY_LFU, 100, 1 << 20);
+        for (int round = 0; round < 20; round++) {
+            for (int i = 0; i < 50; i++) {
+                String end = "popular" + i;
+                if (cache.get("A", end) == null)
+                    cache.put("A", end, route("A", end));
+            }
+        }
+        // a scan of routes that are each asked for once
+        for (int i = 0; i < 1000; i++) {
+            String end = "once" + i;
+            if (cache.get("A", end) == null)
+                cache.put("A", end, route("A", end));
+        }
+        int kept = 0;
+        for (int i = 0; i < 50; i++)
+            if (cache.get("A", "popular" + i) != null)
+                kept++;
+        assertTrue(kept >= 45, "popular routes survive the scan");
+        assertTrue(cache.size() <= 100);
+
+        RouteCache<String> lru = new RouteCache<>(RouteCache.Policy.LRU, 100, 1 << 20);
+        for (int i = 0; i < 50; i++)
+            lru.put("A", "popular" + i, route("A", "popular" + i));
+        for (int i = 0; i < 1000; i++)
+            lru.put("A", "once" + i, route("A", "once" + i));
+        assertNull(lru.get("A", "popular0"), "LRU loses them to the scan");
+    }
+
+    @Test
+    public void testInvalidateEdgeAndMemoryBound() {
+        RouteCache<String> cache = new RouteCache<>(RouteCache.Policy.LRU, 16, 1 << 16);
+        cache.put("A", "C", route("A", "B", "C"));
+        cache.put("A", "D", route("A", "D"));
+        cache.put("B", "A", route("B", "A"));
+        assertEquals(1, cache.invalidateEdge("A", "B"));
+        assertNull(cache.get("A", "C"));
+        assertNotNull(cache.get("B", "A"), "only routes along A->B are removed");
+        cache.clear();
+        assertEquals(0, cache.size());
+        assertEquals(0, cache.getEstimatedBytes());
+
+        // each route here weighs 248 bytes, so only two of them fit
+        RouteCache<String> small = new RouteCache<>(RouteCache.Policy.TINY_LFU, 100, 500);
+        small.put("A", "B", route("A", "B"));
+        small.put("B", "C", route("B", "C"));
+        small.put("C", "D", route("C", "D"));
+        assertEquals(2, small.size());
+        assertTrue(small.getEstimatedBytes() <= 500);
+    }
+}
@@ -0,0 +1,29 @@
+/**
+ * How DijkstraGraph searches for the shortest path between a start and an
+ * end node.
+ */
+public enum SearchMode {
+
+    /**
+     * Grow a single search outwards from the start node until the end node
+     * is settled.
+     */
+    UNIDIRECTIONAL,
+
+    /**
+     * Grow one search forwards from the start node and another backwards
+     * from the end node, along edges entering each node, and stop once no
+     * path through the unsettled nodes can beat the best path where the two
+     * searches have met.  This usually settles far fewer nodes on large
+     * graphs, at the cost of keeping two workspaces per thread.
+     */
+    BIDIRECTIONAL,
+
+    /**
+     * Run an A* search from the start node, guided by lower bounds on the
+     * remaining cost to the end node that come from precomputed distances to
+     * and from a few landmark nodes (the ALT algorithm).  The graph needs a
+     * LandmarkTable for its current state, see DijkstraGraph.setLandmarks.
+     */
+    LANDMARKS
+}
@@ -0,0 +1,159 @@
+import java.util.Arrays;
+
+/**
+ * The scratch state of one shortest path search over a CompactGraph: the
+ * best known cost and predecessor of every node, which nodes are settled,
+ * and the priority queue.  A workspace is meant to be reused for many
+ * searches by the same thread, so that a search does not allocate anything.
+ *
+ * Instead of refilling its arrays before every search, a workspace stamps
+ * each node it touches with the current generation number.  Values stamped
+ * with an older generation are treated as unset, so reset() takes constant
+ * time no matter how many nodes the previous search reached.
+ */
+public class SearchWorkspace {
+
+    // incremented by reset(); stamps older than this are stale
+    private int generation = 0;
+
+    // per node: the generation its cost/predecessor were set in, and the
+    // generation it was settled in
+    private int[] reached = new int[0];
+    private int[] settled = new int[0];
+
+    // per node, only meaningful when reached[node] == generation
+    private double[] cost = new double[0];
+    private int[] predecessor = new int[0];
+    private int[] predecessorEdge = new int[0];
+
+    // settledOrder[0..settledCount-1] lists the nodes settled since the last
+    // reset, in the order they were settled
+    private int[] settledOrder = new int[0];
+    private int settledCount = 0;
+
+    private IndexedDAryHeap queue = new IndexedDAryHeap();
+
+    /**
+     * Prepares this workspace for a new search over nodeCount nodes, growing
+     * its arrays if needed and forgetting everything about the last search.
+     *
+     * @param nodeCount the number of nodes in the graph to be searched
+     * @param arity     the number of children per node in the queue's heap
+     */
+    public void reset(int nodeCount, int arity) {
+        if (reached.length < nodeCount) {
+            int capacity = Math.max(nodeCount, reached.length + reached.length / 2);
+            reached = new int[capacity];
+            settled = new int[capacity];
+            cost = new double[capacity];
+            predecessor = new int[capacity];
+            predecessorEdge = new int[capacity];
+            settledOrder = new int[capacity];
+            generation = 0;
+        }
+        if (queue.getArity() != arity)
+            queue = new IndexedDAryHeap(reached.length, arity);
+        else {
+            queue.clear();
+            queue.ensureCapacity(reached.length);
+        }
+        generation++;
+        if (generation == Integer.MAX_VALUE) { // wrap around before stamps repeat
+            Arrays.fill(reached, 0);
+            Arrays.fill(settled, 0);
+            generation = 1;
+        }
+        settledCount = 0;
+    }
+
+    /**
+     * @return the priority queue to use for this search
+     */
+    public IndexedDAryHeap queue() {
+        return queue;
+    }
+
+    /**
+     * @param node a node index
+     * @return true if node has been reached since the last reset
+     */
+    public boolean isReached(int node) {
+        return reached[node] == generation;
+    }
+
+    /**
+     * @param node a node index
+     * @return the best known cost to node, or infinity if it was not reached
+     */
+    public double cost(int node) {
+        return reached[node] == generation ? cost[node] : Double.POSITIVE_INFINITY;
+    }
+
+    /**
+     * @param node a reached node index
+     * @return the node before node on its best known path, or -1 for the start
+     */
+    public int predecessor(int node) {
+        return reached[node] == generation ? predecessor[node] : -1;
+    }
+
+    /**
+     * @param node a reached node index
+     * @return the position in the searched CompactGraph's edge arrays of the
+     *         edge that leads into node on its best known path, or -1
+     */
+    public int predecessorEdge(int node) {
+        return reached[node] == generation ? predecessorEdge[node] : -1;
+    }
+
+    /**
+     * Records a new best path to node.
+     *
+     * @param node        the node that was reached
+     * @param nodeCost    the cost of the path to it
+     * @param pred        the node before it on that path, or -1 for the start
+     * @param predEdge    the edge from pred into node, or -1 for the start
+     */
+    public void reach(int node, double nodeCost, int pred, int predEdge) {
+        reached[node] = generation;
+        cost[node] = nodeCost;
+        predecessor[node] = pred;
+        predecessorEdge[node] = predEdge;
+    }
+
+    /**
+     * @param node a node index
+     * @return true if node's cost is final
+     */
+    public boolean isSettled(int node) {
+        return settled[node] == generation;
+    }
+
+    /**
+     * Marks node's cost as final.
+     *
+     * @param node the node to settle
+     */
+    public void settle(int node) {
+        settled[node] = generation;
+        settledOrder[settledCount++] = node;
+    }
+
+    /**
+     * @return the number of nodes settled since the last reset
+     */
+    public int getSettledCount() {
+        return settledCount;
+    }
+
+    /**
+     * Nodes are settled in order of their cost, so every node is settled
+     * after the predecessor on its shortest path.
+     *
+     * @param i a position between 0 and getSettledCount()-1
+     * @return the i-th node settled since the last reset
+     */
+    public int settledAt(int i) {
+        return settledOrder[i];
+    }
+}
@@ -0,0 +1,375 @@
+import java.util.Arrays;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * The shortest paths from one source node to every node that can be reached
+ * from it, as found by a single one-to-all search.  For each node the tree
+ * keeps the cost of its shortest path, the node before it on that path, the
+ * edge leading into it and the number of edges (hops) on that path, indexed
+ * by the node's position in a CompactGraph.  Instances are immutable, so
+ * they can be shared between threads.
+ *
+ * The per node arrays are split into blocks of 1024 nodes.  A tree repaired
+ * for a new edge weight copies only the blocks holding nodes whose paths
+ * changed, and shares every other block with the tree it was repaired from.
+ *
+ * @param NodeType is the data type stored at each graph node
+ */
+public class ShortestPathTree<NodeType> {
+
+    // nodes per block, as a power of two
+    private static final int BLOCK_SHIFT = 10;
+    private static final int BLOCK_SIZE = 1 << BLOCK_SHIFT;
+    private static final int BLOCK_MASK = BLOCK_SIZE - 1;
+
+    // the arrays for BLOCK_SIZE consecutive node indexes, per node: cost of
+    // the shortest path from source (infinity when unreachable), the node and
+    // edge before it on that path (-1 for the source and for unreachable
+    // nodes), and its number of edges (-1 when unreachable).  Blocks may be
+    // shared between trees, so they are never modified once the tree that
+    // created them has been built
+    private static final class Block {
+        final double[] cost;
+        final int[] predecessor;
+        final int[] predecessorEdge;
+        final int[] hops;
+
+        Block(double[] cost, int[] predecessor, int[] predecessorEdge, int[] hops) {
+            this.cost = cost;
+            this.predecessor = predecessor;
+            this.predecessorEdge = predecessorEdge;
+            this.hops = hops;
+        }
+
+        Block copy() {
+            return new Block(cost.clone(), predecessor.clone(), predecessorEdge.clone(), hops.clone());
+        }
+    }
+
+    // the graph that was searched, used to translate node data to indexes
+    private final IndexedGraph<NodeType> graph;
+    private final int source;
+    private final int nodeCount;
+    private final Block[] blocks;
+
+    private final int reachableCount;
+
+    /**
+     * Creates a tree from arrays that have already been filled in.  The
+     * arrays are copied into the tree's blocks, so the caller may reuse them.
+     *
+     * @param graph           the graph that was searched
+     * @param source          index of the node the search started from
+     * @param cost            cost of each node's shortest path, or infinity
+     * @param predecessor     node before each node on its shortest path, or -1
+     * @param predecessorEdge position in graph's edge arrays of the edge into
+     *                        each node on its shortest path, or -1
+     * @param hops            edges on each node's shortest path, or -1
+     * @param reachableCount  number of nodes reachable from source, itself included
+     */
+    public ShortestPathTree(IndexedGraph<NodeType> graph, int source, double[] cost,
+                            int[] predecessor, int[] predecessorEdge, int[] hops,
+                            int reachableCount) {
+        this.graph = graph;
+        this.source = source;
+        this.nodeCount = cost.length;
+        this.blocks = new Block[(nodeCount + BLOCK_MASK) >>> BLOCK_SHIFT];
+        for (int b = 0; b < blocks.length; b++) {
+            int from = b << BLOCK_SHIFT;
+            int to = Math.min(nodeCount, from + BLOCK_SIZE);
+            blocks[b] = new Block(Arrays.copyOfRange(cost, from, to),
+                                  Arrays.copyOfRange(predecessor, from, to),
+                                  Arrays.copyOfRange(predecessorEdge, from, to),
+                                  Arrays.copyOfRange(hops, from, to));
+        }
+        this.reachableCount = reachableCount;
+    }
+
+    // a tree over blocks that may be shared with other trees
+    private ShortestPathTree(IndexedGraph<NodeType> graph, int source, int nodeCount,
+                             Block[] blocks, int reachableCount) {
+        this.graph = graph;
+        this.source = source;
+        this.nodeCount = nodeCount;
+        this.blocks = blocks;
+        this.reachableCount = reachableCount;
+    }
+
+    /**
+     * Copies the results of a search that settled every node reachable from
+     * source out of a workspace, which can then be reused.  Nodes are visited
+     * in the order they were settled, so each node's predecessor already has
+     * its hop count when the node itself is reached.
+     *
+     * @param graph     the graph that was searched
+     * @param source    index of the node the search started from
+     * @param workspace the workspace holding the results of that search
+     * @return the shortest path tree rooted at source
+     */
+    public static <NodeType> ShortestPathTree<NodeType> fromSearch(IndexedGraph<NodeType> graph,
+                                                                   int source,
+                                                                   SearchWorkspace workspace) {
+        int n = graph.getNodeCount();
+        Block[] blocks = new Block[(n + BLOCK_MASK) >>> BLOCK_SHIFT];
+        for (int b = 0; b < blocks.length; b++) {
+            int size = Math.min(BLOCK_SIZE, n - (b << BLOCK_SHIFT));
+            Block block = new Block(new double[size], new int[size], new int[size], new int[size]);
+            Arrays.fill(block.cost, Double.POSITIVE_INFINITY);
+            Arrays.fill(block.predecessor, -1);
+            Arrays.fill(block.predecessorEdge, -1);
+            Arrays.fill(block.hops, -1);
+            blocks[b] = block;
+        }
+        int settled = workspace.getSettledCount();
+        for (int i = 0; i < settled; i++) {
+            int node = workspace.settledAt(i);
+            int pred = workspace.predecessor(node);
+            Block block = blocks[node >>> BLOCK_SHIFT];
+            int slot = node & BLOCK_MASK;
+            block.cost[slot] = workspace.cost(node);
+            block.predecessor[slot] = pred;
+            block.predecessorEdge[slot] = workspace.predecessorEdge(node);
+            block.hops[slot] = pred < 0 ? 0 : blocks[pred >>> BLOCK_SHIFT].hops[pred & BLOCK_MASK] + 1;
+        }
+        return new ShortestPathTree<>(graph, source, n, blocks, settled);
+    }
+
+    /**
+     * Returns this tree repaired for a change in the weight of one edge, in
+     * the style of Ramalingam and Reps' incremental algorithm: only the
+     * nodes whose shortest paths the change affects are searched again.
+     *
+     * When the edge gets cheaper, a search starts from its far end and only
+     * continues through nodes that it makes cheaper to reach.  When it gets
+     * more expensive and is part of this tree, every node whose path used it
+     * is cut loose, given its best cost through an edge from the rest of the
+     * tree, and settled again with a search among just those nodes.  Either
+     * way the repaired tree has the same costs as a fresh search, though it
+     * may choose a different path where several tie for the lowest cost.
+     *
+     * The search runs in workspace, whose stamped arrays make it cost time
+     * in proportion to the affected nodes and their edges, and the repaired
+     * tree shares every block without an affected node with this one.
+     *
+     * @param updated   the snapshot after the change, whose nodes and edges
+     *                  are laid out exactly like those of this tree's snapshot
+     * @param from      index of the node the changed edge leaves
+     * @param edge      position of the changed edge in updated's edge arrays
+     * @param oldWeight the weight of that edge before the change
+     * @param workspace a workspace to search in, which is reset first
+     * @return a tree over updated with the same source; this one is unchanged
+     */
+    public ShortestPathTree<NodeType> withEdgeWeight(CompactGraph<NodeType> updated, int from,
+                                                     int edge, double oldWeight,
+                                                     SearchWorkspace workspace) {
+        double newWeight = updated.weights[edge];
+        int to = updated.targets[edge];
+        boolean improves = newWeight < oldWeight && hops(from) >= 0
+                           && cost(from) + newWeight < cost(to);
+        boolean worsens = newWeight > oldWeight && predecessorEdge(to) == edge;
+        if (!improves && !worsens) // no shortest path changes, so the blocks can be shared
+            return new ShortestPathTree<>(updated, source, nodeCount, blocks, reachableCount);
+
+        workspace.reset(nodeCount, workspace.queue().getArity());
+        IndexedDAryHeap queue = workspace.queue();
+        // nodes whose shortest path may change are reached in the workspace;
+        // when the edge got cheaper those are the nodes the search reaches
+        int[] affected = null;
+        int affectedCount = 0;
+        if (improves) {
+            workspace.reach(to, cost(from) + newWeight, from, edge);
+            queue.insert(to, workspace.cost(to));
+        } else {
+            // the subtree below the edge, found by following tree edges down
+            // from its far end
+            affected = new int[16];
+            affected[affectedCount++] = to;
+            workspace.reach(to, Double.POSITIVE_INFINITY, -1, -1);
+            for (int i = 0; i < affectedCount; i++) {
+                int node = affected[i];
+                for (int e = updated.offsets[node]; e < updated.offsets[node + 1]; e++) {
+                    int child = updated.targets[e];
+                    if (predecessorEdge(child) == e) {
+                        if (affectedCount == affected.length)
+                            affected = Arrays.copyOf(affected, affectedCount * 2);
+                        affected[affectedCount++] = child;
+                        workspace.reach(child, Double.POSITIVE_INFINITY, -1, -1);
+                    }
+                }
+            }
+            // each cut off node starts from its cheapest edge into it from
+            // a node whose path was not affected
+            CompactGraph.ReverseEdges reverse = updated.reverse();
+            for (int i = 0; i < affectedCount; i++) {
+                int node = affected[i];
+                for (int r = reverse.offsets[node]; r < reverse.offsets[node + 1]; r++) {
+                    int pred = reverse.sources[r];
+                    if (workspace.isReached(pred))
+                        continue;
+                    double through = cost(pred) + updated.weights[reverse.edges[r]];
+                    if (through < workspace.cost(node))
+                        workspace.reach(node, through, pred, reverse.edges[r]);
+                }
+                if (workspace.cost(node) < Double.POSITIVE_INFINITY)
+                    queue.insert(node, workspace.cost(node));
+            }
+        }
+        // settle the queued nodes as Dijkstra's algorithm would, keeping to
+        // the affected nodes when the edge got more expensive
+        while (!queue.isEmpty()) {
+            int node = queue.pollMin();
+            workspace.settle(node);
+            double nodeCost = workspace.cost(node);
+            for (int e = updated.offsets[node]; e < updated.offsets[node + 1]; e++) {
+                int successor = updated.targets[e];
+                double through = nodeCost + updated.weights[e];
+                if (improves ? through < (workspace.isReached(successor) ? workspace.cost(successor)
+                                                                          : cost(successor))
+                             : workspace.isReached(successor) && !workspace.isSettled(successor)
+                               && through < workspace.cost(successor)) {
+                    workspace.reach(successor, through, node, e);
+                    queue.insertOrDecrease(successor, through);
+                }
+            }
+        }
+
+        // copy the blocks holding changed nodes, and write the new paths in
+        // the order they were settled, so that each node's predecessor has
+        // its final hop count when the node is written
+        Block[] repaired = blocks.clone();
+        int reachable = reachableCount;
+        int settled = workspace.getSettledCount();
+        for (int i = 0; i < settled; i++) {
+            int node = workspace.settledAt(i);
+            Block block = writable(repaired, node);
+            int slot = node & BLOCK_MASK;
+            if (block.hops[slot] < 0)
+                reachable++;
+            int pred = workspace.predecessor(node);
+            block.cost[slot] = workspace.cost(node);
+            block.predecessor[slot] = pred;
+            block.predecessorEdge[slot] = workspace.predecessorEdge(node);
+            block.hops[slot] = repaired[pred >>> BLOCK_SHIFT].hops[pred & BLOCK_MASK] + 1;
+        }
+        // cut off nodes that the search could not reach again
+        for (int i = 0; i < affectedCount; i++) {
+            int node = affected[i];
+            if (workspace.isSettled(node))
+                continue;
+            Block block = writable(repaired, node);
+            int slot = node & BLOCK_MASK;
+            block.cost[slot] = Double.POSITIVE_INFINITY;
+            block.predecessor[slot] = -1;
+            block.predecessorEdge[slot] = -1;
+            block.hops[slot] = -1;
+            reachable--;
+        }
+        return new ShortestPathTree<>(updated, source, nodeCount, repaired, reachable);
+    }
+
+    // the block of node in repaired, copied first if it is still this tree's
+    private Block writable(Block[] repaired, int node) {
+        int b = node >>> BLOCK_SHIFT;
+        if (repaired[b] == blocks[b])
+            repaired[b] = blocks[b].copy();
+        return repaired[b];
+    }
+
+    private double cost(int node) {
+        return blocks[node >>> BLOCK_SHIFT].cost[node & BLOCK_MASK];
+    }
+
+    private int predecessor(int node) {
+        return blocks[node >>> BLOCK_SHIFT].predecessor[node & BLOCK_MASK];
+    }
+
+    private int predecessorEdge(int node) {
+        return blocks[node >>> BLOCK_SHIFT].predecessorEdge[node & BLOCK_MASK];
+    }
+
+    private int hops(int node) {
+        return blocks[node >>> BLOCK_SHIFT].hops[node & BLOCK_MASK];
+    }
+
+    /**
+     * @return the data of the node this tree is rooted at
+     */
+    public NodeType getSource() {
+        return graph.dataAt(source);
+    }
+
+    /**
+     * @return the number of nodes that can be reached from the source,
+     *         including the source itself
+     */
+    public int getReachableCount() {
+        return reachableCount;
+    }
+
+    /**
+     * @return the approximate number of bytes taken by this tree's arrays
+     */
+    public long getMemoryBytes() {
+        return (long) nodeCount * (Double.BYTES + 3 * Integer.BYTES);
+    }
+
+    /**
+     * @param node the data of a node
+     * @return true if node is in the graph and can be reached from the source
+     */
+    public boolean isReachable(NodeType node) {
+        int index = graph.indexOf(node);
+        return index >= 0 && hops(index) >= 0;
+    }
+
+    /**
+     * @param node the data of a reachable node
+     * @return the cost of the shortest path from the source to node
+     * @throws NoSuchElementException if node cannot be reached from the source
+     */
+    public double getCost(NodeType node) {
+        return cost(reachableIndex(node));
+    }
+
+    /**
+     * @param node the data of a reachable node
+     * @return the number of edges on the shortest path from the source to
+     *         node, which is 0 for the source itself
+     * @throws NoSuchElementException if node cannot be reached from the source
+     */
+    public int getHops(NodeType node) {
+        return hops(reachableIndex(node));
+    }
+
+    /**
+     * Reads the shortest path from the source to a node out of the tree.
+     *
+     * @param node the data of a reachable node
+     * @return the nodes, edge weights and cost of the shortest path to node
+     * @throws NoSuchElementException if node cannot be reached from the source
+     */
+    public PathResult<NodeType> getPath(NodeType node) {
+        int end = reachableIndex(node);
+        int length = hops(end) + 1;
+        // fill both arrays from the back, since predecessors lead from end to start
+        Object[] pathNodes = new Object[length];
+        Double[] weights = new Double[length - 1];
+        for (int index = end, i = length - 1; index >= 0; index = predecessor(index), i--) {
+            pathNodes[i] = graph.dataAt(index);
+            if (i > 0)
+                weights[i - 1] = graph.weightAt(predecessorEdge(index));
+        }
+        @SuppressWarnings("unchecked")
+        List<NodeType> nodeData = (List<NodeType>) Arrays.asList(pathNodes);
+        return new PathResult<>(nodeData, Arrays.asList(weights), cost(end));
+    }
+
+    // index of node, checking that it can be reached from the source
+    private int reachableIndex(NodeType node) {
+        int index = graph.indexOf(node);
+        if (index < 0 || hops(index) < 0)
+            throw new NoSuchElementException(node + " cannot be reached from " + getSource());
+        return index;
+    }
+}
@@ -0,0 +1,200 @@
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.UnaryOperator;
+
+/**
+ * The shortest path trees of the sources a DijkstraGraph was most recently
+ * queried from, so that further queries from those sources can be answered
+ * by walking predecessors instead of searching.  The cache holds at most a
+ * given number of trees and bytes, evicting the least recently used tree
+ * first, and only holds trees for one snapshot of the graph: asking for a
+ * tree of a newer snapshot drops all of them.
+ *
+ * A tree costs a search of the whole graph to build, which is more than a
+ * point to point search usually costs, so the cache also remembers which
+ * sources it recently missed.  DijkstraGraph only builds a tree for a source
+ * when it is asked for a second time.
+ *
+ * All methods are synchronized, so one cache can be shared between threads.
+ *
+ * @param NodeType is the data type stored at each graph node
+ */
+public class ShortestPathTreeCache<NodeType> {
+
+    private final int maxTrees;
+    private final long maxBytes;
+
+    // the snapshot the cached trees belong to
+    private CompactGraph<NodeType> graph = null;
+
+    // trees by source node index, from least to most recently used
+    private final LinkedHashMap<Integer, ShortestPathTree<NodeType>> trees =
+        new LinkedHashMap<>(16, 0.75f, true);
+    private long bytes = 0;
+
+    // sources that were not in the cache when asked for, with the number of
+    // times they were missed, remembering a few times more sources than trees
+    private final LinkedHashMap<Integer, Integer> missed;
+
+    private long hits = 0;
+    private long misses = 0;
+
+    /**
+     * Creates an empty tree cache.
+     *
+     * @param maxTrees the most trees to keep, at least 1
+     * @param maxBytes roughly the most memory the trees should take
+     */
+    public ShortestPathTreeCache(int maxTrees, long maxBytes) {
+        if (maxTrees < 1 || maxBytes < 1)
+            throw new IllegalArgumentException("cache bounds should be at least 1");
+        this.maxTrees = maxTrees;
+        this.maxBytes = maxBytes;
+        int missedSources = 4 * maxTrees;
+        this.missed = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, Integer> eldest) {
+                return size() > missedSources;
+            }
+        };
+    }
+
+    /**
+     * Looks up the tree rooted at source, counting a hit or a miss.  Trees of
+     * any other snapshot are dropped first.
+     *
+     * @param graph  the snapshot queries currently run against
+     * @param source index of the node the tree should be rooted at
+     * @return the cached tree, or null if it is not cached
+     */
+    public synchronized ShortestPathTree<NodeType> get(CompactGraph<NodeType> graph, int source) {
+        rebind(graph);
+        ShortestPathTree<NodeType> tree = trees.get(source);
+        if (tree != null) {
+            hits++;
+        } else {
+            misses++;
+            missed.merge(source, 1, Integer::sum);
+        }
+        return tree;
+    }
+
+    /**
+     * @param source index of a node
+     * @return true if source was missed more than once recently, so that a
+     *         tree rooted there is likely to be used again
+     */
+    public synchronized boolean isRepeated(int source) {
+        Integer count = missed.get(source);
+        return count != null && count > 1;
+    }
+
+    /**
+     * Adds a tree to the cache, evicting the least recently used trees until
+     * it fits.  A tree that is larger than the whole cache is not kept.
+     *
+     * @param graph  the snapshot the tree was built from
+     * @param source index of the node the tree is rooted at
+     * @param tree   the tree to add
+     */
+    public synchronized void put(CompactGraph<NodeType> graph, int source, ShortestPathTree<NodeType> tree) {
+        rebind(graph);
+        if (tree.getMemoryBytes() > maxBytes)
+            return;
+        ShortestPathTree<NodeType> old = trees.put(source, tree);
+        if (old != null)
+            bytes -= old.getMemoryBytes();
+        bytes += tree.getMemoryBytes();
+        missed.remove(source);
+        Iterator<ShortestPathTree<NodeType>> eldest = trees.values().iterator();
+        while (trees.size() > maxTrees || bytes > maxBytes) {
+            bytes -= eldest.next().getMemoryBytes();
+            eldest.remove();
+        }
+    }
+
+    /**
+     * Carries the cached trees over from one snapshot to the next by passing
+     * each of them through repair, for when the graph changed in a way that
+     * the trees can be repaired for.  Trees of any snapshot other than from
+     * are dropped instead.
+     *
+     * @param from   the snapshot before the change
+     * @param to     the snapshot after the change
+     * @param repair turns a tree over from into the same tree over to
+     */
+    public synchronized void update(CompactGraph<NodeType> from, CompactGraph<NodeType> to,
+                                    UnaryOperator<ShortestPathTree<NodeType>> repair) {
+        if (graph != from) {
+            rebind(to);
+            return;
+        }
+        graph = to;
+        // keeps the order the trees were used in, and trees over the same
+        // nodes take the same memory
+        trees.replaceAll((source, tree) -> repair.apply(tree));
+    }
+
+    /**
+     * Removes every tree from the cache.  Hit and miss counts are kept.
+     */
+    public synchronized void clear() {
+        trees.clear();
+        missed.clear();
+        bytes = 0;
+    }
+
+    // drops everything cached for another snapshot than graph
+    private void rebind(CompactGraph<NodeType> graph) {
+        if (this.graph != graph) {
+            clear();
+            this.graph = graph;
+        }
+    }
+
+    /**
+     * @return the snapshot the cached trees belong to, or null before the
+     *         first tree is looked up or added
+     */
+    public synchronized CompactGraph<NodeType> getGraph() {
+        return graph;
+    }
+
+    /**
+     * @return the number of trees in the cache
+     */
+    public synchronized int size() {
+        return trees.size();
+    }
+
+    /**
+     * @return the number of bytes the cached trees take
+     */
+    public synchronized long getMemoryBytes() {
+        return bytes;
+    }
+
+    /**
+     * @return the number of lookups that found their tree
+     */
+    public synchronized long getHitCount() {
+        return hits;
+    }
+
+    /**
+     * @return the number of lookups that did not find their tree
+     */
+    public synchronized long getMissCount() {
+        return misses;
+    }
+
+    /**
+     * @return the fraction of lookups that found their tree, or 0 before the
+     *         first lookup
+     */
+    public synchronized double getHitRatio() {
+        long lookups = hits + misses;
+        return lookups == 0 ? 0 : (double) hits / lookups;
+    }
+}
@@ -0,0 +1,44 @@
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests for ShortestPathTreeCache's eviction and snapshot handling.
+ */
+public class ShortestPathTreeCacheTests {
+
+    @Test
+    public void testEvictionAndSnapshots() {
+        DijkstraGraph<String, Double> graph = new DijkstraGraph<>();
+        for (String node : new String[] { "A", "B", "C" })
+            graph.insertNode(node);
+        graph.insertEdge("A", "B", 1.0);
+        graph.insertEdge("B", "C", 1.0);
+        CompactGraph<String> snapshot = graph.freeze();
+        ShortestPathTreeCache<String> cache = new ShortestPathTreeCache<>(2, 1 << 20);
+        for (int source = 0; source < 3; source++) {
+            assertNull(cache.get(snapshot, source));
+            assertFalse(cache.isRepeated(source));
+            assertNull(cache.get(snapshot, source));
+            assertTrue(cache.isRepeated(source));
+            cache.put(snapshot, source, graph.shortestPathTree(snapshot.dataAt(source)));
+        }
+        assertEquals(2, cache.size());
+        assertNull(cache.get(snapshot, 0), "least recently used tree is evicted");
+        assertNotNull(cache.get(snapshot, 2));
+        assertEquals(1, cache.getHitCount());
+        assertEquals(7, cache.getMissCount());
+
+        // a new snapshot drops the trees of the old one
+        graph.insertEdge("C", "A", 1.0);
+        assertNull(cache.get(graph.freeze(), 2));
+        assertEquals(0, cache.size());
+        assertEquals(0, cache.getMemoryBytes());
+
+        // trees are also evicted to stay within the memory bound
+        ShortestPathTree<String> tree = graph.shortestPathTree("A");
+        ShortestPathTreeCache<String> small = new ShortestPathTreeCache<>(10, tree.getMemoryBytes() * 2);
+        for (int source = 0; source < 3; source++)
+            small.put(graph.freeze(), source, graph.shortestPathTree(graph.freeze().dataAt(source)));
+        assertEquals(2, small.size());
+    }
+}
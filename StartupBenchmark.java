@@ -0,0 +1,166 @@
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+import java.util.stream.Stream;
+
+/**
+ * Startup benchmark for WebApp's one-shot mode, which index.cgi runs once
+ * per request when there is no daemon.  It starts a new JVM for a shortest
+ * path query, and times how long that JVM takes to write the first byte of
+ * the page and to exit.  Each of these launches is tried in turn:
+ *
+ *   classes            java WebApp QUERY from the class files, parsing
+ *                      campus.dot, as index.cgi runs it without make startup
+ *   jar                the same from a jar, with the startup options that
+ *                      index.cgi uses (C1 only, serial GC)
+ *   jar+snapshot       also mapping campus.dot.snapshot instead of parsing
+ *   jar+snapshot+cds   also with an AppCDS archive from a training run, as
+ *                      index.cgi runs it after make startup
+ *
+ * The jar, snapshot and archive are built in a temporary directory from the
+ * classes this benchmark runs from, so it gives the same results whether or
+ * not make startup has been run.  Each launch runs twice to warm the file
+ * cache, then a number of times whose median is reported.
+ *
+ * Run from the directory holding campus.dot and template.html with:
+ * java StartupBenchmark [runs]   (defaults to 10 runs per launch)
+ */
+public class StartupBenchmark {
+
+    private static final String QUERY =
+        "start=Union%20South&end=Computer%20Sciences%20and%20Statistics";
+
+    // the options that index.cgi starts a one-shot WebApp with
+    private static final String[] STARTUP_OPTIONS = { "-XX:TieredStopAtLevel=1", "-XX:+UseSerialGC" };
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        int runs = args.length > 0 ? Integer.parseInt(args[0]) : 10;
+        String java = ProcessHandle.current().info().command().orElse("java");
+        Path classes = classDirectory();
+        Path work = Files.createTempDirectory("startup");
+        try {
+            Path jar = work.resolve("webapp.jar");
+            writeJar(classes, jar);
+            Path plain = site(work.resolve("plain"));
+            Path mapped = site(work.resolve("mapped"));
+            run(mapped, java, "-cp", jar.toString(), "WebApp", "--write-snapshot");
+            Path archive = work.resolve("webapp.jsa");
+            run(mapped, concat(new String[] { java, "-XX:ArchiveClassesAtExit=" + archive },
+                               STARTUP_OPTIONS, "-cp", jar.toString(), "WebApp", QUERY));
+
+            System.out.printf("one-shot WebApp \"%s\", median of %d runs%n", QUERY, runs);
+            byte[] expected = null;
+            Object[][] launches = {
+                { "classes", plain, new String[] { java, "-cp", classes.toString(), "WebApp", QUERY } },
+                { "jar", plain, concat(new String[] { java }, STARTUP_OPTIONS,
+                                       "-cp", jar.toString(), "WebApp", QUERY) },
+                { "jar+snapshot", mapped, concat(new String[] { java }, STARTUP_OPTIONS,
+                                                 "-cp", jar.toString(), "WebApp", QUERY) },
+                { "jar+snapshot+cds", mapped, concat(new String[] { java, "-XX:SharedArchiveFile=" + archive },
+                                                     STARTUP_OPTIONS, "-cp", jar.toString(), "WebApp", QUERY) },
+            };
+            for (Object[] launch : launches) {
+                String name = (String) launch[0];
+                Path directory = (Path) launch[1];
+                String[] command = (String[]) launch[2];
+                double[] firstByte = new double[runs];
+                double[] exit = new double[runs];
+                for (int i = -2; i < runs; i++) {
+                    long start = System.nanoTime();
+                    Process process = new ProcessBuilder(command).directory(directory.toFile())
+                        .redirectErrorStream(true).start();
+                    ByteArrayOutputStream output = new ByteArrayOutputStream();
+                    long first;
+                    try (InputStream in = process.getInputStream()) {
+                        int b = in.read();
+                        first = System.nanoTime();
+                        if (b >= 0) {
+                            output.write(b);
+                            in.transferTo(output);
+                        }
+                    }
+                    process.waitFor();
+                    long end = System.nanoTime();
+                    if (expected == null)
+                        expected = output.toByteArray();
+                    else if (!Arrays.equals(expected, output.toByteArray()))
+                        throw new IllegalStateException(name + " printed a different page:\n" + output);
+                    if (i >= 0) {
+                        firstByte[i] = (first - start) / 1e6;
+                        exit[i] = (end - start) / 1e6;
+                    }
+                }
+                System.out.printf("%-18s first byte %7.1f ms   exit %7.1f ms%n", name,
+                                  median(firstByte), median(exit));
+            }
+        } finally {
+            try (Stream<Path> files = Files.walk(work)) {
+                for (Path path : (Iterable<Path>) files.sorted(Comparator.reverseOrder())::iterator)
+                    Files.delete(path);
+            }
+        }
+    }
+
+    // the class path entry that WebApp's class file was compiled into
+    private static Path classDirectory() {
+        for (String entry : System.getProperty("java.class.path").split(java.io.File.pathSeparator)) {
+            Path directory = Path.of(entry).toAbsolutePath();
+            if (Files.isRegularFile(directory.resolve("WebApp.class")))
+                return directory;
+        }
+        throw new IllegalStateException("WebApp.class is not in a class path directory");
+    }
+
+    // packs every class file in classes into a jar, since class data sharing
+    // only archives classes that were loaded from jar files
+    private static void writeJar(Path classes, Path jar) throws IOException {
+        List<Path> classFiles = new ArrayList<>();
+        try (Stream<Path> files = Files.list(classes)) {
+            files.filter(path -> path.toString().endsWith(".class")).forEach(classFiles::add);
+        }
+        try (JarOutputStream out = new JarOutputStream(Files.newOutputStream(jar))) {
+            for (Path classFile : classFiles) {
+                out.putNextEntry(new JarEntry(classFile.getFileName().toString()));
+                Files.copy(classFile, out);
+                out.closeEntry();
+            }
+        }
+    }
+
+    // a directory holding the files that WebApp reads from its working directory
+    private static Path site(Path directory) throws IOException {
+        Files.createDirectories(directory);
+        Files.copy(Path.of("campus.dot"), directory.resolve("campus.dot"));
+        Files.copy(Path.of("template.html"), directory.resolve("template.html"));
+        return directory;
+    }
+
+    // runs a setup command in directory, failing if it does
+    private static void run(Path directory, String... command) throws IOException, InterruptedException {
+        Process process = new ProcessBuilder(command).directory(directory.toFile())
+            .redirectErrorStream(true).redirectOutput(ProcessBuilder.Redirect.DISCARD).start();
+        if (process.waitFor() != 0)
+            throw new IllegalStateException("failed: " + String.join(" ", command));
+    }
+
+    private static String[] concat(String[] first, String[] second, String... rest) {
+        String[] all = Arrays.copyOf(first, first.length + second.length + rest.length);
+        System.arraycopy(second, 0, all, first.length, second.length);
+        System.arraycopy(rest, 0, all, first.length + second.length, rest.length);
+        return all;
+    }
+
+    private static double median(double[] values) {
+        double[] sorted = values.clone();
+        Arrays.sort(sorted);
+        return sorted[sorted.length / 2];
+    }
+}
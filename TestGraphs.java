@@ -0,0 +1,68 @@
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Random graphs shared by the tests that check a search or precomputed table
+ * against DijkstraGraph's own searches.
+ */
+class TestGraphs {
+
+    private TestGraphs() {
+    }
+
+    /**
+     * Builds a graph over the nodes 0 to nodes-1 with edges random edges,
+     * each weighing a whole number from 1 to 20.
+     *
+     * @param seed  the seed of the random numbers that place the edges
+     * @param nodes the number of nodes
+     * @param edges the number of edges to insert, fewer end up in the graph
+     *              when two of them join the same pair of nodes
+     * @return the new graph
+     */
+    static DijkstraGraph<Integer, Double> randomGraph(long seed, int nodes, int edges) {
+        return randomGraph(new Random(seed), nodes, edges, 1, 20);
+    }
+
+    /**
+     * Builds a graph over the nodes 0 to nodes-1 with edges random edges,
+     * each weighing a whole number from minWeight to maxWeight.
+     *
+     * @param random    where the edges and weights are drawn from, which
+     *                  tests building several graphs share between them
+     * @param nodes     the number of nodes
+     * @param edges     the number of edges to insert
+     * @param minWeight the lowest weight an edge can have
+     * @param maxWeight the highest weight an edge can have
+     * @return the new graph
+     */
+    static DijkstraGraph<Integer, Double> randomGraph(Random random, int nodes, int edges,
+                                                      int minWeight, int maxWeight) {
+        Integer[] data = new Integer[nodes];
+        for (int i = 0; i < nodes; i++)
+            data[i] = i;
+        return randomGraph(random, List.of(data), edges, minWeight, maxWeight);
+    }
+
+    /**
+     * Builds a graph over the given nodes with edges random edges, each
+     * weighing a whole number from minWeight to maxWeight.
+     *
+     * @param random    where the edges and weights are drawn from
+     * @param nodes     the data of the graph's nodes, all different
+     * @param edges     the number of edges to insert
+     * @param minWeight the lowest weight an edge can have
+     * @param maxWeight the highest weight an edge can have
+     * @return the new graph
+     */
+    static <NodeType> DijkstraGraph<NodeType, Double> randomGraph(Random random, List<NodeType> nodes,
+                                                                  int edges, int minWeight, int maxWeight) {
+        DijkstraGraph<NodeType, Double> graph = new DijkstraGraph<>();
+        for (NodeType node : nodes)
+            graph.insertNode(node);
+        for (int i = 0; i < edges; i++)
+            graph.insertEdge(nodes.get(random.nextInt(nodes.size())), nodes.get(random.nextInt(nodes.size())),
+                             (double) (minWeight + random.nextInt(maxWeight - minWeight + 1)));
+        return graph;
+    }
+}
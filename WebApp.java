@@ -5,13 +5,32 @@ import com.sun.net.httpserver.HttpHandler;
 import com.sun.net.httpserver.HttpServer;
 import com.sun.net.httpserver.HttpContext;
 import com.sun.net.httpserver.HttpExchange;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.io.File;
-import java.util.Scanner;
 import java.util.Map;
 import java.util.HashMap;
 import java.util.stream.Stream;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.net.SocketTimeoutException;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
 
 /**
  * Instructions for running this WebApp alongside working Frontend, Backend,
@@ -26,37 +45,313 @@ import java.util.stream.Stream;
  *     compile WebApp in that location
  *     there is no need to run your sever, the provided index.cgi handles this 
  * Then visit through browser via https://cs400-web.cs.wisc.edu/CS_LOGIN/
+ *
+ * When running as a server, passing --watch after the port number reloads
+ * campus.dot in the background whenever the file changes, without a restart:
+ *     java WebApp 8000 --watch
+ * The generation of the graph being served and how long it took to load are
+ * reported at http://HOST:PORT/status
+ *
+ * Requests are handled by a fixed pool of threads unless another executor is
+ * chosen with --executor=KIND, where KIND is one of
+ *     fixed[:THREADS]         a fixed pool (twice the cores, at least 4, by default)
+ *     workstealing[:THREADS]  a work-stealing ForkJoinPool (one thread per core by default)
+ *     virtual                 a new virtual thread per request (Java 21 or later)
+ *     dispatcher              the server's own single thread, one request at a time
+ * and --backlog=N sets how many connections may wait to be accepted:
+ *     java WebApp 8000 --executor=workstealing --backlog=1024
+ *
+ * Instead of starting a JVM for every request, index.cgi can forward queries
+ * to a long-running daemon that listens on a Unix domain socket, and that
+ * takes the --watch and --executor options as well:
+ *     java WebApp --daemon ./webapp.sock --watch &
+ * Each connection to the socket sends one query string followed by a newline
+ * and receives the same HTML that a one-shot WebApp would print.  Besides the
+ * client in index.cgi, WebApp itself can act as a client:
+ *     java WebApp --client ./webapp.sock "start=...&end=..."
+ *
+ * Deployments that keep one process per request can cut its startup time
+ * with "make startup", which writes a snapshot of campus.dot (see
+ * MappedGraph) that one-shot runs map instead of parsing the DOT file, and
+ * an AppCDS archive of the classes they load, which index.cgi then uses.
+ * The snapshot alone is written by:
+ *     java WebApp --write-snapshot
  */
 public class WebApp {
+
+    // a loaded graph together with the frontend and backend answering from it,
+    // and a description of that load for the status page
+    private static class LoadedGraph {
+				final FrontendInterface frontend;
+				final long generation; // 1 for the first load, then one more per reload
+				final String filename;
+				final int nodeCount;
+				final int edgeCount;
+				final double loadMillis;
+				final long loadedAt; // as System.currentTimeMillis()
+
+				LoadedGraph(FrontendInterface frontend, long generation, String filename,
+										int nodeCount, int edgeCount, double loadMillis) {
+						this.frontend = frontend;
+						this.generation = generation;
+						this.filename = filename;
+						this.nodeCount = nodeCount;
+						this.edgeCount = edgeCount;
+						this.loadMillis = loadMillis;
+						this.loadedAt = System.currentTimeMillis();
+				}
+    }
+
+    // graph (along with the frontend and backend behind it) that is shared by
+    // all request handlers in server mode, it is only ever replaced as a whole
+    private static final AtomicReference<LoadedGraph> snapshot =
+				new AtomicReference<>();
+
+    // reloads that failed and left the previous graph in place, and why the
+    // latest of them failed
+    private static final AtomicLong failedReloads = new AtomicLong();
+    private static volatile String lastReloadError = null;
+
+    // threads in the default fixed pool: more than the cores, since handlers
+    // also wait on reading the template and writing the response
+    private static final int DEFAULT_THREADS =
+				Math.max(4, 2 * Runtime.getRuntime().availableProcessors());
+
+    // connections that may wait to be accepted when --backlog is not given
+    private static final int DEFAULT_BACKLOG = 128;
+
+    // after a change to the watched file, how long it must stay unchanged
+    // before it is reloaded, since editors often save a file in several steps
+    private static final long RELOAD_QUIET_MILLIS = 250;
+
+    // the snapshot of a graph file that one-shot runs map instead of parsing
+    // the file itself, as long as it is not older than the file
+    private static final String SNAPSHOT_SUFFIX = ".snapshot";
+
+    // the most bytes of query that a daemon client may send
+    private static final int MAX_DAEMON_QUERY_BYTES = 64 * 1024;
+
+    // how long a daemon client has to send its whole query
+    private static final long DAEMON_READ_TIMEOUT_MILLIS = 5000;
+
+    // how long --client waits for the daemon to answer before giving up, the
+    // same as the python client in index.cgi waits by default
+    private static final long DAEMON_CLIENT_TIMEOUT_MILLIS = 5000;
+
     public static void main(String[] args) throws IOException {
 				// expects the port number as a command line argument to this program
 				// or if a non-numeric argument is passed treat this like the query
 				// part of a requst URI and display response through standard out
-				if(args.length != 1) {
+				if(args.length < 1) {
 						throw new IllegalArgumentException("You must pass a command line" +
 						    " argument representing the port that this servers should be" +
 								" bound to when running this program.  Or a Query string.");
 				}
-				int portNumber = -1;
-				try {
-						portNumber = Integer.parseInt(args[0]);
-				} catch(NumberFormatException e) {
-						// When a non integer argument is passed, treat as a query string
-						// and output response through standard out.  This is only used
-						// when running through index.cgi on department linux machines.
-						handleSingleResponse(args[0]);
+				if(args[0].equals("--write-snapshot")) {
+						Backend backend = new Backend(new DijkstraGraph<>());
+						backend.loadGraphData("./campus.dot");
+						backend.writeGraphSnapshot("./campus.dot" + SNAPSHOT_SUFFIX);
+						System.out.println("Wrote ./campus.dot" + SNAPSHOT_SUFFIX);
+						return;
+				}
+				if(args[0].equals("--client") && args.length == 3) {
+						// exits with a failure status when there is no daemon to ask, or it
+						// doesn't answer in time, so that index.cgi can fall back to
+						// answering the query itself
+						try {
+								forwardQuery(args[1], args[2]);
+						} catch(IOException e) {
+								System.err.println("Could not reach the daemon at " + args[1] + ": " + e);
+								System.exit(1);
+						}
 						return;
 				}
+				int portNumber = -1;
+				String socketPath = null;
+				int firstOption = 1;
+				if(args[0].equals("--daemon") && args.length >= 2) {
+						socketPath = args[1];
+						firstOption = 2;
+				} else {
+						try {
+								portNumber = Integer.parseInt(args[0]);
+						} catch(NumberFormatException e) {
+								// When a non integer argument is passed, treat as a query string
+								// and output response through standard out.  This is only used
+								// when running through index.cgi on department linux machines.
+								handleSingleResponse(args[0]);
+								return;
+						}
+				}
+				boolean watch = false;
+				String executor = "fixed";
+				int backlog = DEFAULT_BACKLOG;
+				for(int i = firstOption; i < args.length; i++) {
+						if(args[i].equals("--watch")) watch = true;
+						else if(args[i].startsWith("--executor=")) executor = args[i].substring(11);
+						else if(args[i].startsWith("--backlog=")) backlog = Integer.parseInt(args[i].substring(10));
+						else throw new IllegalArgumentException("Unknown option: " + args[i]);
+				}
 				
+				// load the graph once up front, every request is served from it
+				reloadGraph("./campus.dot");
+				if(watch) watchGraph("./campus.dot");
+				if(socketPath != null) {
+						runDaemon(socketPath, createExecutor(executor));
+						return;
+				}
+
 				// configure and start server on this port, responding in this way
 				InetSocketAddress address = new InetSocketAddress(portNumber);
-				HttpServer server = HttpServer.create(address,8);
+				HttpServer server = HttpServer.create(address,backlog);
+				server.setExecutor(createExecutor(executor));
 				HttpContext context = server.createContext("/");
 				context.setHandler( WebApp::requestHandler );
+				server.createContext("/status").setHandler( WebApp::statusHandler );
 				System.out.println("Starting Campus Navigator Server...");
 				server.start();
     }
 
+    // answers queries sent to a Unix domain socket at path, one query per
+    // connection, until the process is stopped.  A socket file left behind by
+    // a previous daemon is replaced, and this daemon's is removed on exit.
+    private static void runDaemon(String path, Executor executor) throws IOException {
+				Path socket = Path.of(path);
+				Files.deleteIfExists(socket);
+				ServerSocketChannel server = ServerSocketChannel.open(StandardProtocolFamily.UNIX);
+				server.bind(UnixDomainSocketAddress.of(socket));
+				Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+						try { Files.deleteIfExists(socket); }
+						catch(IOException e) {} // nothing more can be done while exiting
+				}));
+				System.out.println("Campus Navigator daemon listening on " + socket);
+				while(true) {
+						SocketChannel client = server.accept();
+						if(executor == null) serveDaemonClient(client);
+						else executor.execute(() -> serveDaemonClient(client));
+				}
+    }
+
+    // reads one newline-terminated query from a daemon client, and writes
+    // back the page for it from the graph currently being served
+    private static void serveDaemonClient(SocketChannel client) {
+				try(client) {
+						String query = readDaemonQuery(client);
+						if(query == null) return;
+						String html = singleResponse(query, snapshot.get().frontend) + "\n";
+						ByteBuffer out = ByteBuffer.wrap(html.getBytes(StandardCharsets.UTF_8));
+						while(out.hasRemaining()) client.write(out);
+				} catch(IOException e) {
+						System.out.println("Daemon client failed: " + e);
+				}
+    }
+
+    // reads a daemon client's query up to its first newline, or all of it
+    // when the client closes its end without one.  Returns null for a client
+    // that sends more than MAX_DAEMON_QUERY_BYTES, or that has not finished
+    // within DAEMON_READ_TIMEOUT_MILLIS, so that a stalled client can't hold
+    // a handler thread (or the accept loop, with --executor=dispatcher).
+    // Unix domain channels have no SO_TIMEOUT, so each read waits on a
+    // selector instead.
+    private static String readDaemonQuery(SocketChannel client) throws IOException {
+				long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(DAEMON_READ_TIMEOUT_MILLIS);
+				ByteBuffer buffer = ByteBuffer.allocate(1024);
+				int end = -1;
+				client.configureBlocking(false);
+				// closing the selector deregisters the client, which must happen
+				// before it can be switched back to blocking for the reply
+				try(Selector selector = Selector.open()) {
+						client.register(selector, SelectionKey.OP_READ);
+						while(end < 0) {
+								long remaining = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+								if(remaining <= 0) {
+										System.out.println("Daemon client timed out sending its query");
+										return null;
+								}
+								selector.select(remaining);
+								selector.selectedKeys().clear();
+								int read = client.read(buffer);
+								if(read < 0) break;
+								for(int i = 0; i < buffer.position(); i++)
+										if(buffer.get(i) == '\n') { end = i; break; }
+								if(end < 0 && !buffer.hasRemaining()) {
+										if(buffer.capacity() >= MAX_DAEMON_QUERY_BYTES) return null; // not a query
+										buffer = ByteBuffer.allocate(buffer.capacity() * 2).put(buffer.flip());
+								}
+						}
+				}
+				client.configureBlocking(true);
+				return new String(buffer.array(), 0, end < 0 ? buffer.position() : end,
+													StandardCharsets.UTF_8);
+    }
+
+    // sends a query to the daemon listening at path and copies the page it
+    // answers with to standard out.  The page is only printed once all of it
+    // has arrived, and a daemon that hasn't accepted, read the query and
+    // answered it within DAEMON_CLIENT_TIMEOUT_MILLIS fails the query with
+    // nothing printed, so that a wedged daemon can't hang its callers.
+    private static void forwardQuery(String path, String query) throws IOException {
+				long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(DAEMON_CLIENT_TIMEOUT_MILLIS);
+				ByteBuffer request = ByteBuffer.wrap((query + "\n").getBytes(StandardCharsets.UTF_8));
+				ByteBuffer buffer = ByteBuffer.allocate(8192);
+				ByteArrayOutputStream page = new ByteArrayOutputStream();
+				try(SocketChannel channel = SocketChannel.open(StandardProtocolFamily.UNIX);
+						Selector selector = Selector.open()) {
+						channel.configureBlocking(false);
+						boolean connected = channel.connect(UnixDomainSocketAddress.of(path));
+						SelectionKey key = channel.register(selector, connected ? SelectionKey.OP_WRITE
+																								: SelectionKey.OP_CONNECT);
+						while(true) {
+								long remaining = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+								if(remaining <= 0)
+										throw new SocketTimeoutException("no answer within " +
+																										 DAEMON_CLIENT_TIMEOUT_MILLIS + " ms");
+								selector.select(remaining);
+								selector.selectedKeys().clear();
+								if(channel.isConnectionPending()) {
+										if(channel.finishConnect()) key.interestOps(SelectionKey.OP_WRITE);
+								} else if(request.hasRemaining()) {
+										channel.write(request);
+										if(!request.hasRemaining()) key.interestOps(SelectionKey.OP_READ);
+								} else {
+										int read = channel.read(buffer.clear());
+										if(read < 0) break;
+										page.write(buffer.array(), 0, read);
+								}
+						}
+				}
+				page.writeTo(System.out);
+				System.out.flush();
+    }
+
+    // creates the executor that request handlers run on from the kind given
+    // with --executor, or returns null to run them on the dispatcher thread
+    private static Executor createExecutor(String kind) {
+				String[] parts = kind.split(":", 2);
+				int threads = parts.length > 1 ? Integer.parseInt(parts[1]) : -1;
+				switch(parts[0]) {
+				case "fixed":
+						return Executors.newFixedThreadPool(threads > 0 ? threads : DEFAULT_THREADS);
+				case "workstealing":
+						return threads > 0 ? Executors.newWorkStealingPool(threads)
+								: Executors.newWorkStealingPool();
+				case "virtual":
+						// virtual threads arrived in Java 21, so the factory is looked up
+						// when it is asked for rather than compiled against
+						try {
+								return (Executor) Executors.class
+										.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+						} catch(ReflectiveOperationException e) {
+								throw new IllegalArgumentException("Virtual threads need Java 21 or later, this is " +
+																									 System.getProperty("java.version"));
+						}
+				case "dispatcher":
+						return null;
+				default:
+						throw new IllegalArgumentException("Unknown executor: " + kind);
+				}
+    }
+
     // http request handler handler for the context "/"
     public static void requestHandler(HttpExchange exchange) {
 				try {
@@ -68,8 +363,8 @@ public class WebApp {
 																					exchange.getRequestURI().getQuery());
 						System.out.println("Query includes args: "+keyValuePairs);
 	    
-						// create backend and frontend objects to respond to this request
-						FrontendInterface frontend = createWorkingFrontend("./campus.dot");
+						// read from the shared frontend that was loaded at startup
+						FrontendInterface frontend = snapshot.get().frontend;
 						// compute answer to user's requested problem based on query args:
 						String response = generateResponseHTML(keyValuePairs,frontend);
 						// generate HTML prompts for user for make next requests
@@ -94,6 +389,45 @@ public class WebApp {
 				}
     }
 
+    // http request handler for the context "/status", which describes the
+    // graph being served as a JSON object
+    public static void statusHandler(HttpExchange exchange) {
+				try {
+						LoadedGraph loaded = snapshot.get();
+						String error = lastReloadError;
+						String json = "{\"generation\": " + loaded.generation +
+								", \"file\": " + jsonString(loaded.filename) +
+								", \"locations\": " + loaded.nodeCount +
+								", \"edges\": " + loaded.edgeCount +
+								", \"loadMillis\": " + String.format("%.1f", loaded.loadMillis) +
+								", \"loadedAt\": " + loaded.loadedAt +
+								", \"failedReloads\": " + failedReloads.get() +
+								", \"lastReloadError\": " + (error == null ? "null" : jsonString(error)) +
+								"}\n";
+						byte[] bytes = json.getBytes(StandardCharsets.UTF_8);
+						exchange.getResponseHeaders().set("Content-Type", "application/json");
+						exchange.sendResponseHeaders(200,bytes.length);
+						OutputStream out = exchange.getResponseBody();
+						out.write(bytes);
+						out.close();
+				} catch (Exception e) {
+						System.out.println("Exception Thrown: "+e.toString());
+						try { exchange.sendResponseHeaders(500,-1); }
+						catch(IOException i){} // do nothing when this fails
+				}
+    }
+
+    // quotes a string for the status page's JSON
+    private static String jsonString(String value) {
+				StringBuilder quoted = new StringBuilder("\"");
+				for(char c : value.toCharArray()) {
+						if(c == '"' || c == '\\') quoted.append('\\').append(c);
+						else if(c < 0x20) quoted.append(String.format("\\u%04x", (int) c));
+						else quoted.append(c);
+				}
+				return quoted.append('"').toString();
+    }
+
     // reads key value pairs from the query string of a URI into a map
 private static Map<String, String> parseQuery(String query) {
     Map<String, String> map = new HashMap<>();
@@ -116,15 +450,109 @@ private static Map<String, String> parseQuery(String query) {
     return map;
 }
 
+    // number of landmarks chosen for the campus graph's A* searches
+    private static final int LANDMARKS = 8;
+
+    // graphs up to this size are answered from an all-pairs table, which
+    // takes about 16 bytes per pair of nodes (16 MB at this size)
+    private static final int ALL_PAIRS_MAX_NODES = 1000;
+
     // creates a working Frontend, Backend, DijkstraGraph, and HashtableMap
+    // for answering a single request.  It doesn't use landmarks: building
+    // them takes more searches than the request itself, and concurrent
+    // one-shot runs shouldn't be writing files next to the graph
     private static FrontendInterface createWorkingFrontend(String filename) throws IOException {
-				GraphADT<String,Double> graph = new DijkstraGraph<>();
-				BackendInterface backend = new Backend(graph);
+				return createWorkingFrontend(new DijkstraGraph<>(), filename, false);
+    }
+
+    // creates a working Frontend and Backend that load filename into graph
+    private static FrontendInterface createWorkingFrontend(DijkstraGraph<String,Double> graph,
+																													 String filename,
+																													 boolean useLandmarks) throws IOException {
+				Backend backend = new Backend(graph);
+				backend.setAllPairsThreshold(ALL_PAIRS_MAX_NODES);
 				backend.loadGraphData(filename);			
+				// graphs too large for an all-pairs table use A* with landmark bounds,
+				// keeping the landmark table next to the graph file so it's only built
+				// once.  Graphs with a table never search, so they need no landmarks
+				if(useLandmarks && backend.getAllPairsTable() == null) {
+						graph.setLandmarks(LandmarkTable.loadOrBuild(graph, filename + ".landmarks", LANDMARKS));
+						graph.setSearchMode(SearchMode.LANDMARKS);
+				}
 				FrontendInterface frontend = new Frontend(backend);
 				return frontend;
     }
 
+    // builds a complete new frontend for filename before publishing it, so
+    // that handlers see either the previous graph or the fully loaded new one
+    // but never a partially loaded graph.  Nothing on the request path
+    // modifies the published graph, so handler threads can share it freely,
+    // and requests that already hold the previous graph finish on it.  A file
+    // that fails to load or holds no locations is not published, leaving the
+    // previous graph in place.  Reloads are serialized so generations count up.
+    public static synchronized void reloadGraph(String filename) throws IOException {
+				long start = System.nanoTime();
+				DijkstraGraph<String,Double> graph = new DijkstraGraph<>();
+				FrontendInterface frontend = createWorkingFrontend(graph, filename, true);
+				if(graph.getNodeCount() == 0)
+						throw new IOException(filename + " holds no locations");
+				LoadedGraph previous = snapshot.get();
+				snapshot.set(new LoadedGraph(frontend,
+																		 previous == null ? 1 : previous.generation + 1,
+																		 filename, graph.getNodeCount(), graph.getEdgeCount(),
+																		 (System.nanoTime() - start) / 1e6));
+    }
+
+    // starts a background thread that reloads the graph from filename each
+    // time that file is changed, for as long as the server runs
+    private static void watchGraph(String filename) throws IOException {
+				Path file = Path.of(filename).toAbsolutePath().normalize();
+				// a WatchService watches directories, so watch the file's directory
+				// and pick out the events about the file itself
+				WatchService watcher = file.getFileSystem().newWatchService();
+				file.getParent().register(watcher, StandardWatchEventKinds.ENTRY_CREATE,
+																	StandardWatchEventKinds.ENTRY_MODIFY);
+				Thread thread = new Thread(() -> {
+						try {
+								while(true) {
+										if(!changed(watcher.take(), file)) continue;
+										// wait for the directory to go quiet before reading the file
+										WatchKey key;
+										while((key = watcher.poll(RELOAD_QUIET_MILLIS, TimeUnit.MILLISECONDS)) != null)
+												changed(key, file);
+										try {
+												reloadGraph(filename);
+												LoadedGraph loaded = snapshot.get();
+												System.out.printf("Reloaded %s as generation %d in %.1f ms%n",
+																					filename, loaded.generation, loaded.loadMillis);
+										} catch(Exception e) {
+												// keep serving the previous graph until the file is fixed
+												failedReloads.incrementAndGet();
+												lastReloadError = e.toString();
+												System.out.println("Reloading " + filename + " failed: " + e);
+										}
+								}
+						} catch(InterruptedException e) {
+								// the server is shutting down
+						}
+				}, "graph-watcher");
+				thread.setDaemon(true);
+				thread.start();
+    }
+
+    // takes the events off a watch key and re-arms it, returning true if any
+    // of them may have been a change to file
+    private static boolean changed(WatchKey key, Path file) {
+				boolean changed = false;
+				for(WatchEvent<?> event : key.pollEvents()) {
+						// an overflow means events were lost, which may include ours
+						if(event.kind() == StandardWatchEventKinds.OVERFLOW ||
+							 file.getFileName().equals(event.context())) changed = true;
+				}
+				key.reset();
+				return changed;
+    }
+
     // creates the html response for the kind of question requeted (if any)
     private static String generateResponseHTML(Map<String,String> keyValuePairs, FrontendInterface frontend) {
 				// compute response for shortest path request
@@ -155,41 +583,75 @@ private static Map<String, String> parseQuery(String query) {
 
     // compose reponse with prompts inside a complete html tree
     private static String composeHTML(String response, String prompts) throws IOException {
-				// read contents of template file into html string
-				String html = "";
-				Scanner in = new Scanner(new File("template.html"));
-				while(in.hasNextLine()) html += in.nextLine() + "\n";
-
-				// replace placeholders for response and prompts
-				html = html.replaceFirst("<!-- RESPONSE GOES HERE -->",response);
-				html = html.replaceFirst("<!-- PROMPTS GO HERE -->",prompts);
+				// read contents of template file into html string, without the
+				// Scanner and regular expression classes that one-shot runs would
+				// otherwise have to load
+				StringBuilder html = new StringBuilder();
+				for(String line : Files.readAllLines(Path.of("template.html")))
+						html.append(line).append('\n');
+
+				// replace placeholders for response and prompts, as literal text
+				replaceFirst(html,"<!-- RESPONSE GOES HERE -->",response);
+				replaceFirst(html,"<!-- PROMPTS GO HERE -->",prompts);
 	
-				return html;
+				return html.toString();
+    }
+
+    // replaces the first occurrence of placeholder in html with text
+    private static void replaceFirst(StringBuilder html, String placeholder, String text) {
+				int start = html.indexOf(placeholder);
+				if(start >= 0) html.replace(start, start + placeholder.length(), text);
     }
 
 		// Since we cannot run a public webserver on the department's linux
 		// machines, we are using a cgi script to pass the query argument to
 		// the method below, and then displaying a response to standard out.
 		public static void handleSingleResponse(String query) {
+				try {
+						// create backend and frontend objects to respond to this request
+						FrontendInterface frontend = createSingleResponseFrontend("./campus.dot");
+						System.out.println(singleResponse(query, frontend));
+				} catch (Exception e) {
+						System.out.println("Exception Thrown: "+e.toString());
+						e.printStackTrace();
+				}
+    }
+
+		// creates a frontend for answering a single request: from the graph's
+		// snapshot when there is an up to date one, since mapping it takes far
+		// less time than parsing the graph file, and otherwise from the file
+		private static FrontendInterface createSingleResponseFrontend(String filename) throws IOException {
+				File snapshotFile = new File(filename + SNAPSHOT_SUFFIX);
+				if(snapshotFile.isFile() && snapshotFile.lastModified() >= new File(filename).lastModified()) {
+						try {
+								Backend backend = new Backend(new DijkstraGraph<>());
+								backend.loadGraphSnapshot(snapshotFile.getPath());
+								return new Frontend(backend);
+						} catch(IOException e) {
+								// an unreadable snapshot is no worse than not having one
+						}
+				}
+				return createWorkingFrontend(filename);
+		}
+
+		// the page that index.cgi shows for a query string, whether it is
+		// answered by a one-shot WebApp or by the daemon
+		private static String singleResponse(String query, FrontendInterface frontend) {
 				try {
 						query = URLDecoder.decode(query, StandardCharsets.UTF_8);
 						Map<String,String> keyValuePairs = parseQuery(query);
 	    
-						// create backend and frontend objects to respond to this request
-						FrontendInterface frontend = createWorkingFrontend("./campus.dot");
 						// compute answer to user's requested problem based on query args:
 						String response = generateResponseHTML(keyValuePairs,frontend);
 						// generate HTML prompts for user for make next requests
 						String prompts = generatePromptHTML(frontend);
 						// compose response and prompts into a complete html template
-						String html = composeHTML(response,prompts);
-		
-						System.out.println(html);
+						return composeHTML(response,prompts);
 						
 				// unless something goes wrong, in which case report problem
 				} catch (Exception e) {
-						System.out.println("Exception Thrown: "+e.toString());
 						e.printStackTrace();
+						return "Exception Thrown: "+e.toString();
 				}
     }
 }
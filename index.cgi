@@ -1,5 +1,54 @@
 #!/usr/bin/env bash
 
+# Queries are forwarded to a running WebApp daemon when its socket exists,
+# which saves starting a JVM and loading the graph for every request.  Start
+# the daemon from this directory with:
+#     java WebApp --daemon ./webapp.sock --watch &
+# Without a daemon, or if it can't be reached or doesn't answer within
+# WEBAPP_TIMEOUT seconds, each request runs its own WebApp as before.
+SOCKET="${WEBAPP_SOCKET:-./webapp.sock}"
+QUERY="${QUERY_STRING:-no:args}"
+TIMEOUT="${WEBAPP_TIMEOUT:-5}"
+
 echo "Content-type: text/html"
 echo ""
-java WebApp "${QUERY_STRING:-no:args}" 2>&1
+if [ -S "$SOCKET" ]; then
+    # only one client is tried: a daemon that refuses or times out for one
+    # would do the same for the other, so a second client would only add a
+    # JVM launch before the one-shot run.  Each client prints a page only once
+    # all of it has arrived, so a failed client leaves nothing behind.
+    if command -v python3 >/dev/null 2>&1; then
+        # a python client starts much faster than a JVM
+        PAGE=$(python3 -c '
+import socket, sys, time
+timeout = float(sys.argv[3])
+deadline = time.monotonic() + timeout
+client = socket.socket(socket.AF_UNIX)
+client.settimeout(timeout)
+client.connect(sys.argv[1])
+client.sendall(sys.argv[2].encode() + b"\n")
+page = []
+while True:
+    client.settimeout(max(deadline - time.monotonic(), 0.001))
+    data = client.recv(65536)
+    if not data:
+        break
+    page.append(data)
+sys.stdout.buffer.write(b"".join(page))
+' "$SOCKET" "$QUERY" "$TIMEOUT" 2>/dev/null)
+    else
+        # WebApp --client gives up after the same 5 seconds
+        PAGE=$(java WebApp --client "$SOCKET" "$QUERY" 2>/dev/null)
+    fi
+    if [ -n "$PAGE" ]; then
+        printf '%s\n' "$PAGE"
+        exit 0
+    fi
+fi
+# one-shot runs start faster with the archive and snapshot from "make startup"
+if [ -f webapp.jsa ] && [ -f webapp.jar ]; then
+    java -XX:SharedArchiveFile=webapp.jsa -XX:TieredStopAtLevel=1 -XX:+UseSerialGC \
+         -cp webapp.jar WebApp "$QUERY" 2>&1
+else
+    java WebApp "$QUERY" 2>&1
+fi